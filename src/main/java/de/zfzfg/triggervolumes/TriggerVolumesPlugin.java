@@ -2,13 +2,26 @@ package de.zfzfg.triggervolumes;
 
 import de.zfzfg.triggervolumes.commands.TriggerCommand;
 import de.zfzfg.triggervolumes.commands.TriggerTabCompleter;
+import de.zfzfg.triggervolumes.listeners.CommandMapListener;
+import de.zfzfg.triggervolumes.listeners.PermissionListener;
+import de.zfzfg.triggervolumes.listeners.PlayerDataListener;
 import de.zfzfg.triggervolumes.listeners.PlayerInteractListener;
 import de.zfzfg.triggervolumes.listeners.PlayerMoveListener;
 import de.zfzfg.triggervolumes.listeners.SelectionToolListener;
+import de.zfzfg.triggervolumes.managers.ActionScheduler;
+import de.zfzfg.triggervolumes.managers.ActionTimer;
+import de.zfzfg.triggervolumes.managers.AsyncDetector;
+import de.zfzfg.triggervolumes.managers.DetectionMetrics;
 import de.zfzfg.triggervolumes.managers.LanguageManager;
+import de.zfzfg.triggervolumes.managers.OccupancyScanner;
 import de.zfzfg.triggervolumes.managers.ParticleManager;
+import de.zfzfg.triggervolumes.managers.PermissionCache;
+import de.zfzfg.triggervolumes.managers.PlayerDataStore;
+import de.zfzfg.triggervolumes.managers.PlayerStateManager;
 import de.zfzfg.triggervolumes.managers.SelectionManager;
+import de.zfzfg.triggervolumes.managers.TransitionDispatcher;
 import de.zfzfg.triggervolumes.managers.TriggerVolumeManager;
+import de.zfzfg.triggervolumes.models.Settings;
 import org.bukkit.plugin.java.JavaPlugin;
 
 /**
@@ -23,10 +36,22 @@ public class TriggerVolumesPlugin extends JavaPlugin {
 
     private static TriggerVolumesPlugin instance;
     
+    // Replaced as a whole on reload, never changed in place
+    private volatile Settings settings;
+    
     private TriggerVolumeManager volumeManager;
     private SelectionManager selectionManager;
     private ParticleManager particleManager;
     private LanguageManager languageManager;
+    private PlayerStateManager playerStateManager;
+    private TransitionDispatcher transitionDispatcher;
+    private DetectionMetrics detectionMetrics;
+    private OccupancyScanner occupancyScanner;
+    private AsyncDetector asyncDetector;
+    private PermissionCache permissionCache;
+    private ActionScheduler actionScheduler;
+    private ActionTimer actionTimer;
+    private PlayerDataStore playerDataStore;
 
     /**
      * Called when the plugin is enabled.
@@ -38,6 +63,7 @@ public class TriggerVolumesPlugin extends JavaPlugin {
         
         // Save default config
         saveDefaultConfig();
+        reloadSettings();
         
         // Initialize managers
         languageManager = new LanguageManager(this);
@@ -46,14 +72,39 @@ public class TriggerVolumesPlugin extends JavaPlugin {
         volumeManager = new TriggerVolumeManager(this);
         selectionManager = new SelectionManager(this);
         particleManager = new ParticleManager(this);
+        playerStateManager = new PlayerStateManager();
+        transitionDispatcher = new TransitionDispatcher(this);
+        detectionMetrics = new DetectionMetrics();
+        occupancyScanner = new OccupancyScanner(this);
+        asyncDetector = new AsyncDetector(this);
+        permissionCache = new PermissionCache(this);
+        actionScheduler = new ActionScheduler(this);
+        actionTimer = new ActionTimer(this);
+        playerDataStore = new PlayerDataStore(this);
         
         // Load volumes from storage
         volumeManager.loadVolumes();
         
+        // Start scan or async mode if configured
+        occupancyScanner.reload();
+        asyncDetector.reload();
+        
+        // Start refreshing cached permissions and the transition and action budgets
+        permissionCache.reload();
+        transitionDispatcher.reload();
+        actionScheduler.reload();
+        actionTimer.start();
+        
+        // Load the cooldowns and one-shot volumes of players already online
+        playerDataStore.start();
+        
         // Register listeners
         getServer().getPluginManager().registerEvents(new PlayerInteractListener(this), this);
         getServer().getPluginManager().registerEvents(new PlayerMoveListener(this), this);
         getServer().getPluginManager().registerEvents(new SelectionToolListener(this), this);
+        getServer().getPluginManager().registerEvents(new PermissionListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerDataListener(this), this);
+        getServer().getPluginManager().registerEvents(new CommandMapListener(), this);
         
         // Register commands
         TriggerCommand triggerCommand = new TriggerCommand(this);
@@ -74,6 +125,31 @@ public class TriggerVolumesPlugin extends JavaPlugin {
             volumeManager.saveVolumes();
         }
         
+        // Stop scanning
+        if (occupancyScanner != null) {
+            occupancyScanner.stop();
+        }
+        if (asyncDetector != null) {
+            asyncDetector.stop();
+        }
+        if (permissionCache != null) {
+            permissionCache.stop();
+        }
+        if (transitionDispatcher != null) {
+            transitionDispatcher.stop();
+        }
+        if (actionTimer != null) {
+            actionTimer.stop();
+        }
+        if (actionScheduler != null) {
+            actionScheduler.stop();
+        }
+        
+        // Write the changed player data
+        if (playerDataStore != null) {
+            playerDataStore.stop();
+        }
+        
         // Stop particle tasks
         if (particleManager != null) {
             particleManager.stopAllTasks();
@@ -91,6 +167,23 @@ public class TriggerVolumesPlugin extends JavaPlugin {
         return instance;
     }
 
+    /**
+     * Gets the current settings snapshot.
+     * 
+     * @return The Settings instance
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Reads the settings from the current config.
+     * Call after the config was (re)loaded, before the managers are reloaded.
+     */
+    public void reloadSettings() {
+        settings = Settings.load(getConfig(), getLogger());
+    }
+
     /**
      * Gets the TriggerVolume manager.
      * 
@@ -126,4 +219,85 @@ public class TriggerVolumesPlugin extends JavaPlugin {
     public LanguageManager getLanguageManager() {
         return languageManager;
     }
+
+    /**
+     * Gets the PlayerState manager.
+     * 
+     * @return The PlayerStateManager instance
+     */
+    public PlayerStateManager getPlayerStateManager() {
+        return playerStateManager;
+    }
+
+    /**
+     * Gets the Transition dispatcher.
+     * 
+     * @return The TransitionDispatcher instance
+     */
+    public TransitionDispatcher getTransitionDispatcher() {
+        return transitionDispatcher;
+    }
+
+    /**
+     * Gets the detection metrics.
+     * 
+     * @return The DetectionMetrics instance
+     */
+    public DetectionMetrics getDetectionMetrics() {
+        return detectionMetrics;
+    }
+
+    /**
+     * Gets the Occupancy scanner.
+     * 
+     * @return The OccupancyScanner instance
+     */
+    public OccupancyScanner getOccupancyScanner() {
+        return occupancyScanner;
+    }
+
+    /**
+     * Gets the Async detector.
+     * 
+     * @return The AsyncDetector instance
+     */
+    public AsyncDetector getAsyncDetector() {
+        return asyncDetector;
+    }
+
+    /**
+     * Gets the Permission cache.
+     * 
+     * @return The PermissionCache instance
+     */
+    public PermissionCache getPermissionCache() {
+        return permissionCache;
+    }
+
+    /**
+     * Gets the Action scheduler.
+     * 
+     * @return The ActionScheduler instance
+     */
+    public ActionScheduler getActionScheduler() {
+        return actionScheduler;
+    }
+
+    /**
+     * Gets the action timer running delayed and repeating actions.
+     * 
+     * @return The ActionTimer instance
+     */
+    public ActionTimer getActionTimer() {
+        return actionTimer;
+    }
+
+    /**
+     * Gets the store persisting cooldowns and one-shot volumes.
+     * 
+     * @return The PlayerDataStore instance
+     */
+    public PlayerDataStore getPlayerDataStore() {
+        return playerDataStore;
+    }
 }
@@ -1,11 +1,18 @@
 package de.zfzfg.triggervolumes.commands;
 
 import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
+import de.zfzfg.triggervolumes.managers.ActionScheduler;
+import de.zfzfg.triggervolumes.managers.AsyncDetector;
+import de.zfzfg.triggervolumes.managers.DetectionMetrics;
+import de.zfzfg.triggervolumes.managers.OccupancyScanner;
+import de.zfzfg.triggervolumes.managers.TransitionDispatcher;
 import de.zfzfg.triggervolumes.models.ActionType;
 import de.zfzfg.triggervolumes.models.Selection;
 import de.zfzfg.triggervolumes.models.TriggerAction;
+import de.zfzfg.triggervolumes.models.TriggerType;
 import de.zfzfg.triggervolumes.models.TriggerVolume;
 import de.zfzfg.triggervolumes.models.VolumeGroup;
+import de.zfzfg.triggervolumes.spatial.IndexStats;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -16,6 +23,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.stream.Collectors;
 
 /**
  * Main command handler for the /trigger command and all its subcommands.
@@ -60,6 +68,8 @@ public class TriggerCommand implements CommandExecutor {
                 return handleCreate(sender, args);
             case "define":
                 return handleDefine(sender, args);
+            case "redefine":
+                return handleRedefine(sender, args);
             case "delete":
             case "remove":
                 return handleDelete(sender, args);
@@ -69,6 +79,16 @@ public class TriggerCommand implements CommandExecutor {
                 return handleInfo(sender, args);
             case "setaction":
                 return handleSetAction(sender, args);
+            case "setpermission":
+                return handleSetPermission(sender, args);
+            case "settime":
+                return handleSetTime(sender, args);
+            case "setcooldown":
+                return handleSetCooldown(sender, args);
+            case "setoneshot":
+                return handleSetOneShot(sender, args);
+            case "sethysteresis":
+                return handleSetHysteresis(sender, args);
             case "clearactions":
                 return handleClearActions(sender, args);
             case "visualize":
@@ -88,8 +108,12 @@ public class TriggerCommand implements CommandExecutor {
                 return handleGroupAdd(sender, args);
             case "groupremove":
                 return handleGroupRemove(sender, args);
+            case "migrate":
+                return handleMigrate(sender);
             case "reload":
                 return handleReload(sender);
+            case "stats":
+                return handleStats(sender, args);
             case "help":
             default:
                 sendHelp(sender);
@@ -241,6 +265,69 @@ public class TriggerCommand implements CommandExecutor {
         return true;
     }
 
+    /**
+     * Handles the /trigger redefine <name> command.
+     * Moves an existing trigger volume to the current selection, keeping its actions.
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if successful
+     */
+    private boolean handleRedefine(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage(getMessage("no-permission"));
+            return true;
+        }
+
+        if (!player.hasPermission("triggervolumes.admin")) {
+            player.sendMessage(getMessage("no-permission"));
+            return true;
+        }
+
+        if (args.length < 2) {
+            player.sendMessage(ChatColor.RED + "Usage: /trigger redefine <name>");
+            return true;
+        }
+
+        String name = args[1];
+        Selection selection = plugin.getSelectionManager().getSelection(player);
+
+        if (!selection.isComplete()) {
+            player.sendMessage(getMessage("no-selection"));
+            return true;
+        }
+
+        if (!selection.isSameWorld()) {
+            player.sendMessage(ChatColor.RED + "Both positions must be in the same world!");
+            return true;
+        }
+
+        if (!plugin.getVolumeManager().volumeExists(name)) {
+            player.sendMessage(getMessage("volume-not-found").replace("%name%", name));
+            return true;
+        }
+
+        boolean success = plugin.getVolumeManager().redefineVolume(
+                name,
+                selection.getWorldName(),
+                selection.getMinX(),
+                selection.getMinY(),
+                selection.getMinZ(),
+                selection.getMaxX(),
+                selection.getMaxY(),
+                selection.getMaxZ()
+        );
+
+        if (success) {
+            player.sendMessage(ChatColor.GREEN + "Volume " + ChatColor.YELLOW + name + 
+                    ChatColor.GREEN + " moved to your selection.");
+        } else {
+            player.sendMessage(ChatColor.RED + "Failed to redefine volume!");
+        }
+
+        return true;
+    }
+
     /**
      * Handles the /trigger delete <name> command.
      * Deletes a trigger volume.
@@ -347,6 +434,22 @@ public class TriggerCommand implements CommandExecutor {
                 String.format("(%.1f, %.1f, %.1f)", volume.getMaxX(), volume.getMaxY(), volume.getMaxZ()));
         sender.sendMessage(ChatColor.YELLOW + "Volume: " + ChatColor.WHITE + 
                 String.format("%.0f blocks", volume.getVolume()));
+        if (volume.getPermission() != null) {
+            sender.sendMessage(ChatColor.YELLOW + "Permission: " + ChatColor.WHITE + volume.getPermission());
+        }
+        if (volume.getCooldown() != TriggerVolume.DEFAULT_COOLDOWN) {
+            sender.sendMessage(ChatColor.YELLOW + "Player Cooldown: " + ChatColor.WHITE + volume.getCooldown() + " ticks");
+        }
+        if (volume.getGlobalCooldown() > 0) {
+            sender.sendMessage(ChatColor.YELLOW + "Global Cooldown: " + ChatColor.WHITE + volume.getGlobalCooldown() + " ticks");
+        }
+        if (volume.isOneShot()) {
+            sender.sendMessage(ChatColor.YELLOW + "One-Shot: " + ChatColor.WHITE + "enter actions run once per player");
+        }
+        if (volume.getHysteresis() > 0 || volume.getExitDelay() > 0) {
+            sender.sendMessage(ChatColor.YELLOW + "Hysteresis: " + ChatColor.WHITE + 
+                    String.format("%.2f blocks, exit delay %d ticks", volume.getHysteresis(), volume.getExitDelay()));
+        }
         
         // Show groups this volume is in
         List<String> groupNames = plugin.getVolumeManager().getGroupsForVolume(name);
@@ -364,7 +467,8 @@ public class TriggerCommand implements CommandExecutor {
                 TriggerAction action = volume.getEnterActions().get(i);
                 sender.sendMessage(ChatColor.GRAY + "  " + (i + 1) + ". " + 
                         ChatColor.AQUA + action.getType().name() + 
-                        ChatColor.WHITE + ": " + action.getValue());
+                        ChatColor.WHITE + ": " + action.getValue() + 
+                        ChatColor.GRAY + formatTiming(action));
             }
         }
 
@@ -377,7 +481,32 @@ public class TriggerCommand implements CommandExecutor {
                 TriggerAction action = volume.getLeaveActions().get(i);
                 sender.sendMessage(ChatColor.GRAY + "  " + (i + 1) + ". " + 
                         ChatColor.AQUA + action.getType().name() + 
-                        ChatColor.WHITE + ": " + action.getValue());
+                        ChatColor.WHITE + ": " + action.getValue() + 
+                        ChatColor.GRAY + formatTiming(action));
+            }
+        }
+
+        // Show stay and tick actions, only if the volume has some
+        if (!volume.getStayActions().isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + "Stay Actions" + ChatColor.GRAY + 
+                    " (after " + volume.getStayTime() + " ticks inside)" + ChatColor.YELLOW + ":");
+            for (int i = 0; i < volume.getStayActions().size(); i++) {
+                TriggerAction action = volume.getStayActions().get(i);
+                sender.sendMessage(ChatColor.GRAY + "  " + (i + 1) + ". " + 
+                        ChatColor.AQUA + action.getType().name() + 
+                        ChatColor.WHITE + ": " + action.getValue() + 
+                        ChatColor.GRAY + formatTiming(action));
+            }
+        }
+        if (!volume.getTickActions().isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + "Tick Actions" + ChatColor.GRAY + 
+                    " (every " + volume.getTickInterval() + " ticks inside)" + ChatColor.YELLOW + ":");
+            for (int i = 0; i < volume.getTickActions().size(); i++) {
+                TriggerAction action = volume.getTickActions().get(i);
+                sender.sendMessage(ChatColor.GRAY + "  " + (i + 1) + ". " + 
+                        ChatColor.AQUA + action.getType().name() + 
+                        ChatColor.WHITE + ": " + action.getValue() + 
+                        ChatColor.GRAY + formatTiming(action));
             }
         }
 
@@ -385,7 +514,7 @@ public class TriggerCommand implements CommandExecutor {
     }
 
     /**
-     * Handles the /trigger setaction <name> <enter|leave> <type> <value> command.
+     * Handles the /trigger setaction <name> <enter|leave|stay|tick> <type> [delay=<time>] [repeat=<time>] [cooldown=<time>] <value> command.
      * Adds an action to a trigger volume or group.
      * 
      * @param sender The command sender
@@ -399,9 +528,10 @@ public class TriggerCommand implements CommandExecutor {
         }
 
         if (args.length < 5) {
-            sender.sendMessage(ChatColor.RED + "Usage: /trigger setaction <name|group> <enter|leave> <type> <value>");
-            sender.sendMessage(ChatColor.GRAY + "Triggers: enter, leave");
-            sender.sendMessage(ChatColor.GRAY + "Types: PLAYER_COMMAND, CONSOLE_COMMAND, MESSAGE, TELEPORT");
+            sender.sendMessage(ChatColor.RED + "Usage: /trigger setaction <name|group> <enter|leave|stay|tick> <type> [delay=<time>] [repeat=<time>] [cooldown=<time>] <value>");
+            sender.sendMessage(ChatColor.GRAY + "Triggers: enter, leave, stay, tick");
+            sender.sendMessage(ChatColor.GRAY + "Types: " + getActionTypeList());
+            sender.sendMessage(ChatColor.GRAY + "Times: ticks, or seconds/minutes with s/m, e.g. delay=3s repeat=10s cooldown=1m");
             return true;
         }
 
@@ -418,14 +548,12 @@ public class TriggerCommand implements CommandExecutor {
             return true;
         }
 
-        // Validate trigger type (enter or leave)
-        boolean isEnter;
-        if (triggerStr.equals("enter")) {
-            isEnter = true;
-        } else if (triggerStr.equals("leave")) {
-            isEnter = false;
-        } else {
-            sender.sendMessage(ChatColor.RED + "Invalid trigger! Use 'enter' or 'leave'.");
+        // Validate trigger type (enter, leave, stay or tick)
+        TriggerType trigger;
+        try {
+            trigger = TriggerType.valueOf(triggerStr.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            sender.sendMessage(ChatColor.RED + "Invalid trigger! Use 'enter', 'leave', 'stay' or 'tick'.");
             return true;
         }
 
@@ -433,46 +561,78 @@ public class TriggerCommand implements CommandExecutor {
         try {
             type = ActionType.valueOf(typeStr);
         } catch (IllegalArgumentException e) {
-            sender.sendMessage(ChatColor.RED + "Invalid action type! Valid types: PLAYER_COMMAND, CONSOLE_COMMAND, MESSAGE, TELEPORT");
+            sender.sendMessage(ChatColor.RED + "Invalid action type! Valid types: " + getActionTypeList());
+            return true;
+        }
+
+        // Leading delay=, repeat= and cooldown= options, times are stored in ticks
+        int delay = 0;
+        int repeat = 0;
+        int cooldown = 0;
+        int valueStart = 4;
+        for (; valueStart < args.length; valueStart++) {
+            String option = args[valueStart].toLowerCase();
+            if (option.startsWith("delay=")) {
+                delay = parseTicks(option.substring(6));
+                if (delay < 0) {
+                    sender.sendMessage(ChatColor.RED + "Invalid delay: " + args[valueStart]);
+                    return true;
+                }
+            } else if (option.startsWith("repeat=")) {
+                repeat = parseTicks(option.substring(7));
+                if (repeat < 0) {
+                    sender.sendMessage(ChatColor.RED + "Invalid repeat interval: " + args[valueStart]);
+                    return true;
+                }
+            } else if (option.startsWith("cooldown=")) {
+                cooldown = parseTicks(option.substring(9));
+                if (cooldown < 0) {
+                    sender.sendMessage(ChatColor.RED + "Invalid cooldown: " + args[valueStart]);
+                    return true;
+                }
+            } else {
+                break;
+            }
+        }
+        if (valueStart >= args.length) {
+            sender.sendMessage(ChatColor.RED + "Missing action value!");
             return true;
         }
 
         // Join the remaining args as the value
-        String value = String.join(" ", Arrays.copyOfRange(args, 4, args.length));
+        String value = String.join(" ", Arrays.copyOfRange(args, valueStart, args.length));
 
-        TriggerAction action = new TriggerAction(type, value);
+        TriggerAction action = new TriggerAction(type, value, delay, repeat, cooldown);
+        if (action.getError() != null) {
+            sender.sendMessage(ChatColor.RED + "Invalid " + type.name() + " value: " + action.getError());
+            return true;
+        }
         
         if (isGroup) {
             // Apply to all volumes in the group
             VolumeGroup group = plugin.getVolumeManager().getGroup(name);
             int successCount = 0;
             
-            for (String volumeName : group.getVolumeNames()) {
-                boolean success;
-                if (isEnter) {
-                    success = plugin.getVolumeManager().addEnterAction(volumeName, action);
-                } else {
-                    success = plugin.getVolumeManager().addLeaveAction(volumeName, action);
+            // Publish and save the whole group at once
+            plugin.getVolumeManager().beginBatch();
+            try {
+                for (String volumeName : group.getVolumeNames()) {
+                    boolean success = plugin.getVolumeManager().addAction(volumeName, trigger, action);
+                    if (success) successCount++;
                 }
-                if (success) successCount++;
+            } finally {
+                plugin.getVolumeManager().endBatch();
             }
             
-            String triggerName = isEnter ? "enter" : "leave";
-            sender.sendMessage(ChatColor.GREEN + "Added " + triggerName + " action to " + successCount + " volumes in group " + ChatColor.YELLOW + name);
+            sender.sendMessage(ChatColor.GREEN + "Added " + triggerStr + " action to " + successCount + " volumes in group " + ChatColor.YELLOW + name);
         } else {
             // Apply to single volume
-            boolean success;
-            if (isEnter) {
-                success = plugin.getVolumeManager().addEnterAction(name, action);
-            } else {
-                success = plugin.getVolumeManager().addLeaveAction(name, action);
-            }
+            boolean success = plugin.getVolumeManager().addAction(name, trigger, action);
 
             if (success) {
-                String triggerName = isEnter ? "enter" : "leave";
                 sender.sendMessage(getMessage("action-set")
                         .replace("%name%", name)
-                        .replace("%trigger%", triggerName));
+                        .replace("%trigger%", triggerStr));
             } else {
                 sender.sendMessage(ChatColor.RED + "Failed to set action!");
             }
@@ -481,6 +641,302 @@ public class TriggerCommand implements CommandExecutor {
         return true;
     }
 
+    /**
+     * Parses a time given in ticks, or in seconds or minutes with an s or m suffix.
+     * 
+     * @param time The time, e.g. "20", "3s" or "1.5m"
+     * @return The time in ticks, or -1 if it is invalid
+     */
+    private int parseTicks(String time) {
+        int multiplier = 1;
+        if (time.endsWith("s")) {
+            multiplier = 20;
+            time = time.substring(0, time.length() - 1);
+        } else if (time.endsWith("m")) {
+            multiplier = 20 * 60;
+            time = time.substring(0, time.length() - 1);
+        } else if (time.endsWith("t")) {
+            time = time.substring(0, time.length() - 1);
+        }
+        
+        try {
+            double ticks = Double.parseDouble(time) * multiplier;
+            if (ticks < 0 || ticks > Integer.MAX_VALUE || Double.isNaN(ticks)) {
+                return -1;
+            }
+            return (int) Math.round(ticks);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Formats the delay, repeat interval and cooldown of an action for display.
+     * 
+     * @param action The action
+     * @return The timing, or an empty string if the action runs right away every time
+     */
+    private String formatTiming(TriggerAction action) {
+        if (!action.isTimed() && action.getCooldown() == 0) {
+            return "";
+        }
+        StringBuilder timing = new StringBuilder(" (");
+        if (action.getDelay() > 0) {
+            timing.append("after ").append(action.getDelay()).append(" ticks");
+        }
+        if (action.getRepeat() > 0) {
+            if (action.getDelay() > 0) {
+                timing.append(", ");
+            }
+            timing.append("every ").append(action.getRepeat()).append(" ticks");
+        }
+        if (action.getCooldown() > 0) {
+            if (action.isTimed()) {
+                timing.append(", ");
+            }
+            timing.append("cooldown ").append(action.getCooldown()).append(" ticks");
+        }
+        return timing.append(")").toString();
+    }
+
+    /**
+     * Handles the /trigger settime <name> <stay|tick> <time> command.
+     * Sets how long players have to stay inside before the stay actions run,
+     * or the interval the tick actions run in.
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if successful
+     */
+    private boolean handleSetTime(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("triggervolumes.admin")) {
+            sender.sendMessage(getMessage("no-permission"));
+            return true;
+        }
+
+        if (args.length < 4) {
+            sender.sendMessage(ChatColor.RED + "Usage: /trigger settime <name> <stay|tick> <time>");
+            sender.sendMessage(ChatColor.GRAY + "Times: ticks, or seconds/minutes with s/m, e.g. 5s");
+            return true;
+        }
+
+        String name = args[1];
+        String triggerStr = args[2].toLowerCase();
+        TriggerType trigger;
+        if (triggerStr.equals("stay")) {
+            trigger = TriggerType.STAY;
+        } else if (triggerStr.equals("tick")) {
+            trigger = TriggerType.TICK;
+        } else {
+            sender.sendMessage(ChatColor.RED + "Invalid trigger! Use 'stay' or 'tick'.");
+            return true;
+        }
+
+        int ticks = parseTicks(args[3].toLowerCase());
+        if (ticks <= 0) {
+            sender.sendMessage(ChatColor.RED + "Invalid time: " + args[3]);
+            return true;
+        }
+
+        if (!plugin.getVolumeManager().setTriggerTime(name, trigger, ticks)) {
+            sender.sendMessage(getMessage("volume-not-found").replace("%name%", name));
+            return true;
+        }
+
+        String what = trigger == TriggerType.STAY ? "Stay time" : "Tick interval";
+        sender.sendMessage(ChatColor.GREEN + what + " of volume " + ChatColor.YELLOW + name + 
+                ChatColor.GREEN + " set to " + ChatColor.YELLOW + ticks + ChatColor.GREEN + " ticks");
+        return true;
+    }
+
+    /**
+     * Handles the /trigger setcooldown <name> <player|global> <time|default|off> command.
+     * Sets how long the enter and leave actions of a volume don't run again for the same
+     * player, or for any player after they ran for one.
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if successful
+     */
+    private boolean handleSetCooldown(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("triggervolumes.admin")) {
+            sender.sendMessage(getMessage("no-permission"));
+            return true;
+        }
+
+        if (args.length < 4) {
+            sender.sendMessage(ChatColor.RED + "Usage: /trigger setcooldown <name> <player|global> <time|default|off>");
+            sender.sendMessage(ChatColor.GRAY + "Times: ticks, or seconds/minutes with s/m, e.g. 30s");
+            return true;
+        }
+
+        String name = args[1];
+        String scope = args[2].toLowerCase();
+        if (!scope.equals("player") && !scope.equals("global")) {
+            sender.sendMessage(ChatColor.RED + "Invalid scope! Use 'player' or 'global'.");
+            return true;
+        }
+        boolean global = scope.equals("global");
+
+        String time = args[3].toLowerCase();
+        int ticks;
+        if (time.equals("off")) {
+            ticks = 0;
+        } else if (time.equals("default") && !global) {
+            ticks = TriggerVolume.DEFAULT_COOLDOWN;
+        } else {
+            ticks = parseTicks(time);
+            if (ticks < 0) {
+                sender.sendMessage(ChatColor.RED + "Invalid time: " + args[3]);
+                return true;
+            }
+        }
+
+        if (!plugin.getVolumeManager().setCooldown(name, global, ticks)) {
+            sender.sendMessage(getMessage("volume-not-found").replace("%name%", name));
+            return true;
+        }
+
+        String what = global ? "Global cooldown" : "Player cooldown";
+        String value = ticks == TriggerVolume.DEFAULT_COOLDOWN ? "the default" 
+                : ticks == 0 ? "off" : ticks + ChatColor.GREEN.toString() + " ticks";
+        sender.sendMessage(ChatColor.GREEN + what + " of volume " + ChatColor.YELLOW + name + 
+                ChatColor.GREEN + " set to " + ChatColor.YELLOW + value);
+        return true;
+    }
+
+    /**
+     * Handles the /trigger setoneshot <name> <on|off> command.
+     * One-shot volumes only run their enter actions the first time a player enters them, ever.
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if successful
+     */
+    private boolean handleSetOneShot(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("triggervolumes.admin")) {
+            sender.sendMessage(getMessage("no-permission"));
+            return true;
+        }
+
+        if (args.length < 3) {
+            sender.sendMessage(ChatColor.RED + "Usage: /trigger setoneshot <name> <on|off>");
+            return true;
+        }
+
+        String name = args[1];
+        String toggle = args[2].toLowerCase();
+        if (!toggle.equals("on") && !toggle.equals("off")) {
+            sender.sendMessage(ChatColor.RED + "Invalid value! Use 'on' or 'off'.");
+            return true;
+        }
+        boolean oneShot = toggle.equals("on");
+
+        if (!plugin.getVolumeManager().setOneShot(name, oneShot)) {
+            sender.sendMessage(getMessage("volume-not-found").replace("%name%", name));
+            return true;
+        }
+
+        if (oneShot) {
+            sender.sendMessage(ChatColor.GREEN + "Volume " + ChatColor.YELLOW + name + 
+                    ChatColor.GREEN + " now only triggers once per player");
+        } else {
+            sender.sendMessage(ChatColor.GREEN + "Volume " + ChatColor.YELLOW + name + 
+                    ChatColor.GREEN + " triggers every time again");
+        }
+        return true;
+    }
+
+    /**
+     * Handles the /trigger sethysteresis <name> <blocks> [exit delay] command.
+     * Players only count as having left a volume once they are that far past its bounds,
+     * and once they stayed outside for the exit delay, so boundary jitter does not fire
+     * the enter and leave actions over and over.
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if successful
+     */
+    private boolean handleSetHysteresis(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("triggervolumes.admin")) {
+            sender.sendMessage(getMessage("no-permission"));
+            return true;
+        }
+
+        if (args.length < 3) {
+            sender.sendMessage(ChatColor.RED + "Usage: /trigger sethysteresis <name> <blocks> [exit delay]");
+            sender.sendMessage(ChatColor.GRAY + "Times: ticks, or seconds/minutes with s/m, e.g. 1s");
+            return true;
+        }
+
+        String name = args[1];
+        double margin;
+        try {
+            margin = Double.parseDouble(args[2]);
+        } catch (NumberFormatException e) {
+            margin = -1;
+        }
+        if (margin < 0 || margin > 16 || Double.isNaN(margin)) {
+            sender.sendMessage(ChatColor.RED + "Invalid margin: " + args[2] + ChatColor.GRAY + " (0 to 16 blocks)");
+            return true;
+        }
+
+        int exitDelay = 0;
+        if (args.length > 3) {
+            exitDelay = parseTicks(args[3].toLowerCase());
+            if (exitDelay < 0) {
+                sender.sendMessage(ChatColor.RED + "Invalid time: " + args[3]);
+                return true;
+            }
+        }
+
+        if (!plugin.getVolumeManager().setHysteresis(name, margin, exitDelay)) {
+            sender.sendMessage(getMessage("volume-not-found").replace("%name%", name));
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.GREEN + "Hysteresis of volume " + ChatColor.YELLOW + name + 
+                ChatColor.GREEN + " set to " + ChatColor.YELLOW + margin + ChatColor.GREEN + " blocks and " + 
+                ChatColor.YELLOW + exitDelay + ChatColor.GREEN + " ticks exit delay");
+        return true;
+    }
+
+    /**
+     * Handles the /trigger setpermission <name> [permission] command.
+     * Sets or removes the permission node a player needs to trigger a volume.
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if successful
+     */
+    private boolean handleSetPermission(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("triggervolumes.admin")) {
+            sender.sendMessage(getMessage("no-permission"));
+            return true;
+        }
+
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Usage: /trigger setpermission <name> [permission]");
+            return true;
+        }
+
+        String name = args[1];
+        String permission = args.length >= 3 ? args[2] : null;
+
+        if (!plugin.getVolumeManager().setVolumePermission(name, permission)) {
+            sender.sendMessage(getMessage("volume-not-found").replace("%name%", name));
+            return true;
+        }
+
+        if (permission != null) {
+            sender.sendMessage(ChatColor.GREEN + "Volume " + ChatColor.YELLOW + name + 
+                    ChatColor.GREEN + " now requires " + ChatColor.YELLOW + permission);
+        } else {
+            sender.sendMessage(ChatColor.GREEN + "Removed the permission of volume " + ChatColor.YELLOW + name);
+        }
+        return true;
+    }
+
     /**
      * Handles the /trigger clearactions <name> [enter|leave|all] command.
      * Clears actions from a trigger volume or group.
@@ -496,7 +952,7 @@ public class TriggerCommand implements CommandExecutor {
         }
 
         if (args.length < 2) {
-            sender.sendMessage(ChatColor.RED + "Usage: /trigger clearactions <name|group> [enter|leave|all]");
+            sender.sendMessage(ChatColor.RED + "Usage: /trigger clearactions <name|group> [enter|leave|stay|tick|all]");
             return true;
         }
 
@@ -518,23 +974,35 @@ public class TriggerCommand implements CommandExecutor {
             VolumeGroup group = plugin.getVolumeManager().getGroup(name);
             int successCount = 0;
             
-            for (String volumeName : group.getVolumeNames()) {
-                boolean success = false;
-                
-                switch (triggerType) {
-                    case "enter":
-                        success = plugin.getVolumeManager().clearEnterActions(volumeName);
-                        break;
-                    case "leave":
-                        success = plugin.getVolumeManager().clearLeaveActions(volumeName);
-                        break;
-                    case "all":
-                    default:
-                        success = plugin.getVolumeManager().clearAllActions(volumeName);
-                        break;
+            // Publish and save the whole group at once
+            plugin.getVolumeManager().beginBatch();
+            try {
+                for (String volumeName : group.getVolumeNames()) {
+                    boolean success = false;
+                    
+                    switch (triggerType) {
+                        case "enter":
+                            success = plugin.getVolumeManager().clearEnterActions(volumeName);
+                            break;
+                        case "leave":
+                            success = plugin.getVolumeManager().clearLeaveActions(volumeName);
+                            break;
+                        case "stay":
+                            success = plugin.getVolumeManager().clearActions(volumeName, TriggerType.STAY);
+                            break;
+                        case "tick":
+                            success = plugin.getVolumeManager().clearActions(volumeName, TriggerType.TICK);
+                            break;
+                        case "all":
+                        default:
+                            success = plugin.getVolumeManager().clearAllActions(volumeName);
+                            break;
+                    }
+                    
+                    if (success) successCount++;
                 }
-                
-                if (success) successCount++;
+            } finally {
+                plugin.getVolumeManager().endBatch();
             }
             
             sender.sendMessage(ChatColor.GREEN + "Cleared " + triggerType + " actions from " + successCount + " volumes in group " + ChatColor.YELLOW + name);
@@ -552,6 +1020,14 @@ public class TriggerCommand implements CommandExecutor {
                     success = plugin.getVolumeManager().clearLeaveActions(name);
                     clearedType = "leave";
                     break;
+                case "stay":
+                    success = plugin.getVolumeManager().clearActions(name, TriggerType.STAY);
+                    clearedType = "stay";
+                    break;
+                case "tick":
+                    success = plugin.getVolumeManager().clearActions(name, TriggerType.TICK);
+                    clearedType = "tick";
+                    break;
                 case "all":
                 default:
                     success = plugin.getVolumeManager().clearAllActions(name);
@@ -987,6 +1463,29 @@ public class TriggerCommand implements CommandExecutor {
         return true;
     }
 
+    /**
+     * Handles the /trigger migrate command.
+     * Rewrites console command actions into native action types where possible.
+     * 
+     * @param sender The command sender
+     * @return True if successful
+     */
+    private boolean handleMigrate(CommandSender sender) {
+        if (!sender.hasPermission("triggervolumes.admin")) {
+            sender.sendMessage(getMessage("no-permission"));
+            return true;
+        }
+
+        int migrated = plugin.getVolumeManager().migrateConsoleCommands();
+        if (migrated > 0) {
+            sender.sendMessage(ChatColor.GREEN + "Migrated " + ChatColor.YELLOW + migrated + 
+                    ChatColor.GREEN + " console commands to native actions.");
+        } else {
+            sender.sendMessage(ChatColor.GRAY + "No console commands could be migrated.");
+        }
+        return true;
+    }
+
     /**
      * Handles the /trigger reload command.
      * Reloads the plugin configuration and language files.
@@ -1003,6 +1502,7 @@ public class TriggerCommand implements CommandExecutor {
         try {
             // Reload config
             plugin.reloadConfig();
+            plugin.reloadSettings();
             
             // Reload language files
             plugin.getLanguageManager().reload();
@@ -1010,6 +1510,13 @@ public class TriggerCommand implements CommandExecutor {
             // Reload volumes
             plugin.getVolumeManager().loadVolumes();
             
+            // Restart detection with the new settings
+            plugin.getOccupancyScanner().reload();
+            plugin.getAsyncDetector().reload();
+            plugin.getPermissionCache().reload();
+            plugin.getTransitionDispatcher().reload();
+            plugin.getActionScheduler().reload();
+            
             sender.sendMessage(getMessage("plugin-reloaded"));
         } catch (Exception e) {
             sender.sendMessage(ChatColor.RED + "Error reloading plugin: " + e.getMessage());
@@ -1020,6 +1527,93 @@ public class TriggerCommand implements CommandExecutor {
         return true;
     }
 
+    /**
+     * Handles the /trigger stats [reset] command.
+     * Shows statistics about the spatial index and the detection cost.
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if successful
+     */
+    private boolean handleStats(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("triggervolumes.admin")) {
+            sender.sendMessage(getMessage("no-permission"));
+            return true;
+        }
+
+        IndexStats stats = plugin.getVolumeManager().getIndexStats();
+        sender.sendMessage(ChatColor.GOLD + "=== TriggerVolumes Stats ===");
+        sender.sendMessage(ChatColor.YELLOW + "Volumes: " + ChatColor.WHITE + 
+                plugin.getVolumeManager().getAllVolumes().size() + 
+                ChatColor.YELLOW + ", Worlds: " + ChatColor.WHITE + plugin.getVolumeManager().getIndexedWorldCount() + 
+                ChatColor.YELLOW + ", Index: " + ChatColor.WHITE + plugin.getVolumeManager().getIndexType());
+        sender.sendMessage(ChatColor.YELLOW + "Grid: " + ChatColor.WHITE + 
+                stats.getGridVolumes() + " volumes in " + stats.getSections() + " sections");
+        sender.sendMessage(ChatColor.YELLOW + "Tree: " + ChatColor.WHITE + 
+                stats.getTreeVolumes() + " volumes, " + stats.getTreeNodes() + " nodes, height " + stats.getTreeHeight());
+        sender.sendMessage(ChatColor.YELLOW + "Index entries: " + ChatColor.WHITE + stats.getEntries());
+        sender.sendMessage(ChatColor.YELLOW + "Index memory: " + ChatColor.WHITE + 
+                formatBytes(stats.getMemoryBytes()) + ChatColor.GRAY + 
+                " (boxed map for the grid: ~" + formatBytes(stats.getBoxedMemoryBytes()) + ")");
+        if (stats.getSections() > 0) {
+            sender.sendMessage(ChatColor.YELLOW + "Saved per indexed section: " + ChatColor.WHITE + 
+                    ((stats.getBoxedMemoryBytes() - stats.getGridMemoryBytes()) / stats.getSections()) + " bytes");
+        }
+        
+        DetectionMetrics metrics = plugin.getDetectionMetrics();
+        OccupancyScanner scanner = plugin.getOccupancyScanner();
+        AsyncDetector asyncDetector = plugin.getAsyncDetector();
+        String mode = "event";
+        if (scanner.isScanning()) {
+            mode = "scan, " + scanner.getWorkerCount() + " worker(s)";
+        } else if (asyncDetector.isRunning()) {
+            mode = "async, " + asyncDetector.getPendingCount() + " pending";
+        }
+        sender.sendMessage(ChatColor.YELLOW + "Detection: " + ChatColor.WHITE + mode + 
+                ChatColor.GRAY + " (last " + metrics.getElapsedTicks() + " ticks)");
+        sender.sendMessage(ChatColor.YELLOW + "Detection time: " + ChatColor.WHITE + 
+                String.format("%.1f us/tick, %.1f checks/tick, max %.1f us", 
+                        metrics.getMicrosPerTick(), metrics.getChecksPerTick(), metrics.getMaxMicros()));
+        TransitionDispatcher dispatcher = plugin.getTransitionDispatcher();
+        sender.sendMessage(ChatColor.YELLOW + "Transition queue: " + ChatColor.WHITE + 
+                String.format("%d queued, %d deferred, max %d", dispatcher.getDeferredCount(), 
+                        metrics.getDeferredTransitions(), metrics.getMaxDeferredQueue()) + 
+                ChatColor.GRAY + " (budget " + (dispatcher.getBudgetMicros() > 0 ? dispatcher.getBudgetMicros() + " us/tick" : "unlimited") + ")");
+        sender.sendMessage(ChatColor.YELLOW + "Suppressed by hysteresis: " + ChatColor.WHITE + 
+                metrics.getSuppressedTransitions() + " leaves");
+        ActionScheduler scheduler = plugin.getActionScheduler();
+        sender.sendMessage(ChatColor.YELLOW + "Action queue: " + ChatColor.WHITE + 
+                String.format("%d queued, max %d, %d run, %d deferred, %d rate limited, %d dropped", 
+                        scheduler.getQueuedCount(), scheduler.getMaxQueueLength(), scheduler.getExecutedCount(), 
+                        scheduler.getDeferredCount(), scheduler.getRateLimitedCount(), scheduler.getDroppedCount()) + 
+                ChatColor.GRAY + " (budget " + (scheduler.getBudgetMicros() > 0 ? scheduler.getBudgetMicros() + " us/tick" : "unlimited") + ")");
+        sender.sendMessage(ChatColor.YELLOW + "Timed actions: " + ChatColor.WHITE + 
+                plugin.getActionTimer().getPendingCount() + " pending");
+        if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            scheduler.resetMetrics();
+            sender.sendMessage(ChatColor.GRAY + "Detection timings reset.");
+        }
+
+        return true;
+    }
+
+    /**
+     * Formats a byte count for display.
+     * 
+     * @param bytes The byte count
+     * @return The formatted size
+     */
+    private String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KiB", bytes / 1024.0);
+        }
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+
     /**
      * Sends the help message to a command sender.
      * 
@@ -1030,22 +1624,41 @@ public class TriggerCommand implements CommandExecutor {
         sender.sendMessage(ChatColor.YELLOW + "/trigger tool" + ChatColor.GRAY + " - Get the selection tool");
         sender.sendMessage(ChatColor.YELLOW + "/trigger create <name>" + ChatColor.GRAY + " - Create volume from selection");
         sender.sendMessage(ChatColor.YELLOW + "/trigger define <name> <x1> <y1> <z1> <x2> <y2> <z2>" + ChatColor.GRAY + " - Create with coordinates");
+        sender.sendMessage(ChatColor.YELLOW + "/trigger redefine <name>" + ChatColor.GRAY + " - Move volume to selection");
         sender.sendMessage(ChatColor.YELLOW + "/trigger delete <name>" + ChatColor.GRAY + " - Delete a volume");
         sender.sendMessage(ChatColor.YELLOW + "/trigger clone [sourceVolume] [targetName]" + ChatColor.GRAY + " - Clone volume or create from selection");
         sender.sendMessage(ChatColor.YELLOW + "/trigger copypaste <copyVolume> <pasteVolume>" + ChatColor.GRAY + " - Copy actions between volumes");
         sender.sendMessage(ChatColor.YELLOW + "/trigger list" + ChatColor.GRAY + " - List all volumes");
         sender.sendMessage(ChatColor.YELLOW + "/trigger info <name>" + ChatColor.GRAY + " - Show volume details");
-        sender.sendMessage(ChatColor.YELLOW + "/trigger setaction <name|group> <enter|leave> <type> <value>" + ChatColor.GRAY + " - Add action");
-        sender.sendMessage(ChatColor.YELLOW + "/trigger clearactions <name|group> [enter|leave|all]" + ChatColor.GRAY + " - Clear actions");
+        sender.sendMessage(ChatColor.YELLOW + "/trigger setaction <name|group> <trigger> <type> [delay=] [repeat=] [cooldown=] <value>" + ChatColor.GRAY + " - Add action");
+        sender.sendMessage(ChatColor.YELLOW + "/trigger clearactions <name|group> [trigger|all]" + ChatColor.GRAY + " - Clear actions");
+        sender.sendMessage(ChatColor.YELLOW + "/trigger settime <name> <stay|tick> <time>" + ChatColor.GRAY + " - Set stay time or tick interval");
+        sender.sendMessage(ChatColor.YELLOW + "/trigger setcooldown <name> <player|global> <time>" + ChatColor.GRAY + " - Set volume cooldown");
+        sender.sendMessage(ChatColor.YELLOW + "/trigger setoneshot <name> <on|off>" + ChatColor.GRAY + " - Trigger once per player");
+        sender.sendMessage(ChatColor.YELLOW + "/trigger sethysteresis <name> <blocks> [exit delay]" + ChatColor.GRAY + " - Ignore jitter at the boundary");
+        sender.sendMessage(ChatColor.YELLOW + "/trigger setpermission <name> [permission]" + ChatColor.GRAY + " - Require a permission to trigger");
         sender.sendMessage(ChatColor.YELLOW + "/trigger creategroup <groupName> <vol1> <vol2> ..." + ChatColor.GRAY + " - Create volume group");
         sender.sendMessage(ChatColor.YELLOW + "/trigger deletegroup <groupName>" + ChatColor.GRAY + " - Delete volume group");
         sender.sendMessage(ChatColor.YELLOW + "/trigger groupadd <groupName> <volumeName>" + ChatColor.GRAY + " - Add volume to group");
         sender.sendMessage(ChatColor.YELLOW + "/trigger groupremove <groupName> <volumeName>" + ChatColor.GRAY + " - Remove volume from group");
         sender.sendMessage(ChatColor.YELLOW + "/trigger visualize <name>" + ChatColor.GRAY + " - Show volume particles");
         sender.sendMessage(ChatColor.YELLOW + "/trigger hide <name>" + ChatColor.GRAY + " - Hide volume particles");
+        sender.sendMessage(ChatColor.YELLOW + "/trigger stats [reset]" + ChatColor.GRAY + " - Show index and detection statistics");
+        sender.sendMessage(ChatColor.YELLOW + "/trigger migrate" + ChatColor.GRAY + " - Turn console commands into native actions");
         sender.sendMessage(ChatColor.YELLOW + "/trigger reload" + ChatColor.GRAY + " - Reload plugin configuration");
-        sender.sendMessage(ChatColor.GRAY + "Triggers: enter (on entering), leave (on leaving)");
-        sender.sendMessage(ChatColor.GRAY + "Action types: PLAYER_COMMAND, CONSOLE_COMMAND, MESSAGE, TELEPORT");
+        sender.sendMessage(ChatColor.GRAY + "Triggers: enter (on entering), leave (on leaving), stay (once after staying inside), tick (repeatedly while inside)");
+        sender.sendMessage(ChatColor.GRAY + "Action types: " + getActionTypeList());
+    }
+
+    /**
+     * Gets a comma separated list of all action types.
+     * 
+     * @return The action type names
+     */
+    private String getActionTypeList() {
+        return Arrays.stream(ActionType.values())
+                .map(ActionType::name)
+                .collect(Collectors.joining(", "));
     }
 
     /**
@@ -22,15 +22,21 @@ public class TriggerTabCompleter implements TabCompleter {
     private final TriggerVolumesPlugin plugin;
 
     private static final List<String> SUBCOMMANDS = Arrays.asList(
-            "tool", "create", "define", "delete", "list", "info",
-            "setaction", "clearactions", "visualize", "show", "hide",
+            "tool", "create", "define", "redefine", "delete", "list", "info",
+            "setaction", "clearactions", "setpermission", "settime", "setcooldown", "setoneshot", "sethysteresis", "visualize", "show", "hide",
             "clone", "copypaste", "creategroup", "deletegroup", 
-            "groupadd", "groupremove", "reload", "help"
+            "groupadd", "groupremove", "stats", "migrate", "reload", "help"
     );
 
-    private static final List<String> TRIGGER_TYPES = Arrays.asList("enter", "leave");
+    private static final List<String> TRIGGER_TYPES = Arrays.asList("enter", "leave", "stay", "tick");
 
-    private static final List<String> CLEAR_TYPES = Arrays.asList("enter", "leave", "all");
+    private static final List<String> CLEAR_TYPES = Arrays.asList("enter", "leave", "stay", "tick", "all");
+
+    private static final List<String> TIMED_TRIGGER_TYPES = Arrays.asList("stay", "tick");
+
+    private static final List<String> COOLDOWN_SCOPES = Arrays.asList("player", "global");
+
+    private static final List<String> TOGGLES = Arrays.asList("on", "off");
 
     private static final List<String> ACTION_TYPES = Arrays.stream(ActionType.values())
             .map(ActionType::name)
@@ -79,7 +85,13 @@ public class TriggerTabCompleter implements TabCompleter {
                     break;
                 case "delete":
                 case "remove":
+                case "redefine":
                 case "info":
+                case "setpermission":
+                case "settime":
+                case "setcooldown":
+                case "setoneshot":
+                case "sethysteresis":
                 case "visualize":
                 case "show":
                 case "hide":
@@ -130,12 +142,17 @@ public class TriggerTabCompleter implements TabCompleter {
                 case "define":
                     completions.add("<name>");
                     break;
+                case "stats":
+                    if ("reset".startsWith(partial)) {
+                        completions.add("reset");
+                    }
+                    break;
             }
         } else if (args.length == 3) {
             String subCommand = args[0].toLowerCase();
 
             if (subCommand.equals("setaction")) {
-                // Complete with trigger types (enter/leave)
+                // Complete with trigger types (enter/leave/stay/tick)
                 String partial = args[2].toLowerCase();
                 completions = TRIGGER_TYPES.stream()
                         .filter(s -> s.startsWith(partial))
@@ -146,6 +163,31 @@ public class TriggerTabCompleter implements TabCompleter {
                 completions = CLEAR_TYPES.stream()
                         .filter(s -> s.startsWith(partial))
                         .collect(Collectors.toList());
+            } else if (subCommand.equals("settime")) {
+                // Complete with the timed trigger types (stay/tick)
+                String partial = args[2].toLowerCase();
+                completions = TIMED_TRIGGER_TYPES.stream()
+                        .filter(s -> s.startsWith(partial))
+                        .collect(Collectors.toList());
+            } else if (subCommand.equals("setcooldown")) {
+                // Complete with the cooldown scopes (player/global)
+                String partial = args[2].toLowerCase();
+                completions = COOLDOWN_SCOPES.stream()
+                        .filter(s -> s.startsWith(partial))
+                        .collect(Collectors.toList());
+            } else if (subCommand.equals("setoneshot")) {
+                // Complete with on/off
+                String partial = args[2].toLowerCase();
+                completions = TOGGLES.stream()
+                        .filter(s -> s.startsWith(partial))
+                        .collect(Collectors.toList());
+            } else if (subCommand.equals("sethysteresis")) {
+                // Suggest a margin in blocks
+                completions.add("0.5");
+                completions.add("0");
+            } else if (subCommand.equals("setpermission")) {
+                // Suggest a permission node
+                completions.add("<permission>");
             } else if (subCommand.equals("clone")) {
                 // Complete with custom target name (optional)
                 completions.add("<targetName>");
@@ -183,6 +225,24 @@ public class TriggerTabCompleter implements TabCompleter {
                 // Suggest value based on action type
                 String actionType = args[3].toUpperCase();
                 completions = getActionValueSuggestions(actionType);
+                completions.add("delay=3s");
+                completions.add("repeat=10s");
+                completions.add("cooldown=30s");
+            } else if (subCommand.equals("settime") && args.length == 4) {
+                // Suggest a time
+                completions.add("5s");
+                completions.add("20");
+            } else if (subCommand.equals("setcooldown") && args.length == 4) {
+                // Suggest a cooldown
+                completions.add("30s");
+                completions.add("off");
+                if (args[2].equalsIgnoreCase("player")) {
+                    completions.add("default");
+                }
+            } else if (subCommand.equals("sethysteresis") && args.length == 4) {
+                // Suggest an exit delay
+                completions.add("10");
+                completions.add("1s");
             } else if (subCommand.equals("creategroup") && args.length >= 4) {
                 // Complete with additional volume names
                 String partial = args[args.length - 1].toLowerCase();
@@ -240,6 +300,29 @@ public class TriggerTabCompleter implements TabCompleter {
                 suggestions.add("0 64 0");
                 suggestions.add("100 70 100 0 0");
                 break;
+            case "POTION_EFFECT":
+                suggestions.add("speed 30 1");
+                suggestions.add("night_vision infinite 0 true");
+                break;
+            case "SOUND":
+                suggestions.add("entity.experience_orb.pickup");
+                suggestions.add("block.note_block.bell 1 2 master");
+                break;
+            case "TITLE":
+                suggestions.add("&6Welcome|&7to the arena");
+                suggestions.add("&cDanger!||5 40 10");
+                break;
+            case "ACTIONBAR":
+                suggestions.add("&aYou entered %player%'s area");
+                break;
+            case "GIVE_ITEM":
+                suggestions.add("diamond 1");
+                suggestions.add("bread 16");
+                break;
+            case "VELOCITY":
+                suggestions.add("0 1.5 0");
+                suggestions.add("0.5 0.8 0");
+                break;
         }
 
         return suggestions;
@@ -0,0 +1,48 @@
+package de.zfzfg.triggervolumes.listeners;
+
+import de.zfzfg.triggervolumes.utils.CommandResolver;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.event.server.ServerLoadEvent;
+
+/**
+ * Marks the commands resolved by command actions as stale whenever plugins
+ * register or unregister their commands.
+ * 
+ * @author zfzfg
+ */
+public class CommandMapListener implements Listener {
+
+    /**
+     * Handles plugins being enabled.
+     * 
+     * @param event The PluginEnableEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        CommandResolver.invalidate();
+    }
+
+    /**
+     * Handles plugins being disabled.
+     * 
+     * @param event The PluginDisableEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        CommandResolver.invalidate();
+    }
+
+    /**
+     * Handles the server finishing startup or a reload, when commands are synced.
+     * 
+     * @param event The ServerLoadEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServerLoad(ServerLoadEvent event) {
+        CommandResolver.invalidate();
+    }
+}
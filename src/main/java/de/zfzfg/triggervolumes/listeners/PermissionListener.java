@@ -0,0 +1,47 @@
+package de.zfzfg.triggervolumes.listeners;
+
+import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+/**
+ * Keeps the permission cache up to date when players join or change worlds.
+ * 
+ * @author zfzfg
+ */
+public class PermissionListener implements Listener {
+
+    private final TriggerVolumesPlugin plugin;
+
+    /**
+     * Creates a new PermissionListener.
+     * 
+     * @param plugin The plugin instance
+     */
+    public PermissionListener(TriggerVolumesPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Evaluates the permissions of a joining player.
+     * 
+     * @param event The PlayerJoinEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getPermissionCache().load(event.getPlayer());
+    }
+
+    /**
+     * Drops the cached permissions of a player changing worlds, permissions may be per world.
+     * 
+     * @param event The PlayerChangedWorldEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        plugin.getPermissionCache().invalidate(event.getPlayer());
+    }
+}
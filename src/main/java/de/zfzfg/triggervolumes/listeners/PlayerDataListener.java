@@ -0,0 +1,74 @@
+package de.zfzfg.triggervolumes.listeners;
+
+import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Loads the persisted cooldowns and one-shot volumes of players when they log in
+ * and saves them when they quit.
+ * 
+ * @author zfzfg
+ */
+public class PlayerDataListener implements Listener {
+
+    private final TriggerVolumesPlugin plugin;
+
+    /**
+     * Creates a new PlayerDataListener.
+     * 
+     * @param plugin The plugin instance
+     */
+    public PlayerDataListener(TriggerVolumesPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Reads the data of a player who passed the pre-login checks, on the login thread.
+     * 
+     * @param event The AsyncPlayerPreLoginEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            plugin.getPlayerDataStore().preload(event.getUniqueId());
+        }
+    }
+
+    /**
+     * Drops the preloaded data of a player who was denied after all, e.g. by the whitelist.
+     * 
+     * @param event The PlayerLoginEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            plugin.getPlayerDataStore().discardPreload(event.getPlayer().getUniqueId());
+        }
+    }
+
+    /**
+     * Applies the data of a joining player before they can trigger any volume.
+     * 
+     * @param event The PlayerJoinEvent
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getPlayerDataStore().load(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Saves the data of a quitting player, before the PlayerMoveListener drops their state.
+     * 
+     * @param event The PlayerQuitEvent
+     */
+    @EventHandler(priority = EventPriority.LOW)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getPlayerDataStore().save(plugin.getPlayerStateManager().getState(event.getPlayer().getUniqueId()));
+    }
+}
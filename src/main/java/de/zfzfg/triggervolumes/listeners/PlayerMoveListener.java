@@ -1,34 +1,47 @@
 package de.zfzfg.triggervolumes.listeners;
 
 import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
-import de.zfzfg.triggervolumes.managers.CooldownManager;
-import de.zfzfg.triggervolumes.models.TriggerAction;
+import de.zfzfg.triggervolumes.managers.AsyncDetector;
+import de.zfzfg.triggervolumes.managers.TransitionDetector;
+import de.zfzfg.triggervolumes.managers.TransitionDispatcher;
+import de.zfzfg.triggervolumes.managers.TriggerVolumeManager;
+import de.zfzfg.triggervolumes.models.PlayerState;
 import de.zfzfg.triggervolumes.models.TriggerVolume;
 import org.bukkit.Location;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.*;
 
 /**
  * Handles player movement and triggers actions when players enter or leave trigger volumes.
  * Implements debouncing to prevent repeated triggering while inside a volume.
+ * In scan mode movement is checked by the OccupancyScanner instead,
+ * in async mode the checks are handed to the AsyncDetector.
  * 
  * @author zfzfg
  */
 public class PlayerMoveListener implements Listener {
 
     private final TriggerVolumesPlugin plugin;
-    private final CooldownManager enterCooldownManager;
-    private final CooldownManager leaveCooldownManager;
     
-    // Track which volumes each player is currently in
-    private final Map<UUID, Set<String>> playerVolumes;
+    // Reused for every check, all event-driven checks run on the main thread
+    private final TransitionDetector detector;
+    
+    // Players to check again after a teleport, deduplicated and checked in batches once per tick
+    private final Set<UUID> pendingRechecks;
+    private final List<UUID> recheckBatch;
+    private BukkitTask recheckTask;
 
     /**
      * Creates a new PlayerMoveListener.
@@ -37,9 +50,9 @@ public class PlayerMoveListener implements Listener {
      */
     public PlayerMoveListener(TriggerVolumesPlugin plugin) {
         this.plugin = plugin;
-        this.enterCooldownManager = new CooldownManager(plugin);
-        this.leaveCooldownManager = new CooldownManager(plugin);
-        this.playerVolumes = new HashMap<>();
+        this.detector = new TransitionDetector(plugin.getDetectionMetrics());
+        this.pendingRechecks = new LinkedHashSet<>();
+        this.recheckBatch = new ArrayList<>();
     }
 
     /**
@@ -49,6 +62,10 @@ public class PlayerMoveListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerMove(PlayerMoveEvent event) {
+        if (plugin.getOccupancyScanner().isScanning()) {
+            return;
+        }
+        
         // Only check if player actually moved to a new block
         Location from = event.getFrom();
         Location to = event.getTo();
@@ -65,135 +82,182 @@ public class PlayerMoveListener implements Listener {
         }
         
         Player player = event.getPlayer();
-        checkVolumeTransitions(player, to);
+        checkVolumeTransitions(player, from, to);
     }
 
     /**
-     * Handles player teleportation and checks for trigger volume entries and exits.
+     * Handles vehicle movement and checks trigger volumes for all players riding the vehicle.
      * 
-     * @param event The PlayerTeleportEvent
+     * @param event The VehicleMoveEvent
      */
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onPlayerTeleport(PlayerTeleportEvent event) {
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onVehicleMove(VehicleMoveEvent event) {
+        if (plugin.getOccupancyScanner().isScanning()) {
+            return;
+        }
+        
+        Location from = event.getFrom();
         Location to = event.getTo();
-        if (to == null) {
+        
+        // Optimization: only check when moving to a new block
+        if (from.getBlockX() == to.getBlockX() && 
+            from.getBlockY() == to.getBlockY() && 
+            from.getBlockZ() == to.getBlockZ()) {
             return;
         }
         
-        Player player = event.getPlayer();
-        // Delay the check slightly to ensure teleport has completed
-        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-            if (player.isOnline()) {
-                checkVolumeTransitions(player, player.getLocation());
+        List<Entity> passengers = event.getVehicle().getPassengers();
+        for (int i = 0; i < passengers.size(); i++) {
+            Entity passenger = passengers.get(i);
+            if (passenger instanceof Player) {
+                checkVolumeTransitions((Player) passenger, from, to);
             }
-        }, 1L);
+        }
     }
 
     /**
-     * Checks if a player has entered or left any volumes and triggers appropriate actions.
+     * Handles player teleportation and checks for trigger volume entries and exits.
      * 
-     * @param player The player to check
-     * @param location The player's current location
+     * @param event The PlayerTeleportEvent
      */
-    private void checkVolumeTransitions(Player player, Location location) {
-        // Get volumes at the new location
-        List<TriggerVolume> volumesAtLocation = plugin.getVolumeManager().getVolumesAtLocation(location);
-        
-        // Get the set of volumes the player was in (make a copy to avoid concurrent modification)
-        UUID playerId = player.getUniqueId();
-        Set<String> previousVolumes = playerVolumes.computeIfAbsent(playerId, k -> new HashSet<>());
-        Set<String> previousVolumesCopy = new HashSet<>(previousVolumes);
-        Set<String> currentVolumeNames = new HashSet<>();
-        
-        // Build current volume names set
-        for (TriggerVolume volume : volumesAtLocation) {
-            currentVolumeNames.add(volume.getName().toLowerCase());
-        }
-        
-        // Check for exits first (volumes player was in but is no longer in)
-        for (String previousVolumeName : previousVolumesCopy) {
-            if (!currentVolumeNames.contains(previousVolumeName)) {
-                // Player just left this volume
-                TriggerVolume volume = plugin.getVolumeManager().getVolume(previousVolumeName);
-                if (volume != null) {
-                    onPlayerLeaveVolume(player, volume);
-                }
-            }
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        Location to = event.getTo();
+        if (to == null) {
+            return;
         }
         
-        // Then check for new entries
-        for (TriggerVolume volume : volumesAtLocation) {
-            String volumeName = volume.getName().toLowerCase();
-            
-            // Check if this is a new entry
-            if (!previousVolumesCopy.contains(volumeName)) {
-                // Player just entered this volume
-                onPlayerEnterVolume(player, volume);
-            }
+        Player player = event.getPlayer();
+        if (plugin.getOccupancyScanner().isScanning()) {
+            // The next scan must not sweep the path of the teleport
+            plugin.getPlayerStateManager().getState(player.getUniqueId()).clearLastPosition();
+            return;
+        }
+        if (plugin.getAsyncDetector().isRunning()) {
+            // The detection thread queues the check behind all earlier moves, no need to wait for the teleport
+            checkVolumeTransitions(player, null, to);
+            return;
         }
         
-        // Update the tracked volumes by replacing the set
-        playerVolumes.put(playerId, currentVolumeNames);
+        // Check on the next tick to ensure teleport has completed
+        pendingRechecks.add(player.getUniqueId());
+        if (recheckTask == null) {
+            recheckTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    processRechecks();
+                }
+            }.runTaskTimer(plugin, 1L, 1L);
+        }
     }
 
     /**
-     * Called when a player enters a trigger volume.
-     * 
-     * @param player The player
-     * @param volume The volume the player entered
+     * Checks the players queued after a teleport, at most detection.teleport-recheck-limit per tick.
+     * Players over the limit stay queued for the next tick, the task stops once the queue is empty.
      */
-    private void onPlayerEnterVolume(Player player, TriggerVolume volume) {
-        // Check if player has permission to trigger
-        if (!player.hasPermission("triggervolumes.use")) {
-            return;
-        }
+    private void processRechecks() {
+        int limit = plugin.getSettings().getTeleportRecheckLimit();
         
-        // Check cooldown for enter actions
-        if (!enterCooldownManager.canTrigger(player, volume)) {
-            return;
+        // Take the batch out first, actions may teleport and queue players again
+        Iterator<UUID> iterator = pendingRechecks.iterator();
+        while (iterator.hasNext() && recheckBatch.size() < limit) {
+            recheckBatch.add(iterator.next());
+            iterator.remove();
         }
         
-        // Execute all enter actions for this volume
-        List<TriggerAction> actions = volume.getEnterActions();
-        for (TriggerAction action : actions) {
-            action.execute(player);
+        for (int i = 0; i < recheckBatch.size(); i++) {
+            Player player = plugin.getServer().getPlayer(recheckBatch.get(i));
+            if (player != null && player.isOnline()) {
+                checkVolumeTransitions(player, null, player.getLocation());
+            }
         }
+        recheckBatch.clear();
         
-        // Set cooldown
-        if (!actions.isEmpty()) {
-            enterCooldownManager.setCooldown(player, volume);
+        if (pendingRechecks.isEmpty()) {
+            recheckTask.cancel();
+            recheckTask = null;
         }
     }
 
     /**
-     * Called when a player leaves a trigger volume.
+     * Checks if a player has entered or left any volumes and triggers appropriate actions.
+     * If the previous position is known, the whole path is swept, so volumes the player
+     * passed through within a single move still fire enter and leave.
      * 
-     * @param player The player
-     * @param volume The volume the player left
+     * @param player The player to check
+     * @param from The previous position, or null to only look at the current one
+     * @param location The player's current location
      */
-    private void onPlayerLeaveVolume(Player player, TriggerVolume volume) {
-        // Check if player has permission to trigger
-        if (!player.hasPermission("triggervolumes.use")) {
+    private void checkVolumeTransitions(Player player, Location from, Location location) {
+        if (location.getWorld() == null) {
             return;
         }
         
-        // Check cooldown for leave actions
-        if (!leaveCooldownManager.canTrigger(player, volume)) {
+        long start = System.nanoTime();
+        TriggerVolumeManager volumeManager = plugin.getVolumeManager();
+        PlayerState state = plugin.getPlayerStateManager().getState(player.getUniqueId());
+        int worldId = volumeManager.getWorldId(location.getWorld().getName());
+        
+        boolean sweep = from != null && from.getWorld() == location.getWorld();
+        
+        // In async mode only hand over the positions
+        AsyncDetector asyncDetector = plugin.getAsyncDetector();
+        if (asyncDetector.isRunning()) {
+            if (sweep) {
+                asyncDetector.submitSwept(state, worldId, from.getX(), from.getY(), from.getZ(),
+                        location.getX(), location.getY(), location.getZ());
+            } else {
+                asyncDetector.submit(state, worldId, location.getX(), location.getY(), location.getZ());
+            }
+            plugin.getDetectionMetrics().record(System.nanoTime() - start, 1);
             return;
         }
         
-        // Execute all leave actions for this volume
-        List<TriggerAction> actions = volume.getLeaveActions();
-        for (TriggerAction action : actions) {
-            action.execute(player);
+        int transitions;
+        if (sweep) {
+            transitions = detector.detectSwept(volumeManager.getSnapshot(), state, worldId, from.getX(), from.getY(), from.getZ(),
+                    location.getX(), location.getY(), location.getZ());
+        } else {
+            transitions = detector.detect(volumeManager.getSnapshot(), state, worldId,
+                    location.getX(), location.getY(), location.getZ());
+        }
+        plugin.getDetectionMetrics().record(System.nanoTime() - start, 1);
+        if (transitions == 0) {
+            return;
         }
         
-        // Set cooldown
-        if (!actions.isEmpty()) {
-            leaveCooldownManager.setCooldown(player, volume);
+        // Fire in path order, actions may start another check so finish reading the detector first
+        TransitionDispatcher dispatcher = plugin.getTransitionDispatcher();
+        if (transitions == 1) {
+            TriggerVolume volume = detector.getVolume(0);
+            boolean enter = detector.isEnter(0);
+            detector.clear();
+            dispatcher.dispatch(player, volume, enter);
+            return;
+        }
+        TriggerVolume[] volumes = new TriggerVolume[transitions];
+        boolean[] enters = new boolean[transitions];
+        for (int i = 0; i < transitions; i++) {
+            volumes[i] = detector.getVolume(i);
+            enters[i] = detector.isEnter(i);
+        }
+        detector.clear();
+        for (int i = 0; i < transitions; i++) {
+            dispatcher.dispatch(player, volumes[i], enters[i]);
         }
     }
 
+    /**
+     * Forgets the position before death, a respawn in the same world fires no teleport
+     * and the next scan must not sweep the path from the death point to the spawn.
+     * 
+     * @param event The PlayerRespawnEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        plugin.getPlayerStateManager().getState(event.getPlayer().getUniqueId()).clearLastPosition();
+    }
+
     /**
      * Cleans up player data when they leave the server.
      * 
@@ -202,8 +266,10 @@ public class PlayerMoveListener implements Listener {
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         UUID playerId = event.getPlayer().getUniqueId();
-        playerVolumes.remove(playerId);
-        enterCooldownManager.clearCooldowns(event.getPlayer());
-        leaveCooldownManager.clearCooldowns(event.getPlayer());
+        
+        // Timers are kept by player slot, drop them before the slot is freed
+        plugin.getActionTimer().cancelAll(plugin.getPlayerStateManager().getState(playerId).getSlot());
+        plugin.getPlayerStateManager().removeState(playerId);
+        pendingRechecks.remove(playerId);
     }
 }
@@ -0,0 +1,316 @@
+package de.zfzfg.triggervolumes.managers;
+
+import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
+import de.zfzfg.triggervolumes.models.ActionType;
+import de.zfzfg.triggervolumes.models.Settings;
+import de.zfzfg.triggervolumes.models.TriggerAction;
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Runs trigger actions within a per-tick time budget and per-tick rate limits for each
+ * volume and each action type. Actions that don't fit into the current tick wait in a
+ * FIFO queue. An action held back by a rate limit also holds back the later actions of
+ * the same player, so every player's actions run in the order they were triggered while
+ * other players can pass. Must only be used from the main thread.
+ * 
+ * @author zfzfg
+ */
+public class ActionScheduler {
+
+    private static final ActionType[] ACTION_TYPES = ActionType.values();
+    
+    private final TriggerVolumesPlugin plugin;
+    
+    // Waiting actions, oldest first, and the entries carried over while working through them
+    private ArrayDeque<ScheduledAction> queue;
+    private ArrayDeque<ScheduledAction> carry;
+    private final Set<UUID> blockedPlayers;
+    private boolean processing;
+    private BukkitTask tickTask;
+    
+    // Settings
+    private long budgetNanos;
+    private int volumeLimit;
+    private final int[] typeLimits;
+    private int maxQueued;
+    
+    // Usage of the current tick
+    private long spentNanos;
+    private int[] volumeCounts;
+    private final int[] typeCounts;
+    
+    // Backpressure metrics since the last reset
+    private long executed;
+    private long deferred;
+    private long rateLimited;
+    private long dropped;
+    private int maxQueueLength;
+
+    /**
+     * Creates a new ActionScheduler. Call {@link #reload()} to start it.
+     * 
+     * @param plugin The plugin instance
+     */
+    public ActionScheduler(TriggerVolumesPlugin plugin) {
+        this.plugin = plugin;
+        this.queue = new ArrayDeque<>();
+        this.carry = new ArrayDeque<>();
+        this.blockedPlayers = new HashSet<>();
+        this.typeLimits = new int[ACTION_TYPES.length];
+        this.volumeCounts = new int[64];
+        this.typeCounts = new int[ACTION_TYPES.length];
+    }
+
+    /**
+     * Reads the action settings and restarts the task working through the queue.
+     */
+    public void reload() {
+        stop();
+        
+        Settings settings = plugin.getSettings();
+        budgetNanos = settings.getActionBudgetNanos();
+        volumeLimit = settings.getActionVolumeLimit();
+        maxQueued = settings.getMaxQueuedActions();
+        for (ActionType type : ACTION_TYPES) {
+            typeLimits[type.ordinal()] = settings.getActionTypeLimit(type);
+        }
+        
+        tickTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                processQueue();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+        resetMetrics();
+    }
+
+    /**
+     * Stops the tick task and runs all queued actions right away, ignoring the limits.
+     */
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        budgetNanos = 0;
+        volumeLimit = 0;
+        Arrays.fill(typeLimits, 0);
+        processQueue();
+    }
+
+    /**
+     * Runs an action for a player now if the budget and the rate limits allow it,
+     * otherwise queues it behind all earlier actions.
+     * 
+     * @param player The player
+     * @param volume The volume that triggered the action
+     * @param action The action
+     */
+    public void schedule(Player player, TriggerVolume volume, TriggerAction action) {
+        if (!processing && queue.isEmpty() && hasBudget() && withinLimits(volume.getId(), action.getType())) {
+            run(player, volume.getId(), action);
+            return;
+        }
+        
+        if (maxQueued > 0 && queue.size() >= maxQueued) {
+            dropped++;
+            return;
+        }
+        queue.add(new ScheduledAction(player.getUniqueId(), volume.getId(), action));
+        deferred++;
+        if (queue.size() > maxQueueLength) {
+            maxQueueLength = queue.size();
+        }
+    }
+
+    /**
+     * Starts a new tick and runs queued actions until the budget is used up.
+     * Actions over a rate limit, and the later actions of their players, are kept in order.
+     */
+    private void processQueue() {
+        spentNanos = 0;
+        Arrays.fill(typeCounts, 0);
+        Arrays.fill(volumeCounts, 0);
+        blockedPlayers.clear();
+        
+        // Actions scheduled by the actions below queue up behind the held back ones
+        processing = true;
+        int count = queue.size();
+        for (int i = 0; i < count && hasBudget(); i++) {
+            ScheduledAction scheduled = queue.poll();
+            if (blockedPlayers.contains(scheduled.playerId)) {
+                carry.add(scheduled);
+                continue;
+            }
+            if (!withinLimits(scheduled.volumeId, scheduled.action.getType())) {
+                blockedPlayers.add(scheduled.playerId);
+                carry.add(scheduled);
+                rateLimited++;
+                continue;
+            }
+            
+            Player player = plugin.getServer().getPlayer(scheduled.playerId);
+            if (player != null && player.isOnline()) {
+                run(player, scheduled.volumeId, scheduled.action);
+            }
+        }
+        
+        // Held back actions are older than everything still in the queue
+        carry.addAll(queue);
+        queue.clear();
+        ArrayDeque<ScheduledAction> swap = queue;
+        queue = carry;
+        carry = swap;
+        processing = false;
+    }
+
+    /**
+     * Runs an action and charges it to the budget and the rate limits of this tick.
+     * 
+     * @param player The player
+     * @param volumeId The id of the volume that triggered the action
+     * @param action The action
+     */
+    private void run(Player player, int volumeId, TriggerAction action) {
+        if (volumeId >= volumeCounts.length) {
+            volumeCounts = Arrays.copyOf(volumeCounts, Math.max(volumeId + 1, volumeCounts.length << 1));
+        }
+        volumeCounts[volumeId]++;
+        typeCounts[action.getType().ordinal()]++;
+        executed++;
+        
+        long start = System.nanoTime();
+        action.execute(player);
+        spentNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Checks if this tick's time budget is not used up yet.
+     * 
+     * @return True if more actions may run this tick
+     */
+    private boolean hasBudget() {
+        return budgetNanos == 0 || spentNanos < budgetNanos;
+    }
+
+    /**
+     * Checks the per-volume and per-type rate limits of this tick.
+     * 
+     * @param volumeId The id of the volume that triggered the action
+     * @param type The action type
+     * @return True if the action may run this tick
+     */
+    private boolean withinLimits(int volumeId, ActionType type) {
+        int typeLimit = typeLimits[type.ordinal()];
+        if (typeLimit > 0 && typeCounts[type.ordinal()] >= typeLimit) {
+            return false;
+        }
+        return volumeLimit == 0 || volumeId >= volumeCounts.length || volumeCounts[volumeId] < volumeLimit;
+    }
+
+    /**
+     * Resets the backpressure metrics.
+     */
+    public void resetMetrics() {
+        executed = 0;
+        deferred = 0;
+        rateLimited = 0;
+        dropped = 0;
+        maxQueueLength = queue.size();
+    }
+
+    /**
+     * Gets the number of actions waiting for a later tick.
+     * 
+     * @return The queue length
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the longest queue since the last reset.
+     * 
+     * @return The maximum queue length
+     */
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    /**
+     * Gets the number of actions run since the last reset.
+     * 
+     * @return The executed action count
+     */
+    public long getExecutedCount() {
+        return executed;
+    }
+
+    /**
+     * Gets the number of actions that had to wait for a later tick since the last reset.
+     * 
+     * @return The deferred action count
+     */
+    public long getDeferredCount() {
+        return deferred;
+    }
+
+    /**
+     * Gets how often a queued action was held back by a rate limit since the last reset.
+     * 
+     * @return The rate limited count
+     */
+    public long getRateLimitedCount() {
+        return rateLimited;
+    }
+
+    /**
+     * Gets the number of actions dropped because the queue was full since the last reset.
+     * 
+     * @return The dropped action count
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Gets the time budget for actions per tick.
+     * 
+     * @return The budget in microseconds, 0 if unlimited
+     */
+    public long getBudgetMicros() {
+        return budgetNanos / 1000L;
+    }
+
+    /**
+     * An action waiting for a later tick.
+     */
+    private static class ScheduledAction {
+        
+        private final UUID playerId;
+        private final int volumeId;
+        private final TriggerAction action;
+
+        /**
+         * Creates a new ScheduledAction.
+         * 
+         * @param playerId The player's UUID
+         * @param volumeId The id of the volume that triggered the action
+         * @param action The action
+         */
+        private ScheduledAction(UUID playerId, int volumeId, TriggerAction action) {
+            this.playerId = playerId;
+            this.volumeId = volumeId;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,520 @@
+package de.zfzfg.triggervolumes.managers;
+
+import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
+import de.zfzfg.triggervolumes.models.PlayerState;
+import de.zfzfg.triggervolumes.models.Settings;
+import de.zfzfg.triggervolumes.models.TriggerAction;
+import de.zfzfg.triggervolumes.models.TriggerType;
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs delayed and repeating actions, and the stay and tick triggers of occupied volumes,
+ * from a single hierarchical timing wheel that is advanced once per server tick, instead of
+ * one BukkitTask per player and action or a scan over all players and volumes.
+ * Entering a volume with stay or tick actions schedules one occupancy timer per
+ * (player, volume) and trigger, leaving it cancels them.
+ * The inner wheel has one slot per tick for the next 256 ticks, the outer wheel one slot
+ * per 256 ticks. Outer slots are moved into the inner wheel when their turn comes, timers
+ * further away than the outer wheel wait in its last slot and are moved again.
+ * Scheduling and cancelling a timer is O(1), each tick only touches the timers due in it.
+ * Every timer is also linked into a list per player slot, so the timers of a volume are
+ * cancelled when the player makes the opposite transition and all timers when they quit.
+ * Timers of enter, stay and tick actions belong to being inside the volume, timers of
+ * leave actions to being outside. Leaving a volume with an exit delay is held back by a
+ * timer as well, it only reaches the TransitionDispatcher once the delay ran out.
+ * Due actions are handed to the ActionScheduler. Must only be used from the main thread.
+ * 
+ * @author zfzfg
+ */
+public class ActionTimer {
+
+    private static final int INNER_BITS = 8;
+    private static final int INNER_SIZE = 1 << INNER_BITS;
+    private static final int INNER_MASK = INNER_SIZE - 1;
+    private static final int OUTER_SIZE = 64;
+    private static final int OUTER_MASK = OUTER_SIZE - 1;
+    
+    private final TriggerVolumesPlugin plugin;
+    private final Slot[] inner;
+    private final Slot[] outer;
+    
+    // First timer of each player, index = player slot, timers are linked through playerNext
+    private Timer[] playerTimers;
+    private final List<Timer> expired;
+    private BukkitTask tickTask;
+    private long currentTick;
+    private int pendingCount;
+
+    /**
+     * Creates a new ActionTimer. Call {@link #start()} to start it.
+     * 
+     * @param plugin The plugin instance
+     */
+    public ActionTimer(TriggerVolumesPlugin plugin) {
+        this.plugin = plugin;
+        this.inner = new Slot[INNER_SIZE];
+        this.outer = new Slot[OUTER_SIZE];
+        for (int i = 0; i < INNER_SIZE; i++) {
+            inner[i] = new Slot();
+        }
+        for (int i = 0; i < OUTER_SIZE; i++) {
+            outer[i] = new Slot();
+        }
+        this.playerTimers = new Timer[64];
+        this.expired = new ArrayList<>();
+    }
+
+    /**
+     * Starts the task advancing the wheel every tick.
+     */
+    public void start() {
+        stop();
+        
+        tickTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * Stops the tick task and drops all pending timers.
+     */
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        for (int playerSlot = 0; playerSlot < playerTimers.length; playerSlot++) {
+            cancelAll(playerSlot);
+        }
+    }
+
+    /**
+     * Runs an action for a player after its delay, and then every repeat interval until
+     * the timer is cancelled. Actions without delay run right away.
+     * 
+     * @param player The player
+     * @param state The player's state
+     * @param volume The volume that triggered the action
+     * @param action The action, with a delay or a repeat interval
+     * @param trigger The trigger type the action belongs to
+     */
+    public void schedule(Player player, PlayerState state, TriggerVolume volume, TriggerAction action, TriggerType trigger) {
+        if (action.getDelay() == 0) {
+            plugin.getActionScheduler().schedule(player, volume, action);
+            if (action.getRepeat() == 0) {
+                return;
+            }
+        }
+        
+        long delay = action.getDelay() > 0 ? action.getDelay() : action.getRepeat();
+        add(new Timer(state, volume.getId(), trigger, action, currentTick + delay));
+    }
+
+    /**
+     * Starts the stay and tick triggers of a volume a player just entered.
+     * 
+     * @param state The player's state
+     * @param volume The volume the player entered
+     */
+    public void startOccupancy(PlayerState state, TriggerVolume volume) {
+        if (!volume.getStayActions().isEmpty()) {
+            add(new Timer(state, volume.getId(), TriggerType.STAY, null, currentTick + volume.getStayTime()));
+        }
+        if (!volume.getTickActions().isEmpty()) {
+            add(new Timer(state, volume.getId(), TriggerType.TICK, null, currentTick + volume.getTickInterval()));
+        }
+    }
+
+    /**
+     * Holds back leaving a volume until the player stayed outside for the volume's exit delay.
+     * 
+     * @param state The player's state
+     * @param volume The volume the player left
+     */
+    public void deferLeave(PlayerState state, TriggerVolume volume) {
+        add(new Timer(state, volume.getId(), TriggerType.LEAVE, null, currentTick + volume.getExitDelay()));
+    }
+
+    /**
+     * Cancels a held back leave of a player who came back into the volume in time.
+     * 
+     * @param state The player's state
+     * @param volumeId The id of the volume
+     * @return True if a leave was held back, so the player never counted as having left
+     */
+    public boolean cancelDeferredLeave(PlayerState state, int volumeId) {
+        for (Timer timer = getFirstTimer(state.getSlot()); timer != null; timer = timer.playerNext) {
+            if (timer.volumeId == volumeId && timer.trigger == TriggerType.LEAVE && timer.action == null) {
+                cancel(timer);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the actions of a trigger type, handing timed ones back to the wheel and
+     * skipping the ones that are on their own cooldown for the player.
+     * 
+     * @param player The player
+     * @param state The player's state
+     * @param volume The volume
+     * @param trigger The trigger type
+     */
+    public void runActions(Player player, PlayerState state, TriggerVolume volume, TriggerType trigger) {
+        ActionScheduler scheduler = plugin.getActionScheduler();
+        List<TriggerAction> actions = volume.getActions(trigger);
+        for (int i = 0; i < actions.size(); i++) {
+            TriggerAction action = actions.get(i);
+            if (action.getCooldown() > 0) {
+                long now = System.nanoTime();
+                int actionId = getCooldownId(actions, i);
+                if (state.isActionOnCooldown(volume.getId(), trigger, actionId, now)) {
+                    continue;
+                }
+                state.setActionCooldown(volume.getId(), trigger, actionId, now + action.getCooldown() * Settings.NANOS_PER_TICK, now);
+                if (plugin.getSettings().isPersistCooldowns()) {
+                    state.setDataDirty(true);
+                }
+            }
+            
+            if (action.isTimed()) {
+                schedule(player, state, volume, action, trigger);
+            } else {
+                scheduler.schedule(player, volume, action);
+            }
+        }
+    }
+
+    /**
+     * Gets the cooldown id of an action in a list. Identical actions listed more than once
+     * get one id per occurrence, so each of them still runs once per cooldown.
+     * 
+     * @param actions The actions of a trigger
+     * @param index The index of the action
+     * @return The cooldown id, 24 bits
+     */
+    private static int getCooldownId(List<TriggerAction> actions, int index) {
+        int cooldownId = actions.get(index).getCooldownId();
+        int occurrence = 0;
+        for (int i = 0; i < index; i++) {
+            if (actions.get(i).getCooldownId() == cooldownId) {
+                occurrence++;
+            }
+        }
+        return (cooldownId + occurrence * 0x9E3779) & 0xFFFFFF;
+    }
+
+    /**
+     * Cancels the pending timers of a player for a volume that belong to being inside
+     * or to being outside of it.
+     * 
+     * @param state The player's state
+     * @param volumeId The id of the volume
+     * @param inside True to cancel the enter, stay and tick timers, false for the leave timers
+     */
+    public void cancel(PlayerState state, int volumeId, boolean inside) {
+        Timer timer = getFirstTimer(state.getSlot());
+        while (timer != null) {
+            Timer next = timer.playerNext;
+            if (timer.volumeId == volumeId && (timer.trigger != TriggerType.LEAVE) == inside) {
+                cancel(timer);
+            }
+            timer = next;
+        }
+    }
+
+    /**
+     * Cancels all pending timers of a player, e.g. when they leave the server.
+     * 
+     * @param playerSlot The player slot
+     */
+    public void cancelAll(int playerSlot) {
+        Timer timer = getFirstTimer(playerSlot);
+        while (timer != null) {
+            Timer next = timer.playerNext;
+            cancel(timer);
+            timer = next;
+        }
+    }
+
+    /**
+     * Gets the number of pending timers.
+     * 
+     * @return The pending timer count
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Advances the wheel by one tick and runs the actions that became due.
+     */
+    private void tick() {
+        currentTick++;
+        
+        // Start of a new round of the inner wheel, bring in the next outer slot
+        if ((currentTick & INNER_MASK) == 0) {
+            Slot slot = outer[(int) (currentTick >>> INNER_BITS) & OUTER_MASK];
+            Timer timer = slot.head;
+            slot.head = null;
+            while (timer != null) {
+                Timer next = timer.next;
+                timer.slot = null;
+                insert(timer);
+                timer = next;
+            }
+        }
+        
+        // Detach the due timers first, actions may cancel or schedule timers
+        Slot slot = inner[(int) currentTick & INNER_MASK];
+        for (Timer timer = slot.head; timer != null; timer = timer.next) {
+            timer.slot = null;
+            expired.add(timer);
+        }
+        slot.head = null;
+        
+        TriggerVolumeManager volumeManager = plugin.getVolumeManager();
+        for (int i = 0; i < expired.size(); i++) {
+            Timer timer = expired.get(i);
+            if (timer.cancelled) {
+                continue;
+            }
+            
+            Player player = plugin.getServer().getPlayer(timer.state.getPlayerId());
+            TriggerVolume volume = volumeManager.getVolumeById(timer.volumeId);
+            // Drop timers of actions that were removed from the volume in the meantime
+            if (player == null || !player.isOnline() || volume == null || !isCurrent(volume, timer)) {
+                cancel(timer);
+                continue;
+            }
+            
+            if (timer.action == null) {
+                runOccupancy(player, volume, timer);
+                continue;
+            }
+            
+            int repeat = timer.action.getRepeat();
+            if (repeat > 0) {
+                timer.deadline = currentTick + repeat;
+                insert(timer);
+            } else {
+                unlinkPlayer(timer);
+                timer.cancelled = true;
+                pendingCount--;
+            }
+            plugin.getActionScheduler().schedule(player, volume, timer.action);
+        }
+        expired.clear();
+    }
+
+    /**
+     * Runs the stay or tick actions of a due occupancy timer, or the held back leave of a
+     * deferred leave timer. Tick timers are put back for the next interval, the others are done.
+     * 
+     * @param player The player
+     * @param volume The occupied volume
+     * @param timer The occupancy or deferred leave timer
+     */
+    private void runOccupancy(Player player, TriggerVolume volume, Timer timer) {
+        if (timer.trigger == TriggerType.TICK) {
+            timer.deadline = currentTick + volume.getTickInterval();
+            insert(timer);
+        } else {
+            unlinkPlayer(timer);
+            timer.cancelled = true;
+            pendingCount--;
+        }
+        if (timer.trigger == TriggerType.LEAVE) {
+            plugin.getTransitionDispatcher().commitLeave(player, timer.state, volume);
+        } else {
+            runActions(player, timer.state, volume, timer.trigger);
+        }
+    }
+
+    /**
+     * Checks if the action of a timer still belongs to the volume. Occupancy timers
+     * are current as long as the volume has actions for their trigger, deferred leaves always.
+     * 
+     * @param volume The current volume
+     * @param timer The timer
+     * @return True if the volume still has the action
+     */
+    private boolean isCurrent(TriggerVolume volume, Timer timer) {
+        List<TriggerAction> actions = volume.getActions(timer.trigger);
+        if (timer.action == null) {
+            return timer.trigger == TriggerType.LEAVE || !actions.isEmpty();
+        }
+        for (TriggerAction action : actions) {
+            if (action == timer.action) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a new timer to the wheel and to its player's list.
+     * 
+     * @param timer The timer
+     */
+    private void add(Timer timer) {
+        insert(timer);
+        linkPlayer(timer);
+        pendingCount++;
+    }
+
+    /**
+     * Puts a timer into the inner or outer wheel slot for its deadline.
+     * 
+     * @param timer The timer
+     */
+    private void insert(Timer timer) {
+        Slot slot;
+        if (timer.deadline - currentTick < INNER_SIZE) {
+            slot = inner[(int) timer.deadline & INNER_MASK];
+        } else {
+            // Too far for the outer wheel: wait in its last slot and get moved again
+            long round = Math.min(timer.deadline >>> INNER_BITS, (currentTick >>> INNER_BITS) + OUTER_SIZE);
+            slot = outer[(int) round & OUTER_MASK];
+        }
+        
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = slot.head;
+        if (slot.head != null) {
+            slot.head.prev = timer;
+        }
+        slot.head = timer;
+    }
+
+    /**
+     * Cancels a single timer and removes it from its slot and its player's list.
+     * 
+     * @param timer The timer
+     */
+    private void cancel(Timer timer) {
+        if (timer.cancelled) {
+            return;
+        }
+        timer.cancelled = true;
+        pendingCount--;
+        
+        Slot slot = timer.slot;
+        if (slot != null) {
+            if (timer.prev != null) {
+                timer.prev.next = timer.next;
+            } else {
+                slot.head = timer.next;
+            }
+            if (timer.next != null) {
+                timer.next.prev = timer.prev;
+            }
+            timer.slot = null;
+        }
+        unlinkPlayer(timer);
+    }
+
+    /**
+     * Gets the first timer in a player's list.
+     * 
+     * @param playerSlot The player slot
+     * @return The first timer, or null if the player has none
+     */
+    private Timer getFirstTimer(int playerSlot) {
+        return playerSlot < playerTimers.length ? playerTimers[playerSlot] : null;
+    }
+
+    /**
+     * Adds a timer to the front of its player's list.
+     * 
+     * @param timer The timer
+     */
+    private void linkPlayer(Timer timer) {
+        int playerSlot = timer.state.getSlot();
+        if (playerSlot >= playerTimers.length) {
+            playerTimers = Arrays.copyOf(playerTimers, Math.max(playerSlot + 1, playerTimers.length << 1));
+        }
+        Timer head = playerTimers[playerSlot];
+        playerTimers[playerSlot] = timer;
+        timer.playerNext = head;
+        if (head != null) {
+            head.playerPrev = timer;
+        }
+    }
+
+    /**
+     * Removes a timer from its player's list.
+     * 
+     * @param timer The timer
+     */
+    private void unlinkPlayer(Timer timer) {
+        if (timer.playerPrev != null) {
+            timer.playerPrev.playerNext = timer.playerNext;
+        } else {
+            playerTimers[timer.state.getSlot()] = timer.playerNext;
+        }
+        if (timer.playerNext != null) {
+            timer.playerNext.playerPrev = timer.playerPrev;
+        }
+        timer.playerPrev = null;
+        timer.playerNext = null;
+    }
+
+    /**
+     * A slot of the wheel, holding a doubly linked list of timers.
+     */
+    private static class Slot {
+        
+        private Timer head;
+    }
+
+    /**
+     * A pending delayed or repeating action, the stay or tick trigger of an occupied volume,
+     * or a deferred leave.
+     */
+    private static class Timer {
+        
+        private final PlayerState state;
+        private final int volumeId;
+        private final TriggerType trigger;
+        
+        // The delayed action, null for the occupancy timers running all stay or tick actions
+        // and for deferred leaves
+        private final TriggerAction action;
+        private long deadline;
+        private boolean cancelled;
+        
+        // Links in the wheel slot and in the player's list
+        private Slot slot;
+        private Timer prev, next;
+        private Timer playerPrev, playerNext;
+
+        /**
+         * Creates a new Timer.
+         * 
+         * @param state The player's state
+         * @param volumeId The id of the volume that triggered the action
+         * @param trigger The trigger type the action belongs to
+         * @param action The action, or null for an occupancy timer
+         * @param deadline The tick the action is due
+         */
+        private Timer(PlayerState state, int volumeId, TriggerType trigger, TriggerAction action, long deadline) {
+            this.state = state;
+            this.volumeId = volumeId;
+            this.trigger = trigger;
+            this.action = action;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package de.zfzfg.triggervolumes.managers;
+
+import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
+import de.zfzfg.triggervolumes.models.PlayerState;
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects volume transitions off the main thread ("async mode").
+ * Move events only hand the positions to a single detection thread, which diffs the
+ * membership against the immutable volume snapshot. The resulting transitions go back
+ * through a lock-free queue that the main thread drains once per tick to run the actions.
+ * While running, the membership of all players is owned by the detection thread.
+ * 
+ * @author zfzfg
+ */
+public class AsyncDetector {
+
+    private final TriggerVolumesPlugin plugin;
+    private final ConcurrentLinkedQueue<PendingTransition> pending;
+    
+    // Only used on the detection thread
+    private final TransitionDetector detector;
+    
+    private ExecutorService executor;
+    private BukkitTask drainTask;
+
+    /**
+     * Creates a new AsyncDetector. Call {@link #reload()} to start it.
+     * 
+     * @param plugin The plugin instance
+     */
+    public AsyncDetector(TriggerVolumesPlugin plugin) {
+        this.plugin = plugin;
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.detector = new TransitionDetector(plugin.getDetectionMetrics());
+    }
+
+    /**
+     * Reads the detection settings and starts or stops the detection thread accordingly.
+     */
+    public void reload() {
+        stop();
+        
+        if (!plugin.getSettings().getDetectionMode().equals("async")) {
+            return;
+        }
+        
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TriggerVolumes-Detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+        plugin.getDetectionMetrics().reset();
+    }
+
+    /**
+     * Stops the detection thread, waits for queued checks and runs their transitions.
+     */
+    public void stop() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                // The memberships go back to the main thread, so nothing may still be running
+                if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    plugin.getLogger().warning("Volume detection thread did not stop in time.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        drain();
+    }
+
+    /**
+     * Checks if async mode is active, in which case move events are only handed over.
+     * 
+     * @return True if the detection thread is running
+     */
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Gets the number of transitions waiting for the main thread.
+     * 
+     * @return The queue length
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Queues a check of a player at a single position.
+     * 
+     * @param state The player's state, only touched by the detection thread from now on
+     * @param worldId The world id of the position
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     */
+    public void submit(PlayerState state, int worldId, double x, double y, double z) {
+        execute(() -> {
+            int transitions = detector.detect(plugin.getVolumeManager().getSnapshot(), state, worldId, x, y, z);
+            publish(state.getPlayerId(), transitions);
+        });
+    }
+
+    /**
+     * Queues a check of a player along the path from a previous to the current position.
+     * 
+     * @param state The player's state, only touched by the detection thread from now on
+     * @param worldId The world id of both positions
+     * @param fromX The previous X coordinate
+     * @param fromY The previous Y coordinate
+     * @param fromZ The previous Z coordinate
+     * @param x The current X coordinate
+     * @param y The current Y coordinate
+     * @param z The current Z coordinate
+     */
+    public void submitSwept(PlayerState state, int worldId, double fromX, double fromY, double fromZ,
+                            double x, double y, double z) {
+        execute(() -> {
+            int transitions = detector.detectSwept(plugin.getVolumeManager().getSnapshot(), state, worldId,
+                    fromX, fromY, fromZ, x, y, z);
+            publish(state.getPlayerId(), transitions);
+        });
+    }
+
+    /**
+     * Hands a check to the detection thread.
+     * 
+     * @param check The check to run
+     */
+    private void execute(Runnable check) {
+        if (executor == null) {
+            return;
+        }
+        try {
+            executor.execute(check);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the player will be checked again by the next mode
+        }
+    }
+
+    /**
+     * Moves the transitions of the last check into the queue for the main thread.
+     * Runs on the detection thread.
+     * 
+     * @param playerId The player's UUID
+     * @param transitions The number of transitions found
+     */
+    private void publish(UUID playerId, int transitions) {
+        for (int i = 0; i < transitions; i++) {
+            pending.offer(new PendingTransition(playerId, detector.getVolume(i), detector.isEnter(i)));
+        }
+        detector.clear();
+    }
+
+    /**
+     * Runs the actions of all queued transitions. Runs on the main thread.
+     */
+    private void drain() {
+        TriggerVolumeManager volumeManager = plugin.getVolumeManager();
+        TransitionDispatcher dispatcher = plugin.getTransitionDispatcher();
+        PendingTransition transition;
+        while ((transition = pending.poll()) != null) {
+            Player player = plugin.getServer().getPlayer(transition.playerId);
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+            
+            // The volume may have been deleted or redefined since it was detected
+            TriggerVolume volume = volumeManager.getVolumeById(transition.volume.getId());
+            if (volume != null) {
+                dispatcher.dispatch(player, volume, transition.enter);
+            }
+        }
+    }
+
+    /**
+     * A detected transition waiting for the main thread.
+     */
+    private static class PendingTransition {
+        
+        private final UUID playerId;
+        private final TriggerVolume volume;
+        private final boolean enter;
+
+        /**
+         * Creates a new PendingTransition.
+         * 
+         * @param playerId The player's UUID
+         * @param volume The volume entered or left
+         * @param enter True for an enter, false for a leave
+         */
+        private PendingTransition(UUID playerId, TriggerVolume volume, boolean enter) {
+            this.playerId = playerId;
+            this.volume = volume;
+            this.enter = enter;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package de.zfzfg.triggervolumes.managers;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how much main thread time the volume detection costs, so the
+ * event-driven and the scan mode can be compared on a live server.
+ * Action execution is not included, apart from the transitions deferred by the
+ * per-tick budget. Must only be used from the main thread, except for
+ * {@link #recordSuppressed()}, which the detection threads call as well.
+ * 
+ * @author zfzfg
+ */
+public class DetectionMetrics {
+
+    private static final long NANOS_PER_TICK = 50_000_000L;
+
+    private long windowStart;
+    private long totalNanos;
+    private long checks;
+    private long maxNanos;
+    private long deferredTransitions;
+    private int maxDeferredQueue;
+    private final LongAdder suppressedTransitions;
+
+    /**
+     * Creates new DetectionMetrics.
+     */
+    public DetectionMetrics() {
+        this.suppressedTransitions = new LongAdder();
+        reset();
+    }
+
+    /**
+     * Records one detection run.
+     * 
+     * @param nanos The time the run took on the main thread
+     * @param players The number of players checked in the run
+     */
+    public void record(long nanos, int players) {
+        totalNanos += nanos;
+        checks += players;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    /**
+     * Records a transition deferred to a later tick because the tick budget was used up.
+     * 
+     * @param queueLength The number of deferred transitions including this one
+     */
+    public void recordDeferred(int queueLength) {
+        deferredTransitions++;
+        if (queueLength > maxDeferredQueue) {
+            maxDeferredQueue = queueLength;
+        }
+    }
+
+    /**
+     * Records a leave that was not fired because of the hysteresis margin or exit delay
+     * of a volume, which also saves the enter that would follow it. Thread-safe.
+     */
+    public void recordSuppressed() {
+        suppressedTransitions.increment();
+    }
+
+    /**
+     * Starts a new measurement window.
+     */
+    public void reset() {
+        windowStart = System.nanoTime();
+        totalNanos = 0;
+        checks = 0;
+        maxNanos = 0;
+        deferredTransitions = 0;
+        maxDeferredQueue = 0;
+        suppressedTransitions.reset();
+    }
+
+    /**
+     * Gets the average detection time per server tick in the current window.
+     * 
+     * @return The average time per tick in microseconds
+     */
+    public double getMicrosPerTick() {
+        return totalNanos / 1000.0 / getElapsedTicks();
+    }
+
+    /**
+     * Gets the average number of player checks per server tick in the current window.
+     * 
+     * @return The average checks per tick
+     */
+    public double getChecksPerTick() {
+        return checks / (double) getElapsedTicks();
+    }
+
+    /**
+     * Gets the longest single detection run in the current window.
+     * 
+     * @return The longest run in microseconds
+     */
+    public double getMaxMicros() {
+        return maxNanos / 1000.0;
+    }
+
+    /**
+     * Gets the number of transitions deferred by the tick budget in the current window.
+     * 
+     * @return The deferred transition count
+     */
+    public long getDeferredTransitions() {
+        return deferredTransitions;
+    }
+
+    /**
+     * Gets the longest queue of deferred transitions in the current window.
+     * 
+     * @return The maximum queue length
+     */
+    public int getMaxDeferredQueue() {
+        return maxDeferredQueue;
+    }
+
+    /**
+     * Gets the number of leaves suppressed by volume hysteresis in the current window.
+     * 
+     * @return The suppressed transition count
+     */
+    public long getSuppressedTransitions() {
+        return suppressedTransitions.sum();
+    }
+
+    /**
+     * Gets the length of the current window in ticks, at least one.
+     * 
+     * @return The elapsed ticks at 20 ticks per second
+     */
+    public long getElapsedTicks() {
+        return Math.max(1L, (System.nanoTime() - windowStart) / NANOS_PER_TICK);
+    }
+}
@@ -78,7 +78,7 @@ public class LanguageManager {
         }
 
         // Set current language from config
-        String configLang = plugin.getConfig().getString("language.default", "en");
+        String configLang = plugin.getSettings().getLanguage();
         setLanguage(configLang);
     }
 
@@ -0,0 +1,349 @@
+package de.zfzfg.triggervolumes.managers;
+
+import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
+import de.zfzfg.triggervolumes.models.PlayerState;
+import de.zfzfg.triggervolumes.models.Settings;
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batched alternative to checking players on every move event ("scan mode").
+ * Every few ticks the positions of all online players are copied into primitive arrays
+ * and checked in one go against the current volume snapshot. Large batches are split
+ * across a worker pool while the main thread waits. Actions always run on the main
+ * thread once the batch is done. Players are checked along the path since the last scan,
+ * unless they moved further than they could have in one scan interval.
+ * 
+ * @author zfzfg
+ */
+public class OccupancyScanner {
+
+    // More than a player covers per tick, even flying with an elytra and rockets
+    private static final double MAX_BLOCKS_PER_TICK = 10.0;
+    
+    private final TriggerVolumesPlugin plugin;
+    
+    private BukkitTask task;
+    private ExecutorService workers;
+    private int workerCount;
+    private int parallelThreshold;
+    private double maxSweepDistanceSquared;
+    
+    // Position snapshot of the current scan, index = scan index (not the PlayerState slot)
+    private Player[] players;
+    private PlayerState[] states;
+    private int[] worldIds;
+    private double[] xs, ys, zs;
+    
+    // One detector and result batch per worker, the first one is also used for serial scans
+    private TransitionDetector[] detectors;
+    private TransitionBatch[] batches;
+    private Runnable[] jobs;
+    private Future<?>[] futures;
+    private int scanCount;
+    private VolumeSnapshot scanSnapshot;
+
+    /**
+     * Creates a new OccupancyScanner. Call {@link #reload()} to start it.
+     * 
+     * @param plugin The plugin instance
+     */
+    public OccupancyScanner(TriggerVolumesPlugin plugin) {
+        this.plugin = plugin;
+        allocate(64);
+    }
+
+    /**
+     * Reads the detection settings and starts or stops scanning accordingly.
+     */
+    public void reload() {
+        stop();
+        
+        // Positions from an earlier scan session are stale, the first scan must not sweep from them
+        for (PlayerState state : plugin.getPlayerStateManager().getStates()) {
+            state.clearLastPosition();
+        }
+        
+        Settings settings = plugin.getSettings();
+        if (!settings.getDetectionMode().equals("scan")) {
+            return;
+        }
+        
+        int interval = settings.getScanInterval();
+        double maxSweepDistance = interval * MAX_BLOCKS_PER_TICK;
+        maxSweepDistanceSquared = maxSweepDistance * maxSweepDistance;
+        parallelThreshold = settings.getParallelThreshold();
+        workerCount = settings.getWorkerThreads();
+        if (workerCount <= 0) {
+            workerCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        }
+        
+        detectors = new TransitionDetector[workerCount];
+        batches = new TransitionBatch[workerCount];
+        jobs = new Runnable[workerCount];
+        futures = new Future<?>[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            int worker = i;
+            detectors[i] = new TransitionDetector(plugin.getDetectionMetrics());
+            batches[i] = new TransitionBatch();
+            jobs[i] = () -> detectShare(worker);
+        }
+        if (workerCount > 1) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+                Thread thread = new Thread(runnable, "TriggerVolumes-Scanner-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                scan();
+            }
+        }.runTaskTimer(plugin, interval, interval);
+        plugin.getDetectionMetrics().reset();
+    }
+
+    /**
+     * Stops scanning and shuts down the worker pool.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+        Arrays.fill(players, null);
+        Arrays.fill(states, null);
+    }
+
+    /**
+     * Checks if scan mode is active, in which case move events are not checked individually.
+     * 
+     * @return True if the scanner is running
+     */
+    public boolean isScanning() {
+        return task != null;
+    }
+
+    /**
+     * Gets the number of worker threads used for large scans.
+     * 
+     * @return The worker count, 1 if scans always run on the main thread
+     */
+    public int getWorkerCount() {
+        return workers != null ? workerCount : 1;
+    }
+
+    /**
+     * Runs one scan over all online players.
+     */
+    private void scan() {
+        long start = System.nanoTime();
+        TriggerVolumeManager volumeManager = plugin.getVolumeManager();
+        PlayerStateManager stateManager = plugin.getPlayerStateManager();
+        
+        // Snapshot the positions, world ids are resolved here since that may modify the manager
+        int count = 0;
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            Location location = player.getLocation();
+            if (location.getWorld() == null) {
+                continue;
+            }
+            if (count == players.length) {
+                allocate(count << 1);
+            }
+            players[count] = player;
+            states[count] = stateManager.getState(player.getUniqueId());
+            worldIds[count] = volumeManager.getWorldId(location.getWorld().getName());
+            xs[count] = location.getX();
+            ys[count] = location.getY();
+            zs[count] = location.getZ();
+            count++;
+        }
+        
+        scanSnapshot = volumeManager.getSnapshot();
+        int batchCount = 1;
+        if (workers != null && count >= parallelThreshold) {
+            batchCount = runParallel(count);
+        } else {
+            detectRange(0, count, detectors[0], batches[0]);
+        }
+        plugin.getDetectionMetrics().record(System.nanoTime() - start, count);
+        
+        // Apply the transitions on the main thread, in player order
+        TransitionDispatcher dispatcher = plugin.getTransitionDispatcher();
+        for (int b = 0; b < batchCount; b++) {
+            TransitionBatch batch = batches[b];
+            for (int i = 0; i < batch.size; i++) {
+                Player player = players[batch.scanIndexes[i]];
+                if (player.isOnline()) {
+                    dispatcher.dispatch(player, batch.volumes[i], batch.enters[i]);
+                }
+            }
+            batch.clear();
+        }
+        Arrays.fill(players, 0, count, null);
+        Arrays.fill(states, 0, count, null);
+        scanSnapshot = null;
+    }
+
+    /**
+     * Splits a scan into one contiguous range per worker and waits for all of them.
+     * 
+     * @param count The number of players in the snapshot
+     * @return The number of batches holding results
+     */
+    private int runParallel(int count) {
+        scanCount = count;
+        for (int w = 0; w < workerCount; w++) {
+            futures[w] = workers.submit(jobs[w]);
+        }
+        
+        // Always wait for every range, the batches are read right after this
+        boolean interrupted = false;
+        for (int w = 0; w < workerCount; w++) {
+            while (true) {
+                try {
+                    futures[w].get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    plugin.getLogger().warning("Parallel volume scan failed: " + e.getCause());
+                    break;
+                }
+            }
+            futures[w] = null;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return workerCount;
+    }
+
+    /**
+     * Checks the share of the current snapshot that belongs to one worker.
+     * 
+     * @param worker The worker index
+     */
+    private void detectShare(int worker) {
+        int chunkSize = (scanCount + workerCount - 1) / workerCount;
+        int from = Math.min(scanCount, worker * chunkSize);
+        int to = Math.min(scanCount, from + chunkSize);
+        detectRange(from, to, detectors[worker], batches[worker]);
+    }
+
+    /**
+     * Checks a range of the snapshot and records the transitions.
+     * Runs on the main thread or on a worker, each scan index is touched by exactly one thread.
+     * 
+     * @param from The first scan index (inclusive)
+     * @param to The last scan index (exclusive)
+     * @param detector The detector owned by the calling thread
+     * @param batch The batch to record the transitions in
+     */
+    private void detectRange(int from, int to, TransitionDetector detector, TransitionBatch batch) {
+        for (int index = from; index < to; index++) {
+            PlayerState state = states[index];
+            int worldId = worldIds[index];
+            int transitions;
+            if (state.getLastWorldId() == worldId && isSweepable(state, xs[index], ys[index], zs[index])) {
+                transitions = detector.detectSwept(scanSnapshot, state, worldId,
+                        state.getLastX(), state.getLastY(), state.getLastZ(), xs[index], ys[index], zs[index]);
+            } else {
+                transitions = detector.detect(scanSnapshot, state, worldId, xs[index], ys[index], zs[index]);
+            }
+            state.setLastPosition(worldId, xs[index], ys[index], zs[index]);
+            
+            for (int i = 0; i < transitions; i++) {
+                batch.add(index, detector.getVolume(i), detector.isEnter(i));
+            }
+            detector.clear();
+        }
+    }
+
+    /**
+     * Checks if the path since the last scan is short enough to have been moved along.
+     * Longer jumps, e.g. a respawn or a teleport by another plugin, are checked at the new position only.
+     * 
+     * @param state The player's state with the last position
+     * @param x The current X coordinate
+     * @param y The current Y coordinate
+     * @param z The current Z coordinate
+     * @return True if the path can be swept
+     */
+    private boolean isSweepable(PlayerState state, double x, double y, double z) {
+        double dx = x - state.getLastX();
+        double dy = y - state.getLastY();
+        double dz = z - state.getLastZ();
+        return dx * dx + dy * dy + dz * dz <= maxSweepDistanceSquared;
+    }
+
+    /**
+     * Grows the snapshot arrays.
+     * 
+     * @param capacity The new capacity
+     */
+    private void allocate(int capacity) {
+        players = players == null ? new Player[capacity] : Arrays.copyOf(players, capacity);
+        states = states == null ? new PlayerState[capacity] : Arrays.copyOf(states, capacity);
+        worldIds = worldIds == null ? new int[capacity] : Arrays.copyOf(worldIds, capacity);
+        xs = xs == null ? new double[capacity] : Arrays.copyOf(xs, capacity);
+        ys = ys == null ? new double[capacity] : Arrays.copyOf(ys, capacity);
+        zs = zs == null ? new double[capacity] : Arrays.copyOf(zs, capacity);
+    }
+
+    /**
+     * Transitions found by one worker during a scan, as parallel arrays.
+     */
+    private static class TransitionBatch {
+        
+        private int[] scanIndexes = new int[16];
+        private TriggerVolume[] volumes = new TriggerVolume[16];
+        private boolean[] enters = new boolean[16];
+        private int size;
+
+        /**
+         * Records a transition.
+         * 
+         * @param scanIndex The player's index in the scan snapshot
+         * @param volume The volume entered or left
+         * @param enter True for an enter, false for a leave
+         */
+        private void add(int scanIndex, TriggerVolume volume, boolean enter) {
+            if (size == scanIndexes.length) {
+                scanIndexes = Arrays.copyOf(scanIndexes, size << 1);
+                volumes = Arrays.copyOf(volumes, size << 1);
+                enters = Arrays.copyOf(enters, size << 1);
+            }
+            scanIndexes[size] = scanIndex;
+            volumes[size] = volume;
+            enters[size] = enter;
+            size++;
+        }
+
+        /**
+         * Removes all transitions, keeping the capacity.
+         */
+        private void clear() {
+            Arrays.fill(volumes, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -25,10 +25,6 @@ public class ParticleManager {
     private final Map<String, BukkitTask> volumeParticleTasks;
     private final Map<String, Long> volumeVisualizationStart;
     
-    private final int updateInterval;
-    private final double density;
-    private final int visualizationDuration;
-    
     // Colors for volume visualization
     private static final Color[] VOLUME_COLORS = {
         Color.RED,
@@ -49,11 +45,6 @@ public class ParticleManager {
         this.selectionParticleTasks = new HashMap<>();
         this.volumeParticleTasks = new HashMap<>();
         this.volumeVisualizationStart = new HashMap<>();
-        
-        // Load settings from config
-        this.updateInterval = plugin.getConfig().getInt("particles.update-interval", 5);
-        this.density = plugin.getConfig().getDouble("particles.density", 0.5);
-        this.visualizationDuration = plugin.getConfig().getInt("particles.visualization-duration", 30);
     }
 
     /**
@@ -89,7 +80,7 @@ public class ParticleManager {
                 
                 drawSelectionBox(player, selection, Color.WHITE);
             }
-        }.runTaskTimer(plugin, 0L, updateInterval);
+        }.runTaskTimer(plugin, 0L, plugin.getSettings().getParticleUpdateInterval());
         
         selectionParticleTasks.put(player.getUniqueId(), task);
     }
@@ -132,7 +123,7 @@ public class ParticleManager {
             public void run() {
                 // Check for timeout
                 long startTime = volumeVisualizationStart.getOrDefault(key, System.currentTimeMillis());
-                if (System.currentTimeMillis() - startTime > visualizationDuration * 1000L) {
+                if (System.currentTimeMillis() - startTime > plugin.getSettings().getVisualizationDuration() * 1000L) {
                     stopVolumeVisualization(volumeName);
                     return;
                 }
@@ -150,7 +141,7 @@ public class ParticleManager {
                     }
                 }
             }
-        }.runTaskTimer(plugin, 0L, updateInterval);
+        }.runTaskTimer(plugin, 0L, plugin.getSettings().getParticleUpdateInterval());
         
         volumeParticleTasks.put(key, task);
     }
@@ -287,7 +278,7 @@ public class ParticleManager {
     private void drawLine(Player player, World world, double x1, double y1, double z1,
                           double x2, double y2, double z2, Particle.DustOptions dust) {
         double distance = Math.sqrt(Math.pow(x2 - x1, 2) + Math.pow(y2 - y1, 2) + Math.pow(z2 - z1, 2));
-        int particles = (int) (distance / density);
+        int particles = (int) (distance / plugin.getSettings().getParticleDensity());
         
         if (particles == 0) particles = 1;
         
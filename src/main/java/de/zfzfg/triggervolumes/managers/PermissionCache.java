@@ -0,0 +1,139 @@
+package de.zfzfg.triggervolumes.managers;
+
+import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
+import de.zfzfg.triggervolumes.models.PlayerState;
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Caches the permission checks made for every transition.
+ * triggervolumes.use and the permission nodes of all volumes are evaluated once per player
+ * into the player's state, and evaluated again on join, world change, volume changes
+ * and every few seconds to pick up changes made by permission plugins.
+ * Must only be used from the main thread.
+ * 
+ * @author zfzfg
+ */
+public class PermissionCache {
+
+    /**
+     * Permission a player needs to trigger any volume.
+     */
+    public static final String USE_PERMISSION = "triggervolumes.use";
+    
+    private final TriggerVolumesPlugin plugin;
+    
+    private BukkitTask refreshTask;
+
+    /**
+     * Creates a new PermissionCache. Call {@link #reload()} to start the periodic refresh.
+     * 
+     * @param plugin The plugin instance
+     */
+    public PermissionCache(TriggerVolumesPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Reads the refresh interval, restarts the refresh task and drops all cached permissions.
+     */
+    public void reload() {
+        stop();
+        invalidateAll();
+        
+        int interval = plugin.getSettings().getPermissionRefreshInterval();
+        if (interval <= 0) {
+            return;
+        }
+        
+        long ticks = interval * 20L;
+        refreshTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                invalidateAll();
+            }
+        }.runTaskTimer(plugin, ticks, ticks);
+    }
+
+    /**
+     * Stops the periodic refresh.
+     */
+    public void stop() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+
+    /**
+     * Checks if a player may trigger a volume, using the cached permissions.
+     * 
+     * @param player The player
+     * @param state The state of the player
+     * @param volume The volume
+     * @return True if the player has triggervolumes.use and the volume's permission node
+     */
+    public boolean canTrigger(Player player, PlayerState state, TriggerVolume volume) {
+        VolumeSnapshot snapshot = plugin.getVolumeManager().getSnapshot();
+        if (state.getPermissionVersion() != snapshot.getVersion()) {
+            fill(player, state, snapshot);
+        }
+        
+        if (!state.canUse()) {
+            return false;
+        }
+        return volume.getPermission() == null || state.isVolumeAllowed(volume.getId());
+    }
+
+    /**
+     * Evaluates all permissions of a player, e.g. when they join.
+     * 
+     * @param player The player
+     */
+    public void load(Player player) {
+        fill(player, plugin.getPlayerStateManager().getState(player.getUniqueId()),
+                plugin.getVolumeManager().getSnapshot());
+    }
+
+    /**
+     * Drops the cached permissions of a player.
+     * 
+     * @param player The player
+     */
+    public void invalidate(Player player) {
+        plugin.getPlayerStateManager().getState(player.getUniqueId()).invalidatePermissions();
+    }
+
+    /**
+     * Drops the cached permissions of all players.
+     */
+    public void invalidateAll() {
+        for (PlayerState state : plugin.getPlayerStateManager().getStates()) {
+            state.invalidatePermissions();
+        }
+    }
+
+    /**
+     * Evaluates triggervolumes.use and the permission node of every volume that has one.
+     * 
+     * @param player The player
+     * @param state The state to store the result in
+     * @param snapshot The volumes to evaluate
+     */
+    private void fill(Player player, PlayerState state, VolumeSnapshot snapshot) {
+        boolean canUse = player.hasPermission(USE_PERMISSION);
+        state.setPermissions(snapshot.getVersion(), canUse);
+        if (!canUse) {
+            return;
+        }
+        
+        for (TriggerVolume volume : snapshot.getVolumes()) {
+            String permission = volume.getPermission();
+            if (permission != null && player.hasPermission(permission)) {
+                state.allowVolume(volume.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package de.zfzfg.triggervolumes.managers;
+
+import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
+import de.zfzfg.triggervolumes.models.PlayerState;
+import de.zfzfg.triggervolumes.models.TriggerType;
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+import de.zfzfg.triggervolumes.utils.DeadlineMap;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Persists the running cooldowns and the fired one-shot volumes of players, so relogging
+ * or a restart doesn't reset them. Every player has a small binary file in the playerdata
+ * folder that is only read when they log in, so offline players take no memory at all.
+ * Files are read and written on a single storage thread in submission order, so the save
+ * on quit always lands before the load of the next login. The login thread waits for the
+ * load, so the data is in place before the player can trigger anything. Changes are not written right away:
+ * players are marked dirty and written in one batch every save interval, on quit and on disable.
+ * Must be used from the main thread.
+ * 
+ * @author zfzfg
+ */
+public class PlayerDataStore {
+
+    private static final int FORMAT_VERSION = 1;
+    
+    // Cooldown kinds in the files, action cooldowns store trigger ordinal << 24 | action cooldown id
+    private static final int KIND_ENTER = -1;
+    private static final int KIND_LEAVE = -2;
+    
+    private static final TriggerType[] TRIGGER_TYPES = TriggerType.values();
+    
+    private final TriggerVolumesPlugin plugin;
+    private final File folder;
+    
+    // Records read during login, waiting for the join, and records read for players already online
+    private final ConcurrentHashMap<UUID, PlayerRecord> preloaded;
+    private final ConcurrentLinkedQueue<LoadedRecord> loaded;
+    
+    private ExecutorService executor;
+    private BukkitTask tickTask;
+    private int ticksUntilSave;
+
+    /**
+     * Creates a new PlayerDataStore. Call {@link #start()} to start it.
+     * 
+     * @param plugin The plugin instance
+     */
+    public PlayerDataStore(TriggerVolumesPlugin plugin) {
+        this.plugin = plugin;
+        this.folder = new File(plugin.getDataFolder(), "playerdata");
+        this.preloaded = new ConcurrentHashMap<>();
+        this.loaded = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Starts the storage thread and the save task, and loads the data of the players already online.
+     */
+    public void start() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TriggerVolumes-Storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticksUntilSave = plugin.getSettings().getPlayerDataSaveInterval() * 20;
+        tickTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+        
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            load(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Saves all changed player data and waits for the storage thread to write it.
+     */
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        if (executor == null) {
+            return;
+        }
+        
+        for (PlayerState state : plugin.getPlayerStateManager().getStates()) {
+            save(state);
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Player data storage did not finish in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        preloaded.clear();
+        loaded.clear();
+    }
+
+    /**
+     * Reads the persisted data of a player who is logging in, after all pending writes.
+     * Blocks, so it must only be called from the asynchronous login thread.
+     * 
+     * @param playerId The player's UUID
+     */
+    public void preload(UUID playerId) {
+        ExecutorService storage = executor;
+        if (storage == null) {
+            return;
+        }
+        try {
+            PlayerRecord record = storage.submit(() -> read(playerId)).get(5, TimeUnit.SECONDS);
+            preloaded.put(playerId, record != null ? record : new PlayerRecord());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            // Loaded in the background after the join instead
+        }
+    }
+
+    /**
+     * Drops the preloaded data of a player whose login was denied.
+     * 
+     * @param playerId The player's UUID
+     */
+    public void discardPreload(UUID playerId) {
+        preloaded.remove(playerId);
+    }
+
+    /**
+     * Applies the persisted data of a joining player. If it wasn't preloaded during login,
+     * it is read in the background and applied on the main thread within the next ticks.
+     * 
+     * @param playerId The player's UUID
+     */
+    public void load(UUID playerId) {
+        PlayerState state = plugin.getPlayerStateManager().getState(playerId);
+        PlayerRecord record = preloaded.remove(playerId);
+        if (record != null) {
+            apply(state, record);
+            return;
+        }
+        execute(() -> loaded.add(new LoadedRecord(state, read(playerId))));
+    }
+
+    /**
+     * Writes the data of a player in the background if it changed since the last save.
+     * If the player's data wasn't loaded yet, it is merged into the file instead of replacing it.
+     * 
+     * @param state The player's state
+     */
+    public void save(PlayerState state) {
+        if (!state.isDataDirty()) {
+            return;
+        }
+        state.setDataDirty(false);
+        
+        UUID playerId = state.getPlayerId();
+        PlayerRecord record = createRecord(state);
+        boolean merge = !state.isDataLoaded();
+        execute(() -> write(playerId, record, merge));
+    }
+
+    /**
+     * Applies the loaded records and writes the changed player data once per save interval.
+     */
+    private void tick() {
+        LoadedRecord record;
+        while ((record = loaded.poll()) != null) {
+            // The player may have quit, or quit and joined again, while the file was read
+            UUID playerId = record.state.getPlayerId();
+            if (plugin.getServer().getPlayer(playerId) != null
+                    && plugin.getPlayerStateManager().getState(playerId) == record.state) {
+                apply(record.state, record.record);
+            }
+        }
+        
+        if (--ticksUntilSave <= 0) {
+            ticksUntilSave = plugin.getSettings().getPlayerDataSaveInterval() * 20;
+            for (PlayerState state : plugin.getPlayerStateManager().getStates()) {
+                save(state);
+            }
+        }
+    }
+
+    /**
+     * Applies a loaded record to the state of a player. Cooldowns started since the player
+     * joined are kept, cooldowns and volumes that don't exist anymore are skipped.
+     * 
+     * @param state The player's state
+     * @param record The loaded record, or null if the player has no data
+     */
+    private void apply(PlayerState state, PlayerRecord record) {
+        state.setDataLoaded();
+        if (record == null) {
+            return;
+        }
+        
+        TriggerVolumeManager volumeManager = plugin.getVolumeManager();
+        for (String volumeName : record.firedVolumes) {
+            TriggerVolume volume = volumeManager.getVolume(volumeName);
+            if (volume != null) {
+                state.setFired(volume.getId());
+            }
+        }
+        if (!plugin.getSettings().isPersistCooldowns()) {
+            return;
+        }
+        
+        long now = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        for (CooldownEntry entry : record.cooldowns.values()) {
+            TriggerVolume volume = volumeManager.getVolume(entry.volumeName);
+            if (volume == null || entry.expiresAt <= nowMillis) {
+                continue;
+            }
+            
+            long deadline = now + (entry.expiresAt - nowMillis) * 1_000_000L;
+            if (entry.kind == KIND_ENTER || entry.kind == KIND_LEAVE) {
+                boolean enter = entry.kind == KIND_ENTER;
+                if (!state.isOnCooldown(volume.getId(), enter, now)) {
+                    state.setCooldown(volume.getId(), enter, deadline);
+                }
+                continue;
+            }
+            
+            int triggerOrdinal = entry.kind >>> 24;
+            if (triggerOrdinal >= TRIGGER_TYPES.length) {
+                continue;
+            }
+            TriggerType trigger = TRIGGER_TYPES[triggerOrdinal];
+            int actionId = entry.kind & 0xFFFFFF;
+            if (!state.isActionOnCooldown(volume.getId(), trigger, actionId, now)) {
+                state.setActionCooldown(volume.getId(), trigger, actionId, deadline, now);
+            }
+        }
+    }
+
+    /**
+     * Collects the data of a player to persist, identifying volumes by name.
+     * 
+     * @param state The player's state
+     * @return The record
+     */
+    private PlayerRecord createRecord(PlayerState state) {
+        PlayerRecord record = new PlayerRecord();
+        TriggerVolumeManager volumeManager = plugin.getVolumeManager();
+        
+        BitSet fired = state.getFiredVolumeIds();
+        for (int id = fired.nextSetBit(0); id >= 0; id = fired.nextSetBit(id + 1)) {
+            TriggerVolume volume = volumeManager.getVolumeById(id);
+            if (volume != null) {
+                record.firedVolumes.add(volume.getName());
+            }
+        }
+        if (!plugin.getSettings().isPersistCooldowns()) {
+            return record;
+        }
+        
+        // Running cooldowns are stored as wall-clock expiry, nanoTime doesn't survive a restart
+        long now = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        int idLimit = volumeManager.getVolumeIdLimit();
+        for (int id = 0; id < idLimit; id++) {
+            TriggerVolume volume = volumeManager.getVolumeById(id);
+            if (volume == null) {
+                continue;
+            }
+            for (int kind = KIND_LEAVE; kind <= KIND_ENTER; kind++) {
+                long deadline = state.getCooldown(id, kind == KIND_ENTER);
+                if (DeadlineMap.isPending(deadline, now)) {
+                    record.add(volume.getName(), kind, nowMillis + (deadline - now) / 1_000_000L);
+                }
+            }
+        }
+        state.getActionCooldowns().forEachPending(now, (key, deadline) -> {
+            TriggerVolume volume = volumeManager.getVolumeById((int) (key >>> 32));
+            if (volume != null) {
+                record.add(volume.getName(), (int) key, nowMillis + (deadline - now) / 1_000_000L);
+            }
+        });
+        return record;
+    }
+
+    /**
+     * Reads the file of a player. Runs on the storage thread.
+     * 
+     * @param playerId The player's UUID
+     * @return The record, or null if the player has no data or it couldn't be read
+     */
+    private PlayerRecord read(UUID playerId) {
+        File file = new File(folder, playerId + ".dat");
+        if (!file.exists()) {
+            return null;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                plugin.getLogger().warning("Unknown player data version " + version + " in " + file.getName());
+                return null;
+            }
+            
+            PlayerRecord record = new PlayerRecord();
+            int firedCount = in.readInt();
+            for (int i = 0; i < firedCount; i++) {
+                record.firedVolumes.add(in.readUTF());
+            }
+            int cooldownCount = in.readInt();
+            for (int i = 0; i < cooldownCount; i++) {
+                record.add(in.readUTF(), in.readInt(), in.readLong());
+            }
+            return record;
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not load player data " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the file of a player, replacing it atomically. Runs on the storage thread.
+     * 
+     * @param playerId The player's UUID
+     * @param record The record to write
+     * @param merge True to merge the record with the data already in the file
+     */
+    private void write(UUID playerId, PlayerRecord record, boolean merge) {
+        if (merge) {
+            PlayerRecord existing = read(playerId);
+            if (existing != null) {
+                record.merge(existing);
+            }
+        }
+        
+        long nowMillis = System.currentTimeMillis();
+        record.cooldowns.values().removeIf(entry -> entry.expiresAt <= nowMillis);
+        
+        File file = new File(folder, playerId + ".dat");
+        if (record.firedVolumes.isEmpty() && record.cooldowns.isEmpty()) {
+            if (file.exists() && !file.delete()) {
+                plugin.getLogger().warning("Could not delete player data " + file.getName());
+            }
+            return;
+        }
+        
+        if (!folder.exists() && !folder.mkdirs()) {
+            plugin.getLogger().severe("Could not create the player data folder");
+            return;
+        }
+        File tempFile = new File(folder, playerId + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(record.firedVolumes.size());
+                for (String volumeName : record.firedVolumes) {
+                    out.writeUTF(volumeName);
+                }
+                out.writeInt(record.cooldowns.size());
+                for (CooldownEntry entry : record.cooldowns.values()) {
+                    out.writeUTF(entry.volumeName);
+                    out.writeInt(entry.kind);
+                    out.writeLong(entry.expiresAt);
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not save player data " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a job on the storage thread.
+     * 
+     * @param job The job
+     */
+    private void execute(Runnable job) {
+        if (executor == null) {
+            return;
+        }
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the data is saved by stop()
+        }
+    }
+
+    /**
+     * The persisted data of one player.
+     */
+    private static class PlayerRecord {
+        
+        private final Set<String> firedVolumes = new LinkedHashSet<>();
+        private final Map<String, CooldownEntry> cooldowns = new LinkedHashMap<>();
+
+        /**
+         * Adds a cooldown, keeping the later expiry if the record already has it.
+         * 
+         * @param volumeName The volume name
+         * @param kind The cooldown kind
+         * @param expiresAt The wall-clock time the cooldown runs out at, in milliseconds
+         */
+        private void add(String volumeName, int kind, long expiresAt) {
+            String key = volumeName + ':' + kind;
+            CooldownEntry entry = cooldowns.get(key);
+            if (entry == null || entry.expiresAt < expiresAt) {
+                cooldowns.put(key, new CooldownEntry(volumeName, kind, expiresAt));
+            }
+        }
+
+        /**
+         * Adds the fired volumes and cooldowns of another record.
+         * 
+         * @param other The other record
+         */
+        private void merge(PlayerRecord other) {
+            firedVolumes.addAll(other.firedVolumes);
+            for (CooldownEntry entry : other.cooldowns.values()) {
+                add(entry.volumeName, entry.kind, entry.expiresAt);
+            }
+        }
+    }
+
+    /**
+     * A persisted cooldown of one volume or action.
+     */
+    private static class CooldownEntry {
+        
+        private final String volumeName;
+        private final int kind;
+        private final long expiresAt;
+
+        /**
+         * Creates a new CooldownEntry.
+         * 
+         * @param volumeName The volume name
+         * @param kind KIND_ENTER, KIND_LEAVE or the trigger and cooldown id of an action
+         * @param expiresAt The wall-clock time the cooldown runs out at, in milliseconds
+         */
+        private CooldownEntry(String volumeName, int kind, long expiresAt) {
+            this.volumeName = volumeName;
+            this.kind = kind;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A record read on the storage thread, waiting to be applied.
+     */
+    private static class LoadedRecord {
+        
+        private final PlayerState state;
+        private final PlayerRecord record;
+
+        /**
+         * Creates a new LoadedRecord.
+         * 
+         * @param state The state of the player the record was loaded for
+         * @param record The record, or null if the player has no data
+         */
+        private LoadedRecord(PlayerState state, PlayerRecord record) {
+            this.state = state;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package de.zfzfg.triggervolumes.managers;
+
+import de.zfzfg.triggervolumes.models.PlayerState;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the runtime state of all online players.
+ * Every state gets a compact player slot, the lowest one not in use, so other parts of the
+ * plugin can keep per-player data in arrays instead of maps.
+ * 
+ * @author zfzfg
+ */
+public class PlayerStateManager {
+
+    private final Map<UUID, PlayerState> states;
+    private final BitSet usedSlots;
+
+    /**
+     * Creates a new PlayerStateManager.
+     */
+    public PlayerStateManager() {
+        this.states = new HashMap<>();
+        this.usedSlots = new BitSet();
+    }
+
+    /**
+     * Gets the state of a player, creating it on first access.
+     * 
+     * @param playerId The player's UUID
+     * @return The player state
+     */
+    public PlayerState getState(UUID playerId) {
+        PlayerState state = states.get(playerId);
+        if (state == null) {
+            int slot = usedSlots.nextClearBit(0);
+            usedSlots.set(slot);
+            state = new PlayerState(playerId, slot);
+            states.put(playerId, state);
+        }
+        return state;
+    }
+
+    /**
+     * Gets the states of all tracked players.
+     * 
+     * @return Collection of all player states
+     */
+    public Collection<PlayerState> getStates() {
+        return states.values();
+    }
+
+    /**
+     * Removes the state of a player and frees their slot.
+     * 
+     * @param playerId The player's UUID
+     */
+    public void removeState(UUID playerId) {
+        PlayerState state = states.remove(playerId);
+        if (state != null) {
+            usedSlots.clear(state.getSlot());
+        }
+    }
+
+    /**
+     * Removes the state of all players.
+     */
+    public void clear() {
+        states.clear();
+        usedSlots.clear();
+    }
+}
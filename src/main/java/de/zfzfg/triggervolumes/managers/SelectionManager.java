@@ -24,8 +24,6 @@ public class SelectionManager {
 
     private final TriggerVolumesPlugin plugin;
     private final Map<UUID, Selection> selections;
-    private final String toolName;
-    private final Material toolMaterial;
 
     /**
      * Creates a new SelectionManager.
@@ -35,12 +33,6 @@ public class SelectionManager {
     public SelectionManager(TriggerVolumesPlugin plugin) {
         this.plugin = plugin;
         this.selections = new HashMap<>();
-        
-        // Load tool settings from config
-        String materialName = plugin.getConfig().getString("selection-tool.material", "WOODEN_HOE");
-        this.toolMaterial = Material.valueOf(materialName);
-        this.toolName = ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfig().getString("selection-tool.name", "&6Selection Tool"));
     }
 
     /**
@@ -92,11 +84,11 @@ public class SelectionManager {
      * @return The selection tool ItemStack
      */
     public ItemStack createSelectionTool() {
-        ItemStack tool = new ItemStack(toolMaterial);
+        ItemStack tool = new ItemStack(plugin.getSettings().getToolMaterial());
         ItemMeta meta = tool.getItemMeta();
         
         if (meta != null) {
-            meta.setDisplayName(toolName);
+            meta.setDisplayName(plugin.getSettings().getToolName());
             
             List<String> lore = new ArrayList<>();
             lore.add(ChatColor.GRAY + "Left-click: Set Position 1");
@@ -118,7 +110,7 @@ public class SelectionManager {
      * @return True if the item is a selection tool
      */
     public boolean isSelectionTool(ItemStack item) {
-        if (item == null || item.getType() != toolMaterial) {
+        if (item == null || item.getType() != plugin.getSettings().getToolMaterial()) {
             return false;
         }
         
@@ -127,7 +119,7 @@ public class SelectionManager {
             return false;
         }
         
-        return meta.getDisplayName().equals(toolName);
+        return meta.getDisplayName().equals(plugin.getSettings().getToolName());
     }
 
     /**
@@ -146,7 +138,7 @@ public class SelectionManager {
      * @return The tool material
      */
     public Material getToolMaterial() {
-        return toolMaterial;
+        return plugin.getSettings().getToolMaterial();
     }
 
     /**
@@ -155,6 +147,6 @@ public class SelectionManager {
      * @return The tool display name
      */
     public String getToolName() {
-        return toolName;
+        return plugin.getSettings().getToolName();
     }
 }
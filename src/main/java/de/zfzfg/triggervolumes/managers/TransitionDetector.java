@@ -0,0 +1,309 @@
+package de.zfzfg.triggervolumes.managers;
+
+import de.zfzfg.triggervolumes.models.PlayerState;
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+import de.zfzfg.triggervolumes.spatial.SafeRegion;
+import de.zfzfg.triggervolumes.spatial.Segment;
+import de.zfzfg.triggervolumes.spatial.VolumeBuffer;
+import de.zfzfg.triggervolumes.utils.SortedIntSet;
+
+import java.util.Arrays;
+
+/**
+ * Works out which volumes a player entered and left since the last check and updates
+ * the player's membership. Only detects, running the actions is up to the caller.
+ * A player who leaves a volume with a hysteresis margin stays a member until they are past
+ * the margin, so jitter at the boundary does not fire leave and enter over and over.
+ * All buffers are reused, so a check without transitions does not allocate.
+ * Works on an immutable {@link VolumeSnapshot}, so it can run on any thread, but an instance
+ * is not thread-safe: every thread that detects transitions needs its own.
+ * 
+ * @author zfzfg
+ */
+public class TransitionDetector {
+
+    private final DetectionMetrics metrics;
+    private final VolumeBuffer currentVolumes;
+    private final SortedIntSet currentIds;
+    private final VolumeBuffer sweptVolumes;
+    private final Segment segment;
+    
+    // Volumes the player is outside of in this check but still within the margin of
+    private final SortedIntSet marginIds;
+    
+    // Transitions of the last check, ordered by where along the movement they happened
+    private double[] transitionTimes;
+    private TriggerVolume[] transitionVolumes;
+    private boolean[] transitionEnters;
+    private int transitionCount;
+
+    /**
+     * Creates a new TransitionDetector.
+     * 
+     * @param metrics The metrics to count suppressed transitions in
+     */
+    public TransitionDetector(DetectionMetrics metrics) {
+        this.metrics = metrics;
+        this.currentVolumes = new VolumeBuffer();
+        this.currentIds = new SortedIntSet();
+        this.sweptVolumes = new VolumeBuffer();
+        this.segment = new Segment();
+        this.marginIds = new SortedIntSet();
+        this.transitionTimes = new double[8];
+        this.transitionVolumes = new TriggerVolume[8];
+        this.transitionEnters = new boolean[8];
+    }
+
+    /**
+     * Checks a player at a single position.
+     * 
+     * @param snapshot The volume snapshot to query
+     * @param state The player's state
+     * @param worldId The world id of the position
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @return The number of transitions, see {@link #getVolume(int)} and {@link #isEnter(int)}
+     */
+    public int detect(VolumeSnapshot snapshot, PlayerState state, int worldId,
+                      double x, double y, double z) {
+        return detect(snapshot, state, worldId, false, 0.0, 0.0, 0.0, x, y, z);
+    }
+
+    /**
+     * Checks a player along the path from a previous to the current position, so volumes
+     * the player passed straight through still fire enter and leave.
+     * 
+     * @param snapshot The volume snapshot to query
+     * @param state The player's state
+     * @param worldId The world id of both positions
+     * @param fromX The previous X coordinate
+     * @param fromY The previous Y coordinate
+     * @param fromZ The previous Z coordinate
+     * @param x The current X coordinate
+     * @param y The current Y coordinate
+     * @param z The current Z coordinate
+     * @return The number of transitions, see {@link #getVolume(int)} and {@link #isEnter(int)}
+     */
+    public int detectSwept(VolumeSnapshot snapshot, PlayerState state, int worldId,
+                           double fromX, double fromY, double fromZ, double x, double y, double z) {
+        return detect(snapshot, state, worldId, true, fromX, fromY, fromZ, x, y, z);
+    }
+
+    /**
+     * Gets the volume of a transition of the last check.
+     * 
+     * @param index The transition index
+     * @return The volume entered or left
+     */
+    public TriggerVolume getVolume(int index) {
+        return transitionVolumes[index];
+    }
+
+    /**
+     * Checks if a transition of the last check is an enter.
+     * 
+     * @param index The transition index
+     * @return True for an enter, false for a leave
+     */
+    public boolean isEnter(int index) {
+        return transitionEnters[index];
+    }
+
+    /**
+     * Releases the volumes of the last check so they can be garbage collected.
+     */
+    public void clear() {
+        Arrays.fill(transitionVolumes, 0, transitionCount, null);
+        transitionCount = 0;
+    }
+
+    /**
+     * Updates a player's membership and records the transitions in path order,
+     * leaves before enters at the same point.
+     * Lookups are skipped entirely while the whole path stays inside the player's safe region.
+     * 
+     * @param snapshot The volume snapshot to query
+     * @param state The player's state
+     * @param worldId The world id
+     * @param sweep True to check the path from the previous position
+     * @param fromX The previous X coordinate
+     * @param fromY The previous Y coordinate
+     * @param fromZ The previous Z coordinate
+     * @param x The current X coordinate
+     * @param y The current Y coordinate
+     * @param z The current Z coordinate
+     * @return The number of transitions
+     */
+    private int detect(VolumeSnapshot snapshot, PlayerState state, int worldId, boolean sweep,
+                       double fromX, double fromY, double fromZ, double x, double y, double z) {
+        clear();
+        
+        // Nothing can have changed while the whole path stays inside the player's safe region
+        SafeRegion safeRegion = state.getSafeRegion();
+        if (snapshot.isInSafeRegion(safeRegion, worldId, x, y, z)
+                && (!sweep || safeRegion.contains(fromX, fromY, fromZ))) {
+            return 0;
+        }
+        
+        // Get volumes at the new location and along the path
+        int previousWorldId = safeRegion.getWorldId();
+        currentVolumes.clear();
+        snapshot.queryVolumes(worldId, x, y, z, currentVolumes);
+        snapshot.computeSafeRegion(worldId, x, y, z, safeRegion);
+        sweptVolumes.clear();
+        if (sweep) {
+            segment.set(fromX, fromY, fromZ, x, y, z);
+            snapshot.querySegment(worldId, segment, sweptVolumes);
+        }
+        
+        // Get the volumes the player was in
+        SortedIntSet previousIds = state.getVolumeIds();
+        if (previousIds.isEmpty() && currentVolumes.isEmpty() && sweptVolumes.isEmpty()) {
+            return 0;
+        }
+        
+        currentIds.clear();
+        marginIds.clear();
+        for (int i = 0; i < currentVolumes.size(); i++) {
+            currentIds.add(currentVolumes.get(i).getId());
+        }
+        
+        // Exits (volumes player was in but is no longer in)
+        int previousCount = previousIds.size();
+        int currentCount = currentIds.size();
+        int p = 0;
+        int c = 0;
+        while (p < previousCount) {
+            int previousId = previousIds.get(p);
+            while (c < currentCount && currentIds.get(c) < previousId) {
+                c++;
+            }
+            if (c >= currentCount || currentIds.get(c) != previousId) {
+                // Player just left this volume, skip it if it was deleted in the meantime
+                TriggerVolume volume = snapshot.getVolumeById(previousId);
+                if (volume != null) {
+                    if (worldId == previousWorldId && isInMargin(volume, x, y, z)) {
+                        keepInMargin(state, volume, x, y, z);
+                    } else {
+                        addTransition(sweep && segment.intersects(volume) ? segment.getExit() : 0.0, volume, false);
+                    }
+                }
+            }
+            p++;
+        }
+        
+        // New entries
+        for (int i = 0; i < currentVolumes.size(); i++) {
+            TriggerVolume volume = currentVolumes.get(i);
+            if (!previousIds.contains(volume.getId())) {
+                addTransition(sweep && segment.intersects(volume) ? segment.getEnter() : 1.0, volume, true);
+            }
+        }
+        
+        // Volumes the player passed straight through
+        for (int i = 0; i < sweptVolumes.size(); i++) {
+            TriggerVolume volume = sweptVolumes.get(i);
+            int id = volume.getId();
+            if (!previousIds.contains(id) && !currentIds.contains(id) && segment.intersects(volume)) {
+                addTransition(segment.getEnter(), volume, true);
+                if (isInMargin(volume, x, y, z)) {
+                    keepInMargin(state, volume, x, y, z);
+                } else {
+                    addTransition(segment.getExit(), volume, false);
+                }
+            }
+        }
+        
+        // Update the tracked volumes, the ones kept by their margin stay members
+        for (int i = 0; i < marginIds.size(); i++) {
+            currentIds.add(marginIds.get(i));
+        }
+        previousIds.copyFrom(currentIds);
+        state.getMarginVolumeIds().copyFrom(marginIds);
+        currentVolumes.clear();
+        sweptVolumes.clear();
+        
+        sortTransitions();
+        return transitionCount;
+    }
+
+    /**
+     * Checks if a player outside a volume is still within its hysteresis margin.
+     * 
+     * @param volume The volume the player is outside of
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @return True if leaving the volume does not count yet
+     */
+    private boolean isInMargin(TriggerVolume volume, double x, double y, double z) {
+        return volume.getHysteresis() > 0 && volume.containsWithMargin(x, y, z);
+    }
+
+    /**
+     * Keeps a player a member of a volume they are only within the margin of, and shrinks
+     * the safe region to the margin so getting past it is not missed.
+     * 
+     * @param state The player's state
+     * @param volume The volume the player is outside of
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     */
+    private void keepInMargin(PlayerState state, TriggerVolume volume, double x, double y, double z) {
+        marginIds.add(volume.getId());
+        double margin = volume.getHysteresis();
+        state.getSafeRegion().clip(volume.getMinX() - margin, volume.getMinY() - margin, volume.getMinZ() - margin,
+                volume.getMaxX() + 1 + margin, volume.getMaxY() + 1 + margin, volume.getMaxZ() + 1 + margin,
+                x, y, z);
+        
+        // Only the step out of the volume is suppressed, not every later check within the margin
+        if (!state.getMarginVolumeIds().contains(volume.getId())) {
+            metrics.recordSuppressed();
+        }
+    }
+
+    /**
+     * Records a transition of the current check.
+     * 
+     * @param time Where along the movement the transition happened (0 to 1)
+     * @param volume The volume entered or left
+     * @param enter True for an enter, false for a leave
+     */
+    private void addTransition(double time, TriggerVolume volume, boolean enter) {
+        if (transitionCount == transitionTimes.length) {
+            int capacity = transitionCount << 1;
+            transitionTimes = Arrays.copyOf(transitionTimes, capacity);
+            transitionVolumes = Arrays.copyOf(transitionVolumes, capacity);
+            transitionEnters = Arrays.copyOf(transitionEnters, capacity);
+        }
+        transitionTimes[transitionCount] = time;
+        transitionVolumes[transitionCount] = volume;
+        transitionEnters[transitionCount] = enter;
+        transitionCount++;
+    }
+
+    /**
+     * Sorts the recorded transitions by time, leaves before enters at the same time.
+     * Insertion sort, a single move rarely causes more than a few transitions.
+     */
+    private void sortTransitions() {
+        for (int i = 1; i < transitionCount; i++) {
+            double time = transitionTimes[i];
+            TriggerVolume volume = transitionVolumes[i];
+            boolean enter = transitionEnters[i];
+            int j = i - 1;
+            while (j >= 0 && (transitionTimes[j] > time
+                    || (transitionTimes[j] == time && transitionEnters[j] && !enter))) {
+                transitionTimes[j + 1] = transitionTimes[j];
+                transitionVolumes[j + 1] = transitionVolumes[j];
+                transitionEnters[j + 1] = transitionEnters[j];
+                j--;
+            }
+            transitionTimes[j + 1] = time;
+            transitionVolumes[j + 1] = volume;
+            transitionEnters[j + 1] = enter;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package de.zfzfg.triggervolumes.managers;
+
+import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
+import de.zfzfg.triggervolumes.models.PlayerState;
+import de.zfzfg.triggervolumes.models.Settings;
+import de.zfzfg.triggervolumes.models.TriggerAction;
+import de.zfzfg.triggervolumes.models.TriggerType;
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+import de.zfzfg.triggervolumes.utils.DeadlineMap;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Hands the enter and leave actions of a volume for a player to the ActionScheduler,
+ * honoring permissions, cooldowns and one-shot volumes. Cooldowns are System.nanoTime() deadlines: the
+ * per-player ones are kept in the player's PlayerState, the global ones of each volume here,
+ * both indexed by volume id. Delayed and repeating actions go to the ActionTimer,
+ * every transition cancels the pending timers of the opposite transition of the volume.
+ * Entering also starts the stay and tick triggers of the volume.
+ * Leaving a volume with an exit delay is handed to the ActionTimer and only committed once
+ * the player stayed outside that long; coming back earlier fires neither leave nor enter.
+ * Transitions share a per-tick time budget. Once it is used up, further transitions are
+ * queued in arrival order and processed first on the next tick, so no player is skipped twice
+ * and the transitions of each player keep their order.
+ * Must only be used from the main thread.
+ * 
+ * @author zfzfg
+ */
+public class TransitionDispatcher {
+
+    private final TriggerVolumesPlugin plugin;
+    
+    // Transitions over the budget, oldest first
+    private final ArrayDeque<DeferredTransition> deferred;
+    private BukkitTask tickTask;
+    private long budgetNanos;
+    private long spentNanos;
+    
+    // Deadlines of the global cooldowns, index = volume id * 2, +1 for leave
+    private long[] globalCooldowns;
+
+    /**
+     * Creates a new TransitionDispatcher.
+     * 
+     * @param plugin The plugin instance
+     */
+    public TransitionDispatcher(TriggerVolumesPlugin plugin) {
+        this.plugin = plugin;
+        this.deferred = new ArrayDeque<>();
+        this.globalCooldowns = new long[0];
+    }
+
+    /**
+     * Reads the transition budget and restarts the task processing deferred transitions.
+     */
+    public void reload() {
+        stop();
+        
+        budgetNanos = plugin.getSettings().getTransitionBudgetNanos();
+        tickTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                processDeferred();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * Stops the tick task and runs all deferred transitions right away.
+     */
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        budgetNanos = 0;
+        processDeferred();
+    }
+
+    /**
+     * Gets the number of transitions waiting for the next tick.
+     * 
+     * @return The queue length
+     */
+    public int getDeferredCount() {
+        return deferred.size();
+    }
+
+    /**
+     * Gets the time budget for transitions per tick.
+     * 
+     * @return The budget in microseconds, 0 if unlimited
+     */
+    public long getBudgetMicros() {
+        return budgetNanos / 1000L;
+    }
+
+    /**
+     * Runs the actions for a detected transition, or queues it for the next tick
+     * if this tick's budget is used up.
+     * 
+     * @param player The player
+     * @param volume The volume entered or left
+     * @param enter True if the player entered the volume, false if they left it
+     */
+    public void dispatch(Player player, TriggerVolume volume, boolean enter) {
+        // Once something is queued everything queues, so transitions stay in order
+        if (budgetNanos > 0 && (!deferred.isEmpty() || spentNanos >= budgetNanos)) {
+            deferred.add(new DeferredTransition(player.getUniqueId(), volume.getId(), enter));
+            plugin.getDetectionMetrics().recordDeferred(deferred.size());
+            return;
+        }
+        
+        process(player, volume, enter);
+    }
+
+    /**
+     * Runs the actions for a transition and charges the time to this tick's budget.
+     * 
+     * @param player The player
+     * @param volume The volume entered or left
+     * @param enter True if the player entered the volume, false if they left it
+     */
+    private void process(Player player, TriggerVolume volume, boolean enter) {
+        long start = System.nanoTime();
+        
+        // The one state lookup of this transition, everything below is indexed by volume id
+        PlayerState state = plugin.getPlayerStateManager().getState(player.getUniqueId());
+        
+        // Hold back leaving until the exit delay ran out, coming back before means it never happened
+        ActionTimer timer = plugin.getActionTimer();
+        if (!enter && volume.getExitDelay() > 0) {
+            timer.deferLeave(state, volume);
+        } else if (enter && timer.cancelDeferredLeave(state, volume.getId())) {
+            plugin.getDetectionMetrics().recordSuppressed();
+        } else {
+            runTransition(player, state, volume, enter);
+        }
+        
+        spentNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Commits a leave held back by the exit delay of a volume, the player stayed outside long enough.
+     * 
+     * @param player The player
+     * @param state The player's state
+     * @param volume The volume the player left
+     */
+    public void commitLeave(Player player, PlayerState state, TriggerVolume volume) {
+        long start = System.nanoTime();
+        runTransition(player, state, volume, false);
+        spentNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Cancels the timers of the opposite transition and runs the actions for a transition.
+     * 
+     * @param player The player
+     * @param state The player's state
+     * @param volume The volume entered or left
+     * @param enter True if the player entered the volume, false if they left it
+     */
+    private void runTransition(Player player, PlayerState state, TriggerVolume volume, boolean enter) {
+        // Back inside stops repeating leave actions, outside stops repeating enter actions
+        ActionTimer timer = plugin.getActionTimer();
+        timer.cancel(state, volume.getId(), !enter);
+        
+        // Check if player has permission to trigger, using the cached permissions
+        if (plugin.getPermissionCache().canTrigger(player, state, volume)) {
+            runActions(player, state, volume, enter);
+            if (enter) {
+                timer.startOccupancy(state, volume);
+            }
+        }
+    }
+
+    /**
+     * Starts a new tick budget and processes deferred transitions until it is used up.
+     */
+    private void processDeferred() {
+        spentNanos = 0;
+        
+        TriggerVolumeManager volumeManager = plugin.getVolumeManager();
+        while (!deferred.isEmpty() && (budgetNanos == 0 || spentNanos < budgetNanos)) {
+            DeferredTransition transition = deferred.poll();
+            Player player = plugin.getServer().getPlayer(transition.playerId);
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+            
+            // The volume may have been deleted or redefined since it was detected
+            TriggerVolume volume = volumeManager.getVolumeById(transition.volumeId);
+            if (volume != null) {
+                process(player, volume, transition.enter);
+            }
+        }
+    }
+
+    /**
+     * Hands the enter or leave actions of a volume to the scheduler or the timer, in order,
+     * unless they are on cooldown for the player.
+     * 
+     * @param player The player
+     * @param state The player's state
+     * @param volume The volume entered or left
+     * @param enter True for the enter actions, false for the leave actions
+     */
+    private void runActions(Player player, PlayerState state, TriggerVolume volume, boolean enter) {
+        List<TriggerAction> actions = enter ? volume.getEnterActions() : volume.getLeaveActions();
+        if (actions.isEmpty()) {
+            return;
+        }
+        
+        long now = System.nanoTime();
+        int index = (volume.getId() << 1) + (enter ? 0 : 1);
+        if (index < globalCooldowns.length && DeadlineMap.isPending(globalCooldowns[index], now)) {
+            return;
+        }
+        if (state.isOnCooldown(volume.getId(), enter, now)) {
+            return;
+        }
+        boolean oneShot = enter && volume.isOneShot();
+        if (oneShot && state.hasFired(volume.getId())) {
+            return;
+        }
+        plugin.getActionTimer().runActions(player, state, volume, enter ? TriggerType.ENTER : TriggerType.LEAVE);
+        
+        // Set cooldowns, changes to persist are written by the PlayerDataStore in batches
+        if (oneShot) {
+            state.setFired(volume.getId());
+            state.setDataDirty(true);
+        }
+        long cooldownNanos = getCooldownNanos(volume);
+        if (cooldownNanos > 0) {
+            state.setCooldown(volume.getId(), enter, now + cooldownNanos);
+            if (plugin.getSettings().isPersistCooldowns()) {
+                state.setDataDirty(true);
+            }
+        }
+        if (volume.getGlobalCooldown() > 0) {
+            if (index >= globalCooldowns.length) {
+                globalCooldowns = Arrays.copyOf(globalCooldowns, Math.max(index + 2, globalCooldowns.length << 1));
+            }
+            globalCooldowns[index] = now + volume.getGlobalCooldown() * Settings.NANOS_PER_TICK;
+        }
+    }
+
+    /**
+     * Gets the per-player cooldown of a volume, its own or the configured default.
+     * 
+     * @param volume The volume
+     * @return The cooldown in nanoseconds, 0 if the volume has none
+     */
+    private long getCooldownNanos(TriggerVolume volume) {
+        if (volume.getCooldown() != TriggerVolume.DEFAULT_COOLDOWN) {
+            return volume.getCooldown() * Settings.NANOS_PER_TICK;
+        }
+        Settings settings = plugin.getSettings();
+        return settings.isCooldownsEnabled() ? settings.getCooldownNanos() : 0L;
+    }
+
+    /**
+     * A transition waiting for the next tick's budget.
+     */
+    private static class DeferredTransition {
+        
+        private final UUID playerId;
+        private final int volumeId;
+        private final boolean enter;
+
+        /**
+         * Creates a new DeferredTransition.
+         * 
+         * @param playerId The player's UUID
+         * @param volumeId The id of the volume entered or left
+         * @param enter True for an enter, false for a leave
+         */
+        private DeferredTransition(UUID playerId, int volumeId, boolean enter) {
+            this.playerId = playerId;
+            this.volumeId = volumeId;
+            this.enter = enter;
+        }
+    }
+}
@@ -3,8 +3,16 @@ package de.zfzfg.triggervolumes.managers;
 import de.zfzfg.triggervolumes.TriggerVolumesPlugin;
 import de.zfzfg.triggervolumes.models.ActionType;
 import de.zfzfg.triggervolumes.models.TriggerAction;
+import de.zfzfg.triggervolumes.models.TriggerType;
 import de.zfzfg.triggervolumes.models.TriggerVolume;
 import de.zfzfg.triggervolumes.models.VolumeGroup;
+import de.zfzfg.triggervolumes.spatial.BvhIndex;
+import de.zfzfg.triggervolumes.spatial.GridIndex;
+import de.zfzfg.triggervolumes.spatial.HybridIndex;
+import de.zfzfg.triggervolumes.spatial.IndexStats;
+import de.zfzfg.triggervolumes.spatial.SpatialIndex;
+import de.zfzfg.triggervolumes.spatial.VolumeBuffer;
+import de.zfzfg.triggervolumes.utils.ActionMigrator;
 import org.bukkit.Location;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -13,11 +21,17 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Manages all trigger volumes including loading, saving, and CRUD operations.
  * Also manages volume groups for batch operations.
  * 
+ * All reads go to an immutable {@link VolumeSnapshot}, so they are safe from any thread.
+ * Changes are serialized by a write lock and published as a new snapshot, either after
+ * each change or once at the end of a batch (see {@link #beginBatch()}).
+ * Published volumes and groups are never modified, changes work on copies.
  * @author zfzfg
  */
 public class TriggerVolumeManager {
@@ -26,11 +40,30 @@ public class TriggerVolumeManager {
     private final Map<String, TriggerVolume> volumes;
     private final Map<String, VolumeGroup> groups;
     private final File volumesFile;
+    
+    // Volumes by runtime id, ids are never reused while the plugin is running
+    private TriggerVolume[] volumesById;
+    private int nextVolumeId;
     private FileConfiguration volumesConfig;
     
-    // Spatial hashing for performance optimization
-    private final Map<String, Map<Long, List<TriggerVolume>>> spatialHash;
-    private static final int CHUNK_SIZE = 16; // Minecraft chunk size
+    // Spatial index per world for performance optimization
+    private final Map<String, SpatialIndex> spatialIndexes;
+    
+    // Dense world ids so hot paths can reach a world's index through an array
+    private final Map<String, Integer> worldIds;
+    private SpatialIndex[] indexesByWorldId;
+    private String indexType;
+    private long largeVolumeSections;
+    
+    // Indexes are copied on write, only indexes created since the last publish may be modified
+    private final Set<SpatialIndex> writableIndexes;
+    private volatile VolumeSnapshot snapshot;
+    private long snapshotVersion;
+    
+    // Serializes all changes, batches hold it across several changes
+    private final ReentrantLock writeLock;
+    private int batchDepth;
+    private boolean changed;
 
     /**
      * Creates a new TriggerVolumeManager.
@@ -41,23 +74,51 @@ public class TriggerVolumeManager {
         this.plugin = plugin;
         this.volumes = new HashMap<>();
         this.groups = new HashMap<>();
-        this.spatialHash = new HashMap<>();
+        this.spatialIndexes = new HashMap<>();
+        this.worldIds = new ConcurrentHashMap<>();
+        this.indexesByWorldId = new SpatialIndex[4];
         this.volumesFile = new File(plugin.getDataFolder(), "triggervolumes.yml");
+        this.volumesById = new TriggerVolume[16];
+        this.nextVolumeId = 0;
+        this.writableIndexes = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.writeLock = new ReentrantLock();
+        publishSnapshot();
     }
 
     /**
-     * Loads all volumes from the configuration file.
+     * Loads all volumes from the configuration file and publishes them as a new snapshot.
      */
     public void loadVolumes() {
+        beginBatch();
+        try {
+            readVolumes();
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Replaces all volumes and groups with the contents of the configuration file.
+     * Must be called with the write lock held.
+     */
+    private void readVolumes() {
         if (!volumesFile.exists()) {
             plugin.saveResource("triggervolumes.yml", false);
         }
         
         volumesConfig = YamlConfiguration.loadConfiguration(volumesFile);
+        
+        // Keep the ids of volumes that survive a reload so tracked players stay consistent
+        Map<String, Integer> previousIds = new HashMap<>();
+        for (Map.Entry<String, TriggerVolume> entry : volumes.entrySet()) {
+            previousIds.put(entry.getKey(), entry.getValue().getId());
+        }
         volumes.clear();
+        Arrays.fill(volumesById, null);
         
         ConfigurationSection volumesSection = volumesConfig.getConfigurationSection("volumes");
         if (volumesSection == null) {
+            rebuildIndexes();
             return;
         }
         
@@ -74,65 +135,31 @@ public class TriggerVolumeManager {
             double maxZ = volumeSection.getDouble("maxZ");
             
             TriggerVolume volume = new TriggerVolume(name, worldName, minX, minY, minZ, maxX, maxY, maxZ);
+            volume.setPermission(volumeSection.getString("permission"));
             
-            // Load enter actions
+            // Load enter, leave, stay and tick actions
             ConfigurationSection enterActionsSection = volumeSection.getConfigurationSection("enterActions");
-            if (enterActionsSection != null) {
-                for (String actionKey : enterActionsSection.getKeys(false)) {
-                    ConfigurationSection actionSection = enterActionsSection.getConfigurationSection(actionKey);
-                    if (actionSection == null) continue;
-                    
-                    String typeStr = actionSection.getString("type");
-                    String value = actionSection.getString("value");
-                    
-                    try {
-                        ActionType type = ActionType.valueOf(typeStr);
-                        volume.addEnterAction(new TriggerAction(type, value));
-                    } catch (IllegalArgumentException e) {
-                        plugin.getLogger().warning("Invalid action type: " + typeStr);
-                    }
-                }
-            }
-            
-            // Load leave actions
-            ConfigurationSection leaveActionsSection = volumeSection.getConfigurationSection("leaveActions");
-            if (leaveActionsSection != null) {
-                for (String actionKey : leaveActionsSection.getKeys(false)) {
-                    ConfigurationSection actionSection = leaveActionsSection.getConfigurationSection(actionKey);
-                    if (actionSection == null) continue;
-                    
-                    String typeStr = actionSection.getString("type");
-                    String value = actionSection.getString("value");
-                    
-                    try {
-                        ActionType type = ActionType.valueOf(typeStr);
-                        volume.addLeaveAction(new TriggerAction(type, value));
-                    } catch (IllegalArgumentException e) {
-                        plugin.getLogger().warning("Invalid action type: " + typeStr);
-                    }
-                }
-            }
+            readActions(volume, TriggerType.ENTER, enterActionsSection);
+            readActions(volume, TriggerType.LEAVE, volumeSection.getConfigurationSection("leaveActions"));
+            readActions(volume, TriggerType.STAY, volumeSection.getConfigurationSection("stayActions"));
+            readActions(volume, TriggerType.TICK, volumeSection.getConfigurationSection("tickActions"));
+            volume.setStayTime(volumeSection.getInt("stayTime", TriggerVolume.DEFAULT_STAY_TIME));
+            volume.setTickInterval(volumeSection.getInt("tickInterval", TriggerVolume.DEFAULT_TICK_INTERVAL));
+            volume.setCooldown(volumeSection.getInt("cooldown", TriggerVolume.DEFAULT_COOLDOWN));
+            volume.setGlobalCooldown(volumeSection.getInt("globalCooldown", 0));
+            volume.setOneShot(volumeSection.getBoolean("oneShot", false));
+            volume.setHysteresis(volumeSection.getDouble("hysteresis", 0.0));
+            volume.setExitDelay(volumeSection.getInt("exitDelay", 0));
             
             // Legacy support: Load old "actions" section as enter actions
-            ConfigurationSection actionsSection = volumeSection.getConfigurationSection("actions");
-            if (actionsSection != null && enterActionsSection == null) {
-                for (String actionKey : actionsSection.getKeys(false)) {
-                    ConfigurationSection actionSection = actionsSection.getConfigurationSection(actionKey);
-                    if (actionSection == null) continue;
-                    
-                    String typeStr = actionSection.getString("type");
-                    String value = actionSection.getString("value");
-                    
-                    try {
-                        ActionType type = ActionType.valueOf(typeStr);
-                        volume.addEnterAction(new TriggerAction(type, value));
-                    } catch (IllegalArgumentException e) {
-                        plugin.getLogger().warning("Invalid action type: " + typeStr);
-                    }
-                }
+            if (enterActionsSection == null) {
+                readActions(volume, TriggerType.ENTER, volumeSection.getConfigurationSection("actions"));
             }
             
-            volumes.put(name.toLowerCase(), volume);
+            String key = name.toLowerCase();
+            Integer previousId = previousIds.get(key);
+            registerVolumeId(volume, previousId != null ? previousId : nextVolumeId++);
+            volumes.put(key, volume);
         }
         
         // Load groups
@@ -146,16 +173,86 @@ public class TriggerVolumeManager {
             }
         }
         
-        // Rebuild spatial hash after loading
-        rebuildSpatialHash();
+        // Full rebuild is only needed after a (re)load, all other mutations update incrementally
+        rebuildIndexes();
         
         plugin.getLogger().info("Loaded " + volumes.size() + " trigger volumes and " + groups.size() + " groups.");
     }
 
+    /**
+     * Reads the actions of a trigger type from a configuration section into a volume.
+     * 
+     * @param volume The volume
+     * @param trigger The trigger type of the actions
+     * @param actionsSection The section with the actions, may be null
+     */
+    private void readActions(TriggerVolume volume, TriggerType trigger, ConfigurationSection actionsSection) {
+        if (actionsSection == null) {
+            return;
+        }
+        
+        for (String actionKey : actionsSection.getKeys(false)) {
+            ConfigurationSection actionSection = actionsSection.getConfigurationSection(actionKey);
+            if (actionSection == null) continue;
+            
+            String typeStr = actionSection.getString("type");
+            String value = actionSection.getString("value");
+            int delay = actionSection.getInt("delay", 0);
+            int repeat = actionSection.getInt("repeat", 0);
+            int cooldown = actionSection.getInt("cooldown", 0);
+            
+            // The value is compiled when the action is created, so it has to be there
+            if (typeStr == null || value == null) {
+                plugin.getLogger().warning("Skipping action " + actionKey + " in volume " + volume.getName() 
+                        + ": missing " + (typeStr == null ? "type" : "value"));
+                continue;
+            }
+            
+            try {
+                ActionType type = ActionType.valueOf(typeStr);
+                volume.addAction(trigger, loadAction(volume.getName(), type, value, delay, repeat, cooldown));
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Invalid action type: " + typeStr);
+            }
+        }
+    }
+
+    /**
+     * Creates a loaded action, warning about values that can't be parsed.
+     * 
+     * @param volumeName The name of the volume the action belongs to
+     * @param type The action type
+     * @param value The action value
+     * @param delay The ticks before the first run
+     * @param repeat The ticks between repeated runs
+     * @param cooldown The ticks before the action runs again for the same player
+     * @return The action
+     */
+    private TriggerAction loadAction(String volumeName, ActionType type, String value, int delay, int repeat, int cooldown) {
+        TriggerAction action = new TriggerAction(type, value, delay, repeat, cooldown);
+        if (action.getError() != null) {
+            plugin.getLogger().warning("Invalid " + type.name() + " action in volume " + volumeName + ": " + action.getError());
+        }
+        return action;
+    }
+
     /**
      * Saves all volumes to the configuration file.
      */
     public void saveVolumes() {
+        writeLock.lock();
+        try {
+            writeVolumes();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the current volumes and groups to the configuration file.
+     * Must be called with the write lock held.
+     */
+    private void writeVolumes() {
         volumesConfig = new YamlConfiguration();
         
         ConfigurationSection volumesSection = volumesConfig.createSection("volumes");
@@ -170,25 +267,35 @@ public class TriggerVolumeManager {
             volumeSection.set("maxX", volume.getMaxX());
             volumeSection.set("maxY", volume.getMaxY());
             volumeSection.set("maxZ", volume.getMaxZ());
-            
-            // Save enter actions
-            ConfigurationSection enterActionsSection = volumeSection.createSection("enterActions");
-            List<TriggerAction> enterActions = volume.getEnterActions();
-            for (int i = 0; i < enterActions.size(); i++) {
-                TriggerAction action = enterActions.get(i);
-                ConfigurationSection actionSection = enterActionsSection.createSection(String.valueOf(i));
-                actionSection.set("type", action.getType().name());
-                actionSection.set("value", action.getValue());
+            if (volume.getPermission() != null) {
+                volumeSection.set("permission", volume.getPermission());
             }
             
-            // Save leave actions
-            ConfigurationSection leaveActionsSection = volumeSection.createSection("leaveActions");
-            List<TriggerAction> leaveActions = volume.getLeaveActions();
-            for (int i = 0; i < leaveActions.size(); i++) {
-                TriggerAction action = leaveActions.get(i);
-                ConfigurationSection actionSection = leaveActionsSection.createSection(String.valueOf(i));
-                actionSection.set("type", action.getType().name());
-                actionSection.set("value", action.getValue());
+            // Save enter, leave, stay and tick actions
+            writeActions(volumeSection.createSection("enterActions"), volume.getEnterActions());
+            writeActions(volumeSection.createSection("leaveActions"), volume.getLeaveActions());
+            if (!volume.getStayActions().isEmpty() || volume.getStayTime() != TriggerVolume.DEFAULT_STAY_TIME) {
+                writeActions(volumeSection.createSection("stayActions"), volume.getStayActions());
+                volumeSection.set("stayTime", volume.getStayTime());
+            }
+            if (!volume.getTickActions().isEmpty() || volume.getTickInterval() != TriggerVolume.DEFAULT_TICK_INTERVAL) {
+                writeActions(volumeSection.createSection("tickActions"), volume.getTickActions());
+                volumeSection.set("tickInterval", volume.getTickInterval());
+            }
+            if (volume.getCooldown() != TriggerVolume.DEFAULT_COOLDOWN) {
+                volumeSection.set("cooldown", volume.getCooldown());
+            }
+            if (volume.getGlobalCooldown() > 0) {
+                volumeSection.set("globalCooldown", volume.getGlobalCooldown());
+            }
+            if (volume.isOneShot()) {
+                volumeSection.set("oneShot", true);
+            }
+            if (volume.getHysteresis() > 0) {
+                volumeSection.set("hysteresis", volume.getHysteresis());
+            }
+            if (volume.getExitDelay() > 0) {
+                volumeSection.set("exitDelay", volume.getExitDelay());
             }
         }
         
@@ -205,6 +312,30 @@ public class TriggerVolumeManager {
         }
     }
 
+    /**
+     * Writes a list of actions into a configuration section, keyed by their index.
+     * 
+     * @param actionsSection The section to write to
+     * @param actions The actions
+     */
+    private void writeActions(ConfigurationSection actionsSection, List<TriggerAction> actions) {
+        for (int i = 0; i < actions.size(); i++) {
+            TriggerAction action = actions.get(i);
+            ConfigurationSection actionSection = actionsSection.createSection(String.valueOf(i));
+            actionSection.set("type", action.getType().name());
+            actionSection.set("value", action.getValue());
+            if (action.getDelay() > 0) {
+                actionSection.set("delay", action.getDelay());
+            }
+            if (action.getRepeat() > 0) {
+                actionSection.set("repeat", action.getRepeat());
+            }
+            if (action.getCooldown() > 0) {
+                actionSection.set("cooldown", action.getCooldown());
+            }
+        }
+    }
+
     /**
      * Creates a new trigger volume.
      * 
@@ -220,16 +351,57 @@ public class TriggerVolumeManager {
      */
     public boolean createVolume(String name, String worldName, double x1, double y1, double z1,
                                 double x2, double y2, double z2) {
-        String key = name.toLowerCase();
-        if (volumes.containsKey(key)) {
-            return false;
+        beginBatch();
+        try {
+            String key = name.toLowerCase();
+            if (volumes.containsKey(key)) {
+                return false;
+            }
+            
+            TriggerVolume volume = new TriggerVolume(name, worldName, x1, y1, z1, x2, y2, z2);
+            registerVolumeId(volume, nextVolumeId++);
+            volumes.put(key, volume);
+            indexVolume(volume);
+            markChanged();
+            return true;
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Moves or resizes an existing trigger volume while keeping its actions and settings.
+     * 
+     * @param name The name of the volume
+     * @param worldName The new world name
+     * @param x1 First X coordinate
+     * @param y1 First Y coordinate
+     * @param z1 First Z coordinate
+     * @param x2 Second X coordinate
+     * @param y2 Second Y coordinate
+     * @param z2 Second Z coordinate
+     * @return True if the volume was redefined, false if it doesn't exist
+     */
+    public boolean redefineVolume(String name, String worldName, double x1, double y1, double z1,
+                                  double x2, double y2, double z2) {
+        beginBatch();
+        try {
+            String key = name.toLowerCase();
+            TriggerVolume oldVolume = volumes.get(key);
+            if (oldVolume == null) {
+                return false;
+            }
+            
+            TriggerVolume newVolume = oldVolume.copyWithBounds(worldName, x1, y1, z1, x2, y2, z2);
+            
+            registerVolumeId(newVolume, oldVolume.getId());
+            volumes.put(key, newVolume);
+            reindexVolume(oldVolume, newVolume);
+            markChanged();
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        TriggerVolume volume = new TriggerVolume(name, worldName, x1, y1, z1, x2, y2, z2);
-        volumes.put(key, volume);
-        rebuildSpatialHash(); // Update spatial hash
-        saveVolumes();
-        return true;
     }
 
     /**
@@ -239,15 +411,21 @@ public class TriggerVolumeManager {
      * @return True if deleted successfully
      */
     public boolean deleteVolume(String name) {
-        String key = name.toLowerCase();
-        if (!volumes.containsKey(key)) {
-            return false;
+        beginBatch();
+        try {
+            String key = name.toLowerCase();
+            if (!volumes.containsKey(key)) {
+                return false;
+            }
+            
+            TriggerVolume volume = volumes.remove(key);
+            volumesById[volume.getId()] = null;
+            unindexVolume(volume);
+            markChanged();
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        volumes.remove(key);
-        rebuildSpatialHash(); // Update spatial hash
-        saveVolumes();
-        return true;
     }
 
     /**
@@ -257,7 +435,40 @@ public class TriggerVolumeManager {
      * @return The TriggerVolume, or null if not found
      */
     public TriggerVolume getVolume(String name) {
-        return volumes.get(name.toLowerCase());
+        return snapshot.getVolume(name);
+    }
+
+    /**
+     * Gets a trigger volume by its runtime id.
+     * 
+     * @param id The volume id
+     * @return The TriggerVolume, or null if no volume has this id (anymore)
+     */
+    public TriggerVolume getVolumeById(int id) {
+        return snapshot.getVolumeById(id);
+    }
+
+    /**
+     * Gets an upper bound for all volume ids, for sizing id-indexed arrays.
+     * 
+     * @return One more than the highest id handed out so far
+     */
+    public int getVolumeIdLimit() {
+        return nextVolumeId;
+    }
+
+    /**
+     * Assigns a runtime id to a volume and registers it in the id lookup.
+     * 
+     * @param volume The volume
+     * @param id The id to assign
+     */
+    private void registerVolumeId(TriggerVolume volume, int id) {
+        if (id >= volumesById.length) {
+            volumesById = Arrays.copyOf(volumesById, Math.max(id + 1, volumesById.length << 1));
+        }
+        volume.setId(id);
+        volumesById[id] = volume;
     }
 
     /**
@@ -267,103 +478,315 @@ public class TriggerVolumeManager {
      * @return True if the volume exists
      */
     public boolean volumeExists(String name) {
-        return volumes.containsKey(name.toLowerCase());
+        return snapshot.getVolume(name) != null;
     }
 
     /**
      * Gets all trigger volumes.
      * 
-     * @return Collection of all volumes
+     * @return Unmodifiable collection of all volumes
      */
     public Collection<TriggerVolume> getAllVolumes() {
-        return volumes.values();
+        return snapshot.getVolumes();
     }
 
     /**
      * Gets all volume names.
      * 
-     * @return Set of all volume names
+     * @return Unmodifiable set of all volume names
      */
     public Set<String> getVolumeNames() {
-        return volumes.keySet();
+        return snapshot.getVolumeNames();
     }
 
     /**
      * Gets all volumes that contain the given location.
-     * Uses spatial hashing for improved performance with many volumes.
+     * Uses the per-world spatial index for improved performance with many volumes.
      * 
      * @param location The location to check
      * @return List of volumes containing the location
      */
     public List<TriggerVolume> getVolumesAtLocation(Location location) {
-        List<TriggerVolume> result = new ArrayList<>();
-        
         if (location == null || location.getWorld() == null) {
-            return result;
+            return new ArrayList<>();
         }
         
-        String worldName = location.getWorld().getName();
-        Map<Long, List<TriggerVolume>> worldHash = spatialHash.get(worldName);
-        
-        if (worldHash == null) {
-            return result;
+        VolumeBuffer buffer = new VolumeBuffer();
+        queryVolumes(getWorldId(location.getWorld().getName()), 
+                location.getX(), location.getY(), location.getZ(), buffer);
+        return buffer.toList();
+    }
+
+    /**
+     * Collects all volumes containing a point into a caller-owned buffer.
+     * Does not allocate, so it is safe to call on every player movement.
+     * The buffer is not cleared, callers reusing it must clear it first.
+     * 
+     * @param worldId The world id from {@link #getWorldId(String)}
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param result The buffer to add the containing volumes to
+     */
+    public void queryVolumes(int worldId, double x, double y, double z, VolumeBuffer result) {
+        snapshot.queryVolumes(worldId, x, y, z, result);
+    }
+
+    /**
+     * Gets the current snapshot of the volume indexes.
+     * Snapshots are immutable and can be queried from any thread.
+     * 
+     * @return The latest published snapshot
+     */
+    public VolumeSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Starts a batch of changes. All changes until the matching {@link #endBatch()} are
+     * published as one snapshot and saved once. Blocks while another thread is changing volumes.
+     * Reads during the batch still see the last published snapshot.
+     */
+    public void beginBatch() {
+        writeLock.lock();
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch of changes, publishing and saving them if this was the outermost batch.
+     */
+    public void endBatch() {
+        try {
+            if (--batchDepth == 0 && changed) {
+                changed = false;
+                publishSnapshot();
+                writeVolumes();
+            }
+        } finally {
+            writeLock.unlock();
         }
-        
-        // Get chunk hash for the location
-        long chunkHash = getChunkHash(location);
-        List<TriggerVolume> candidates = worldHash.get(chunkHash);
-        
-        if (candidates == null) {
-            return result;
+    }
+
+    /**
+     * Records that the current batch changed volumes or groups.
+     */
+    private void markChanged() {
+        changed = true;
+    }
+
+    /**
+     * Publishes the current volumes, groups and indexes as a new snapshot.
+     * Must be called with the write lock held, the published objects become read-only.
+     */
+    private void publishSnapshot() {
+        snapshot = new VolumeSnapshot(Collections.unmodifiableMap(new HashMap<>(volumes)),
+                Collections.unmodifiableMap(new HashMap<>(groups)), indexesByWorldId.clone(), 
+                Arrays.copyOf(volumesById, nextVolumeId), ++snapshotVersion);
+        writableIndexes.clear();
+    }
+
+    /**
+     * Replaces a volume with a copy that may be modified.
+     * Must be called with the write lock held.
+     * 
+     * @param name The name of the volume
+     * @return The modifiable copy, or null if the volume doesn't exist
+     */
+    private TriggerVolume copyVolumeForChange(String name) {
+        String key = name.toLowerCase();
+        TriggerVolume volume = volumes.get(key);
+        if (volume == null) {
+            return null;
         }
         
-        // Check only volumes in the same chunk
-        for (TriggerVolume volume : candidates) {
-            if (volume.contains(location)) {
-                result.add(volume);
-            }
+        TriggerVolume copy = volume.copy();
+        registerVolumeId(copy, volume.getId());
+        volumes.put(key, copy);
+        reindexVolume(volume, copy);
+        markChanged();
+        return copy;
+    }
+
+    /**
+     * Gets the dense id of a world, assigning a new one the first time a world is seen.
+     * Ids stay stable for the lifetime of the manager.
+     * 
+     * @param worldName The world name
+     * @return The world id
+     */
+    public int getWorldId(String worldName) {
+        Integer id = worldIds.get(worldName);
+        if (id != null) {
+            return id;
         }
         
-        return result;
+        synchronized (worldIds) {
+            return worldIds.computeIfAbsent(worldName, name -> worldIds.size());
+        }
     }
-    
+
     /**
-     * Calculates a hash for the chunk containing the location.
+     * Sets the index of a world in the id-indexed array, growing it if needed.
+     * Must be called with the write lock held.
      * 
-     * @param location The location
-     * @return The chunk hash
+     * @param worldName The world name
+     * @param index The index, or null to remove it
      */
-    private long getChunkHash(Location location) {
-        int chunkX = (int) Math.floor(location.getX() / CHUNK_SIZE);
-        int chunkZ = (int) Math.floor(location.getZ() / CHUNK_SIZE);
-        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    private void setWorldIndex(String worldName, SpatialIndex index) {
+        int worldId = getWorldId(worldName);
+        if (worldId >= indexesByWorldId.length) {
+            indexesByWorldId = Arrays.copyOf(indexesByWorldId, Math.max(worldId + 1, indexesByWorldId.length << 1));
+        }
+        indexesByWorldId[worldId] = index;
     }
     
     /**
-     * Rebuilds the spatial hash for all volumes.
-     * Called after loading volumes or when volumes change.
+     * Rebuilds the spatial indexes for all volumes from scratch.
+     * Only used as a recovery path after (re)loading, single volume changes
+     * go through {@link #indexVolume(TriggerVolume)} and {@link #unindexVolume(TriggerVolume)}.
+     * Picks up changes to the index settings in the configuration and publishes a new snapshot.
+     */
+    public void rebuildSpatialIndex() {
+        writeLock.lock();
+        try {
+            rebuildIndexes();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds all spatial indexes and publishes a new snapshot.
+     * Must be called with the write lock held.
      */
-    private void rebuildSpatialHash() {
-        spatialHash.clear();
+    private void rebuildIndexes() {
+        indexType = plugin.getSettings().getIndexType();
+        largeVolumeSections = plugin.getSettings().getLargeVolumeSections();
+        spatialIndexes.clear();
+        Arrays.fill(indexesByWorldId, null);
         
         for (TriggerVolume volume : volumes.values()) {
-            String worldName = volume.getWorldName();
-            Map<Long, List<TriggerVolume>> worldHash = spatialHash.computeIfAbsent(worldName, k -> new HashMap<>());
-            
-            // Calculate all chunks the volume spans
-            int minChunkX = (int) Math.floor(volume.getMinX() / CHUNK_SIZE);
-            int maxChunkX = (int) Math.floor((volume.getMaxX() + 1) / CHUNK_SIZE);
-            int minChunkZ = (int) Math.floor(volume.getMinZ() / CHUNK_SIZE);
-            int maxChunkZ = (int) Math.floor((volume.getMaxZ() + 1) / CHUNK_SIZE);
-            
-            // Add volume to all chunks it spans
-            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
-                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
-                    long chunkHash = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
-                    worldHash.computeIfAbsent(chunkHash, k -> new ArrayList<>()).add(volume);
-                }
-            }
+            indexVolume(volume);
         }
+        publishSnapshot();
+    }
+
+    /**
+     * Creates an empty spatial index of the configured type.
+     * 
+     * @return The new spatial index
+     */
+    private SpatialIndex createSpatialIndex() {
+        switch (indexType) {
+            case "grid":
+                return new GridIndex();
+            case "tree":
+                return new BvhIndex();
+            case "auto":
+            default:
+                return new HybridIndex(largeVolumeSections);
+        }
+    }
+
+    /**
+     * Adds a single volume to the spatial index of its world.
+     * 
+     * @param volume The volume to add
+     */
+    private void indexVolume(TriggerVolume volume) {
+        SpatialIndex index = getWritableIndex(volume.getWorldName());
+        if (index == null) {
+            index = createSpatialIndex();
+            writableIndexes.add(index);
+            spatialIndexes.put(volume.getWorldName(), index);
+            setWorldIndex(volume.getWorldName(), index);
+        }
+        index.insert(volume);
+    }
+
+    /**
+     * Gets the index of a world for modification. An index that is part of a
+     * published snapshot is copied first, readers of the snapshot keep the original.
+     * 
+     * @param worldName The world name
+     * @return The modifiable index, or null if the world has no index
+     */
+    private SpatialIndex getWritableIndex(String worldName) {
+        SpatialIndex index = spatialIndexes.get(worldName);
+        if (index == null || writableIndexes.contains(index)) {
+            return index;
+        }
+        
+        SpatialIndex copy = index.copy();
+        writableIndexes.add(copy);
+        spatialIndexes.put(worldName, copy);
+        setWorldIndex(worldName, copy);
+        return copy;
+    }
+
+    /**
+     * Moves a volume within the spatial indexes, touching only the cells of the old and new bounds.
+     * 
+     * @param oldVolume The currently indexed volume
+     * @param newVolume The volume to index instead
+     */
+    private void reindexVolume(TriggerVolume oldVolume, TriggerVolume newVolume) {
+        SpatialIndex index = getWritableIndex(oldVolume.getWorldName());
+        if (index != null && oldVolume.getWorldName().equals(newVolume.getWorldName())) {
+            index.move(oldVolume, newVolume);
+        } else {
+            unindexVolume(oldVolume);
+            indexVolume(newVolume);
+        }
+    }
+
+    /**
+     * Removes a single volume from the spatial index of its world.
+     * Indexes that become empty are dropped.
+     * 
+     * @param volume The volume to remove
+     */
+    private void unindexVolume(TriggerVolume volume) {
+        SpatialIndex index = getWritableIndex(volume.getWorldName());
+        if (index == null) {
+            return;
+        }
+        
+        // Removes by identity, a volume with the same name may already be indexed again
+        index.remove(volume);
+        if (index.size() == 0) {
+            spatialIndexes.remove(volume.getWorldName());
+            setWorldIndex(volume.getWorldName(), null);
+        }
+    }
+
+    /**
+     * Collects statistics over the spatial indexes of all worlds.
+     * 
+     * @return The accumulated index statistics
+     */
+    public IndexStats getIndexStats() {
+        IndexStats stats = new IndexStats();
+        snapshot.collectStats(stats);
+        return stats;
+    }
+
+    /**
+     * Gets the number of worlds that have indexed volumes.
+     * 
+     * @return The indexed world count
+     */
+    public int getIndexedWorldCount() {
+        return snapshot.getIndexedWorldCount();
+    }
+
+    /**
+     * Gets the configured spatial index type.
+     * 
+     * @return The index type (auto, grid or tree)
+     */
+    public String getIndexType() {
+        return indexType;
     }
 
     /**
@@ -374,14 +797,18 @@ public class TriggerVolumeManager {
      * @return True if added successfully
      */
     public boolean addEnterAction(String volumeName, TriggerAction action) {
-        TriggerVolume volume = getVolume(volumeName);
-        if (volume == null) {
-            return false;
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            volume.addEnterAction(action);
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        volume.addEnterAction(action);
-        saveVolumes();
-        return true;
     }
 
     /**
@@ -392,14 +819,18 @@ public class TriggerVolumeManager {
      * @return True if added successfully
      */
     public boolean addLeaveAction(String volumeName, TriggerAction action) {
-        TriggerVolume volume = getVolume(volumeName);
-        if (volume == null) {
-            return false;
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            volume.addLeaveAction(action);
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        volume.addLeaveAction(action);
-        saveVolumes();
-        return true;
     }
 
     /**
@@ -415,6 +846,182 @@ public class TriggerVolumeManager {
         return addEnterAction(volumeName, action);
     }
 
+    /**
+     * Rewrites console command actions of all volumes into native action types where possible.
+     * 
+     * @return The number of console commands that were migrated
+     * @see ActionMigrator
+     */
+    public int migrateConsoleCommands() {
+        beginBatch();
+        try {
+            ActionMigrator migrator = new ActionMigrator();
+            for (String key : new ArrayList<>(volumes.keySet())) {
+                for (TriggerType trigger : TriggerType.values()) {
+                    List<TriggerAction> migrated = migrator.migrate(volumes.get(key).getActions(trigger));
+                    if (migrated == null) {
+                        continue;
+                    }
+                    
+                    TriggerVolume copy = copyVolumeForChange(key);
+                    copy.clearActions(trigger);
+                    for (TriggerAction action : migrated) {
+                        copy.addAction(trigger, action);
+                    }
+                }
+            }
+            return migrator.getMigratedCount();
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Adds an action for a trigger type to a volume.
+     * 
+     * @param volumeName The name of the volume
+     * @param trigger The trigger type
+     * @param action The action to add
+     * @return True if added successfully
+     */
+    public boolean addAction(String volumeName, TriggerType trigger, TriggerAction action) {
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            volume.addAction(trigger, action);
+            return true;
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Sets the stay time or the tick interval of a volume.
+     * 
+     * @param volumeName The name of the volume
+     * @param trigger STAY for the stay time, TICK for the tick interval
+     * @param ticks The time in ticks
+     * @return True if successful
+     */
+    public boolean setTriggerTime(String volumeName, TriggerType trigger, int ticks) {
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            if (trigger == TriggerType.STAY) {
+                volume.setStayTime(ticks);
+            } else {
+                volume.setTickInterval(ticks);
+            }
+            return true;
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Sets the per-player or the global cooldown of a volume.
+     * 
+     * @param volumeName The name of the volume
+     * @param global True for the global cooldown, false for the per-player cooldown
+     * @param ticks The cooldown in ticks, 0 for none, or {@link TriggerVolume#DEFAULT_COOLDOWN}
+     *              to use the configured default for the per-player cooldown
+     * @return True if successful
+     */
+    public boolean setCooldown(String volumeName, boolean global, int ticks) {
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            if (global) {
+                volume.setGlobalCooldown(ticks);
+            } else {
+                volume.setCooldown(ticks);
+            }
+            return true;
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Sets if the enter actions of a volume only run the first time a player enters it.
+     * 
+     * @param volumeName The name of the volume
+     * @param oneShot True to make the volume a one-shot volume
+     * @return True if successful
+     */
+    public boolean setOneShot(String volumeName, boolean oneShot) {
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            volume.setOneShot(oneShot);
+            return true;
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Sets the boundary hysteresis of a volume.
+     * 
+     * @param volumeName The name of the volume
+     * @param margin How far past the bounds a player has to get before leaving counts, in blocks
+     * @param exitDelay How long a player has to stay outside before leaving counts, in ticks
+     * @return True if successful
+     */
+    public boolean setHysteresis(String volumeName, double margin, int exitDelay) {
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            volume.setHysteresis(margin);
+            volume.setExitDelay(exitDelay);
+            return true;
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Sets the permission node a player needs to trigger a volume.
+     * 
+     * @param volumeName The name of the volume
+     * @param permission The permission node, or null to remove it
+     * @return True if successful
+     */
+    public boolean setVolumePermission(String volumeName, String permission) {
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            volume.setPermission(permission);
+            return true;
+        } finally {
+            endBatch();
+        }
+    }
+
     /**
      * Clears all enter actions from a volume.
      * 
@@ -422,14 +1029,18 @@ public class TriggerVolumeManager {
      * @return True if cleared successfully
      */
     public boolean clearEnterActions(String volumeName) {
-        TriggerVolume volume = getVolume(volumeName);
-        if (volume == null) {
-            return false;
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            volume.clearEnterActions();
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        volume.clearEnterActions();
-        saveVolumes();
-        return true;
     }
 
     /**
@@ -439,31 +1050,61 @@ public class TriggerVolumeManager {
      * @return True if cleared successfully
      */
     public boolean clearLeaveActions(String volumeName) {
-        TriggerVolume volume = getVolume(volumeName);
-        if (volume == null) {
-            return false;
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            volume.clearLeaveActions();
+            return true;
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Clears all actions of a trigger type from a volume.
+     * 
+     * @param volumeName The name of the volume
+     * @param trigger The trigger type
+     * @return True if cleared successfully
+     */
+    public boolean clearActions(String volumeName, TriggerType trigger) {
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            volume.clearActions(trigger);
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        volume.clearLeaveActions();
-        saveVolumes();
-        return true;
     }
 
     /**
-     * Clears all actions (both enter and leave) from a volume.
+     * Clears all actions (enter, leave, stay and tick) from a volume.
      * 
      * @param volumeName The name of the volume
      * @return True if cleared successfully
      */
     public boolean clearAllActions(String volumeName) {
-        TriggerVolume volume = getVolume(volumeName);
-        if (volume == null) {
-            return false;
+        beginBatch();
+        try {
+            TriggerVolume volume = copyVolumeForChange(volumeName);
+            if (volume == null) {
+                return false;
+            }
+            
+            volume.clearAllActions();
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        volume.clearAllActions();
-        saveVolumes();
-        return true;
     }
 
     /**
@@ -488,25 +1129,30 @@ public class TriggerVolumeManager {
      * @return True if created successfully, false if group exists or less than 2 volumes
      */
     public boolean createGroup(String groupName, List<String> volumeNames) {
-        String key = groupName.toLowerCase();
-        if (groups.containsKey(key)) {
-            return false;
-        }
-        
-        if (volumeNames.size() < 2) {
-            return false;
-        }
-        
-        // Verify all volumes exist
-        for (String volumeName : volumeNames) {
-            if (!volumeExists(volumeName)) {
+        beginBatch();
+        try {
+            String key = groupName.toLowerCase();
+            if (groups.containsKey(key)) {
                 return false;
             }
+            
+            if (volumeNames.size() < 2) {
+                return false;
+            }
+            
+            // Verify all volumes exist
+            for (String volumeName : volumeNames) {
+                if (!volumes.containsKey(volumeName.toLowerCase())) {
+                    return false;
+                }
+            }
+            
+            groups.put(key, new VolumeGroup(groupName, volumeNames));
+            markChanged();
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        groups.put(key, new VolumeGroup(groupName, volumeNames));
-        saveVolumes();
-        return true;
     }
 
     /**
@@ -516,14 +1162,19 @@ public class TriggerVolumeManager {
      * @return True if deleted successfully
      */
     public boolean deleteGroup(String groupName) {
-        String key = groupName.toLowerCase();
-        if (!groups.containsKey(key)) {
-            return false;
+        beginBatch();
+        try {
+            String key = groupName.toLowerCase();
+            if (!groups.containsKey(key)) {
+                return false;
+            }
+            
+            groups.remove(key);
+            markChanged();
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        groups.remove(key);
-        saveVolumes();
-        return true;
     }
 
     /**
@@ -533,7 +1184,7 @@ public class TriggerVolumeManager {
      * @return The VolumeGroup, or null if not found
      */
     public VolumeGroup getGroup(String groupName) {
-        return groups.get(groupName.toLowerCase());
+        return snapshot.getGroup(groupName);
     }
 
     /**
@@ -543,7 +1194,7 @@ public class TriggerVolumeManager {
      * @return True if the group exists
      */
     public boolean groupExists(String groupName) {
-        return groups.containsKey(groupName.toLowerCase());
+        return snapshot.getGroup(groupName) != null;
     }
 
     /**
@@ -554,23 +1205,31 @@ public class TriggerVolumeManager {
      * @return True if added successfully, false if group doesn't exist, volume doesn't exist, or volume already in group
      */
     public boolean addVolumeToGroup(String groupName, String volumeName) {
-        String key = groupName.toLowerCase();
-        if (!groups.containsKey(key)) {
-            return false;
-        }
-        
-        if (!volumeExists(volumeName)) {
-            return false;
-        }
-        
-        VolumeGroup group = groups.get(key);
-        if (group.containsVolume(volumeName)) {
-            return false; // Already in group
+        beginBatch();
+        try {
+            String key = groupName.toLowerCase();
+            if (!groups.containsKey(key)) {
+                return false;
+            }
+            
+            if (!volumes.containsKey(volumeName.toLowerCase())) {
+                return false;
+            }
+            
+            VolumeGroup group = groups.get(key);
+            if (group.containsVolume(volumeName)) {
+                return false; // Already in group
+            }
+            
+            // Published groups are read-only, change a copy
+            group = group.copy();
+            group.addVolume(volumeName);
+            groups.put(key, group);
+            markChanged();
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        group.addVolume(volumeName);
-        saveVolumes();
-        return true;
     }
 
     /**
@@ -581,34 +1240,42 @@ public class TriggerVolumeManager {
      * @return True if removed successfully, false if group doesn't exist or volume not in group
      */
     public boolean removeVolumeFromGroup(String groupName, String volumeName) {
-        String key = groupName.toLowerCase();
-        if (!groups.containsKey(key)) {
-            return false;
-        }
-        
-        VolumeGroup group = groups.get(key);
-        if (!group.containsVolume(volumeName)) {
-            return false; // Not in group
-        }
-        
-        group.removeVolume(volumeName);
-        
-        // Delete group if it has less than 2 volumes
-        if (group.getVolumeNames().size() < 2) {
-            groups.remove(key);
+        beginBatch();
+        try {
+            String key = groupName.toLowerCase();
+            if (!groups.containsKey(key)) {
+                return false;
+            }
+            
+            VolumeGroup group = groups.get(key);
+            if (!group.containsVolume(volumeName)) {
+                return false; // Not in group
+            }
+            
+            // Published groups are read-only, change a copy
+            group = group.copy();
+            group.removeVolume(volumeName);
+            groups.put(key, group);
+            
+            // Delete group if it has less than 2 volumes
+            if (group.getVolumeNames().size() < 2) {
+                groups.remove(key);
+            }
+            
+            markChanged();
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        saveVolumes();
-        return true;
     }
 
     /**
      * Gets all group names.
      * 
-     * @return Set of all group names
+     * @return Unmodifiable set of all group names
      */
     public Set<String> getGroupNames() {
-        return groups.keySet();
+        return snapshot.getGroupNames();
     }
 
     /**
@@ -629,28 +1296,36 @@ public class TriggerVolumeManager {
      * @return True if cloned successfully
      */
     public boolean cloneActions(String sourceVolumeName, String targetVolumeName) {
-        TriggerVolume source = getVolume(sourceVolumeName);
-        TriggerVolume target = getVolume(targetVolumeName);
-        
-        if (source == null || target == null) {
-            return false;
-        }
-        
-        // Clear existing actions
-        target.clearAllActions();
-        
-        // Copy enter actions
-        for (TriggerAction action : source.getEnterActions()) {
-            target.addEnterAction(new TriggerAction(action.getType(), action.getValue()));
-        }
-        
-        // Copy leave actions
-        for (TriggerAction action : source.getLeaveActions()) {
-            target.addLeaveAction(new TriggerAction(action.getType(), action.getValue()));
+        beginBatch();
+        try {
+            TriggerVolume source = volumes.get(sourceVolumeName.toLowerCase());
+            if (source == null || !volumes.containsKey(targetVolumeName.toLowerCase())) {
+                return false;
+            }
+            TriggerVolume target = copyVolumeForChange(targetVolumeName);
+            
+            // Clear existing actions
+            target.clearAllActions();
+            
+            // Copy the actions of every trigger type
+            for (TriggerType trigger : TriggerType.values()) {
+                for (TriggerAction action : source.getActions(trigger)) {
+                    target.addAction(trigger, new TriggerAction(action.getType(), action.getValue(), 
+                            action.getDelay(), action.getRepeat(), action.getCooldown()));
+                }
+            }
+            target.setStayTime(source.getStayTime());
+            target.setTickInterval(source.getTickInterval());
+            target.setCooldown(source.getCooldown());
+            target.setGlobalCooldown(source.getGlobalCooldown());
+            target.setOneShot(source.isOneShot());
+            target.setHysteresis(source.getHysteresis());
+            target.setExitDelay(source.getExitDelay());
+            
+            return true;
+        } finally {
+            endBatch();
         }
-        
-        saveVolumes();
-        return true;
     }
 
     /**
@@ -662,9 +1337,9 @@ public class TriggerVolumeManager {
     public List<String> getGroupsForVolume(String volumeName) {
         List<String> groupNames = new ArrayList<>();
         
-        for (Map.Entry<String, VolumeGroup> entry : groups.entrySet()) {
-            if (entry.getValue().containsVolume(volumeName)) {
-                groupNames.add(entry.getValue().getName());
+        for (VolumeGroup group : snapshot.getGroups()) {
+            if (group.containsVolume(volumeName)) {
+                groupNames.add(group.getName());
             }
         }
         
@@ -0,0 +1,240 @@
+package de.zfzfg.triggervolumes.managers;
+
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+import de.zfzfg.triggervolumes.models.VolumeGroup;
+import de.zfzfg.triggervolumes.spatial.IndexStats;
+import de.zfzfg.triggervolumes.spatial.GridIndex;
+import de.zfzfg.triggervolumes.spatial.SafeRegion;
+import de.zfzfg.triggervolumes.spatial.Segment;
+import de.zfzfg.triggervolumes.spatial.SpatialIndex;
+import de.zfzfg.triggervolumes.spatial.VolumeBuffer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable view of the volumes, groups and indexes at one point in time.
+ * The TriggerVolumeManager publishes a new snapshot after every change and never
+ * modifies a published one, so snapshots can be queried from any thread without locks.
+ * 
+ * @author zfzfg
+ */
+public final class VolumeSnapshot {
+
+    // Half edge length of the box a safe region starts from before it is clipped
+    private static final double SAFE_REGION_RADIUS = 3.0 * GridIndex.SECTION_SIZE;
+
+    private final Map<String, TriggerVolume> volumes;
+    private final Map<String, VolumeGroup> groups;
+    private final SpatialIndex[] indexesByWorldId;
+    private final TriggerVolume[] volumesById;
+    private final long version;
+
+    /**
+     * Creates a new VolumeSnapshot. The maps and arrays must not be modified afterwards.
+     * 
+     * @param volumes The volumes by lowercase name
+     * @param groups The groups by lowercase name
+     * @param indexesByWorldId The spatial index of each world id
+     * @param volumesById The volume of each volume id
+     * @param version The snapshot version
+     */
+    VolumeSnapshot(Map<String, TriggerVolume> volumes, Map<String, VolumeGroup> groups,
+                   SpatialIndex[] indexesByWorldId, TriggerVolume[] volumesById, long version) {
+        this.volumes = volumes;
+        this.groups = groups;
+        this.indexesByWorldId = indexesByWorldId;
+        this.volumesById = volumesById;
+        this.version = version;
+    }
+
+    /**
+     * Collects all volumes containing a point into a caller-owned buffer.
+     * The buffer is not cleared, callers reusing it must clear it first.
+     * 
+     * @param worldId The world id from {@link TriggerVolumeManager#getWorldId(String)}
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param result The buffer to add the containing volumes to
+     */
+    public void queryVolumes(int worldId, double x, double y, double z, VolumeBuffer result) {
+        SpatialIndex index = getIndex(worldId);
+        if (index != null) {
+            index.query(x, y, z, result);
+        }
+    }
+
+    /**
+     * Collects all volumes a segment runs through into a caller-owned buffer.
+     * The buffer is not cleared, callers reusing it must clear it first.
+     * 
+     * @param worldId The world id from {@link TriggerVolumeManager#getWorldId(String)}
+     * @param segment The segment, e.g. from the previous to the current player position
+     * @param result The buffer to add the crossed volumes to
+     */
+    public void querySegment(int worldId, Segment segment, VolumeBuffer result) {
+        SpatialIndex index = getIndex(worldId);
+        if (index != null) {
+            index.querySegment(segment, result);
+        }
+    }
+
+    /**
+     * Computes the safe region around a point, the box in which the set of containing
+     * volumes cannot change.
+     * 
+     * @param worldId The world id from {@link TriggerVolumeManager#getWorldId(String)}
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param region The region to overwrite
+     */
+    public void computeSafeRegion(int worldId, double x, double y, double z, SafeRegion region) {
+        region.set(x - SAFE_REGION_RADIUS, y - SAFE_REGION_RADIUS, z - SAFE_REGION_RADIUS,
+                x + SAFE_REGION_RADIUS, y + SAFE_REGION_RADIUS, z + SAFE_REGION_RADIUS);
+        region.setOrigin(worldId, version);
+        
+        SpatialIndex index = getIndex(worldId);
+        if (index != null) {
+            index.computeSafeRegion(x, y, z, region);
+        }
+    }
+
+    /**
+     * Checks if a point is still inside a safe region computed for this snapshot.
+     * Regions of older snapshots are stale, volumes may have changed since.
+     * 
+     * @param region The safe region
+     * @param worldId The world id of the point
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @return True if the volumes at the point are known to be unchanged
+     */
+    public boolean isInSafeRegion(SafeRegion region, int worldId, double x, double y, double z) {
+        return region.getVersion() == version
+                && region.getWorldId() == worldId
+                && region.contains(x, y, z);
+    }
+
+    /**
+     * Gets a trigger volume by its runtime id.
+     * 
+     * @param id The volume id
+     * @return The TriggerVolume, or null if no volume has this id in this snapshot
+     */
+    public TriggerVolume getVolumeById(int id) {
+        if (id < 0 || id >= volumesById.length) {
+            return null;
+        }
+        return volumesById[id];
+    }
+
+    /**
+     * Gets a trigger volume by name.
+     * 
+     * @param name The volume name (case-insensitive)
+     * @return The TriggerVolume, or null if not found
+     */
+    public TriggerVolume getVolume(String name) {
+        return volumes.get(name.toLowerCase());
+    }
+
+    /**
+     * Gets all trigger volumes of this snapshot.
+     * 
+     * @return Unmodifiable collection of all volumes
+     */
+    public Collection<TriggerVolume> getVolumes() {
+        return volumes.values();
+    }
+
+    /**
+     * Gets the lowercase names of all volumes of this snapshot.
+     * 
+     * @return Unmodifiable set of all volume names
+     */
+    public Set<String> getVolumeNames() {
+        return volumes.keySet();
+    }
+
+    /**
+     * Gets a volume group by name.
+     * 
+     * @param name The group name (case-insensitive)
+     * @return The VolumeGroup, or null if not found
+     */
+    public VolumeGroup getGroup(String name) {
+        return groups.get(name.toLowerCase());
+    }
+
+    /**
+     * Gets all volume groups of this snapshot.
+     * 
+     * @return Unmodifiable collection of all groups
+     */
+    public Collection<VolumeGroup> getGroups() {
+        return groups.values();
+    }
+
+    /**
+     * Gets the lowercase names of all groups of this snapshot.
+     * 
+     * @return Unmodifiable set of all group names
+     */
+    public Set<String> getGroupNames() {
+        return groups.keySet();
+    }
+
+    /**
+     * Adds the statistics of all world indexes to the given stats.
+     * 
+     * @param stats The stats to add to
+     */
+    public void collectStats(IndexStats stats) {
+        for (SpatialIndex index : indexesByWorldId) {
+            if (index != null) {
+                index.collectStats(stats);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of worlds that have a spatial index.
+     * 
+     * @return The number of indexed worlds
+     */
+    public int getIndexedWorldCount() {
+        int count = 0;
+        for (SpatialIndex index : indexesByWorldId) {
+            if (index != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the version of this snapshot, newer snapshots have higher versions.
+     * 
+     * @return The snapshot version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the spatial index of a world.
+     * 
+     * @param worldId The world id
+     * @return The index, or null if the world has no volumes
+     */
+    private SpatialIndex getIndex(int worldId) {
+        if (worldId < 0 || worldId >= indexesByWorldId.length) {
+            return null;
+        }
+        return indexesByWorldId[worldId];
+    }
+}
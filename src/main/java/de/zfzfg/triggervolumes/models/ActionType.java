@@ -24,5 +24,35 @@ public enum ActionType {
     /**
      * Teleports the player to specified coordinates.
      */
-    TELEPORT
+    TELEPORT,
+    
+    /**
+     * Gives the player a potion effect.
+     */
+    POTION_EFFECT,
+    
+    /**
+     * Plays a sound to the player.
+     */
+    SOUND,
+    
+    /**
+     * Shows a title and subtitle to the player.
+     */
+    TITLE,
+    
+    /**
+     * Shows a message in the player's action bar.
+     */
+    ACTIONBAR,
+    
+    /**
+     * Gives the player an item.
+     */
+    GIVE_ITEM,
+    
+    /**
+     * Sets the player's velocity.
+     */
+    VELOCITY
 }
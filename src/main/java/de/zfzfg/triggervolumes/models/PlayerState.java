@@ -0,0 +1,386 @@
+package de.zfzfg.triggervolumes.models;
+
+import de.zfzfg.triggervolumes.spatial.SafeRegion;
+import de.zfzfg.triggervolumes.utils.DeadlineMap;
+import de.zfzfg.triggervolumes.utils.SortedIntSet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.UUID;
+
+/**
+ * Holds the runtime state the plugin tracks for one online player: the volumes they are
+ * inside, the detection state, cached permissions, the cooldowns and the one-shot volumes
+ * that already fired for them. Per-volume data is
+ * indexed by the dense volume id, so a transition needs no map lookups once the state is known.
+ * 
+ * @author zfzfg
+ */
+public class PlayerState {
+
+    private final UUID playerId;
+    
+    // Compact index assigned by the PlayerStateManager, reused after the player quit
+    private final int slot;
+    
+    // Ids of the volumes the player is currently inside
+    private final SortedIntSet volumeIds;
+    
+    // Ids of the volumes above the player is only still inside of because of their hysteresis margin
+    private final SortedIntSet marginVolumeIds;
+    
+    // Box around the player in which the volume ids above cannot change
+    private final SafeRegion safeRegion;
+    
+    // Position at the last scan, the start of the path swept by the next scan
+    private int lastWorldId;
+    private double lastX, lastY, lastZ;
+    
+    // Cached permission checks, valid for the volume snapshot version they were made for
+    private long permissionVersion;
+    private boolean canUse;
+    private final BitSet allowedVolumeIds;
+    
+    // System.nanoTime() deadlines of the enter and leave cooldowns, index = volume id * 2, +1 for leave
+    private long[] cooldowns;
+    
+    // Deadlines of per-action cooldowns, keyed by volume id, trigger and action cooldown id
+    private final DeadlineMap actionCooldowns;
+    
+    // Ids of the one-shot volumes whose enter actions already ran for the player
+    private final BitSet firedVolumeIds;
+    
+    // Whether the persisted data was applied, and whether there are changes to persist
+    private boolean dataLoaded;
+    private boolean dataDirty;
+
+    /**
+     * Creates a new PlayerState.
+     * 
+     * @param playerId The player's UUID
+     * @param slot The player slot
+     */
+    public PlayerState(UUID playerId, int slot) {
+        this.playerId = playerId;
+        this.slot = slot;
+        this.volumeIds = new SortedIntSet();
+        this.marginVolumeIds = new SortedIntSet();
+        this.safeRegion = new SafeRegion();
+        this.lastWorldId = -1;
+        this.permissionVersion = -1;
+        this.allowedVolumeIds = new BitSet();
+        this.cooldowns = new long[0];
+        this.actionCooldowns = new DeadlineMap();
+        this.firedVolumeIds = new BitSet();
+    }
+
+    /**
+     * Gets the player's UUID.
+     * 
+     * @return The player UUID
+     */
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * Gets the player slot, a small index that is unique among the online players.
+     * 
+     * @return The player slot
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Gets the ids of the volumes the player is currently inside.
+     * 
+     * @return The volume id set
+     */
+    public SortedIntSet getVolumeIds() {
+        return volumeIds;
+    }
+
+    /**
+     * Gets the ids of the volumes the player has left, but is still counted as inside
+     * because they are within the hysteresis margin.
+     * 
+     * @return The volume id set, a subset of {@link #getVolumeIds()}
+     */
+    public SortedIntSet getMarginVolumeIds() {
+        return marginVolumeIds;
+    }
+
+    /**
+     * Gets the cached safe region of the player.
+     * 
+     * @return The safe region
+     */
+    public SafeRegion getSafeRegion() {
+        return safeRegion;
+    }
+
+    /**
+     * Gets the world id of the position recorded at the last scan.
+     * 
+     * @return The world id, or -1 if there is no usable last position
+     */
+    public int getLastWorldId() {
+        return lastWorldId;
+    }
+
+    /**
+     * Gets the X coordinate recorded at the last scan.
+     * 
+     * @return The X coordinate
+     */
+    public double getLastX() {
+        return lastX;
+    }
+
+    /**
+     * Gets the Y coordinate recorded at the last scan.
+     * 
+     * @return The Y coordinate
+     */
+    public double getLastY() {
+        return lastY;
+    }
+
+    /**
+     * Gets the Z coordinate recorded at the last scan.
+     * 
+     * @return The Z coordinate
+     */
+    public double getLastZ() {
+        return lastZ;
+    }
+
+    /**
+     * Records the position of the player at a scan.
+     * 
+     * @param worldId The world id
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     */
+    public void setLastPosition(int worldId, double x, double y, double z) {
+        this.lastWorldId = worldId;
+        this.lastX = x;
+        this.lastY = y;
+        this.lastZ = z;
+    }
+
+    /**
+     * Gets the volume snapshot version the cached permissions were evaluated for.
+     * 
+     * @return The snapshot version, or -1 if the permissions are not cached
+     */
+    public long getPermissionVersion() {
+        return permissionVersion;
+    }
+
+    /**
+     * Checks the cached triggervolumes.use permission.
+     * 
+     * @return True if the player may trigger volumes at all
+     */
+    public boolean canUse() {
+        return canUse;
+    }
+
+    /**
+     * Checks the cached permission node of a volume.
+     * 
+     * @param volumeId The volume id
+     * @return True if the player has the volume's permission node
+     */
+    public boolean isVolumeAllowed(int volumeId) {
+        return allowedVolumeIds.get(volumeId);
+    }
+
+    /**
+     * Starts a new permission cache, forgetting all allowed volumes.
+     * 
+     * @param version The volume snapshot version the permissions are evaluated for
+     * @param canUse True if the player has triggervolumes.use
+     */
+    public void setPermissions(long version, boolean canUse) {
+        this.permissionVersion = version;
+        this.canUse = canUse;
+        allowedVolumeIds.clear();
+    }
+
+    /**
+     * Marks a volume as allowed in the permission cache.
+     * 
+     * @param volumeId The volume id
+     */
+    public void allowVolume(int volumeId) {
+        allowedVolumeIds.set(volumeId);
+    }
+
+    /**
+     * Drops the cached permissions, they are evaluated again on the next transition.
+     */
+    public void invalidatePermissions() {
+        this.permissionVersion = -1;
+    }
+
+    /**
+     * Checks if the enter or leave actions of a volume are on cooldown for the player.
+     * 
+     * @param volumeId The volume id
+     * @param enter True for the enter actions, false for the leave actions
+     * @param now The current System.nanoTime()
+     * @return True if the cooldown has not run out yet
+     */
+    public boolean isOnCooldown(int volumeId, boolean enter, long now) {
+        int index = (volumeId << 1) + (enter ? 0 : 1);
+        return index < cooldowns.length && DeadlineMap.isPending(cooldowns[index], now);
+    }
+
+    /**
+     * Gets the deadline of the enter or leave cooldown of a volume for the player.
+     * 
+     * @param volumeId The volume id
+     * @param enter True for the enter actions, false for the leave actions
+     * @return The System.nanoTime() the cooldown runs out at, or 0 if there is none
+     */
+    public long getCooldown(int volumeId, boolean enter) {
+        int index = (volumeId << 1) + (enter ? 0 : 1);
+        return index < cooldowns.length ? cooldowns[index] : 0L;
+    }
+
+    /**
+     * Puts the enter or leave actions of a volume on cooldown for the player.
+     * 
+     * @param volumeId The volume id
+     * @param enter True for the enter actions, false for the leave actions
+     * @param deadline The System.nanoTime() the cooldown runs out at
+     */
+    public void setCooldown(int volumeId, boolean enter, long deadline) {
+        int index = (volumeId << 1) + (enter ? 0 : 1);
+        if (index >= cooldowns.length) {
+            cooldowns = Arrays.copyOf(cooldowns, Math.max(index + 2, cooldowns.length << 1));
+        }
+        cooldowns[index] = deadline;
+    }
+
+    /**
+     * Checks if a single action of a volume is on cooldown for the player.
+     * 
+     * @param volumeId The volume id
+     * @param trigger The trigger type the action belongs to
+     * @param actionId The cooldown id of the action, see {@link TriggerAction#getCooldownId()}
+     * @param now The current System.nanoTime()
+     * @return True if the cooldown has not run out yet
+     */
+    public boolean isActionOnCooldown(int volumeId, TriggerType trigger, int actionId, long now) {
+        return actionCooldowns.hasPending(actionKey(volumeId, trigger, actionId), now);
+    }
+
+    /**
+     * Puts a single action of a volume on cooldown for the player.
+     * Cooldowns that ran out are dropped when the table fills up.
+     * 
+     * @param volumeId The volume id
+     * @param trigger The trigger type the action belongs to
+     * @param actionId The cooldown id of the action, see {@link TriggerAction#getCooldownId()}
+     * @param deadline The System.nanoTime() the cooldown runs out at
+     * @param now The current System.nanoTime()
+     */
+    public void setActionCooldown(int volumeId, TriggerType trigger, int actionId, long deadline, long now) {
+        actionCooldowns.put(actionKey(volumeId, trigger, actionId), deadline, now);
+    }
+
+    /**
+     * Gets the deadlines of the per-action cooldowns, keyed by {@link #actionKey(int, TriggerType, int)}.
+     * 
+     * @return The action cooldowns
+     */
+    public DeadlineMap getActionCooldowns() {
+        return actionCooldowns;
+    }
+
+    /**
+     * Checks if a one-shot volume already fired for the player.
+     * 
+     * @param volumeId The volume id
+     * @return True if the enter actions of the volume already ran
+     */
+    public boolean hasFired(int volumeId) {
+        return firedVolumeIds.get(volumeId);
+    }
+
+    /**
+     * Records that a one-shot volume fired for the player.
+     * 
+     * @param volumeId The volume id
+     */
+    public void setFired(int volumeId) {
+        firedVolumeIds.set(volumeId);
+    }
+
+    /**
+     * Gets the ids of the one-shot volumes that already fired for the player.
+     * 
+     * @return The fired volume ids
+     */
+    public BitSet getFiredVolumeIds() {
+        return firedVolumeIds;
+    }
+
+    /**
+     * Checks if the persisted cooldowns and one-shot volumes of the player were applied.
+     * 
+     * @return True if the persisted data was loaded
+     */
+    public boolean isDataLoaded() {
+        return dataLoaded;
+    }
+
+    /**
+     * Marks the persisted data of the player as applied.
+     */
+    public void setDataLoaded() {
+        this.dataLoaded = true;
+    }
+
+    /**
+     * Checks if the cooldowns or one-shot volumes changed since they were last saved.
+     * 
+     * @return True if the player's data has to be saved
+     */
+    public boolean isDataDirty() {
+        return dataDirty;
+    }
+
+    /**
+     * Sets if the cooldowns or one-shot volumes changed since they were last saved.
+     * 
+     * @param dataDirty True if the player's data has to be saved
+     */
+    public void setDataDirty(boolean dataDirty) {
+        this.dataDirty = dataDirty;
+    }
+
+    /**
+     * Packs the volume, trigger and cooldown id of an action into a key for the action cooldowns.
+     * 
+     * @param volumeId The volume id
+     * @param trigger The trigger type
+     * @param actionId The cooldown id of the action, 24 bits
+     * @return The key
+     */
+    public static long actionKey(int volumeId, TriggerType trigger, int actionId) {
+        return ((long) volumeId << 32) | ((long) trigger.ordinal() << 24) | actionId;
+    }
+
+    /**
+     * Forgets the last position, e.g. after a teleport, so the next scan doesn't sweep a path.
+     */
+    public void clearLastPosition() {
+        this.lastWorldId = -1;
+    }
+}
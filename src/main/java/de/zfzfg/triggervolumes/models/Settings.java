@@ -0,0 +1,336 @@
+package de.zfzfg.triggervolumes.models;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.logging.Logger;
+
+/**
+ * An immutable, typed snapshot of config.yml.
+ * It is read once on enable and on /trigger reload, with defaults and bounds applied,
+ * so code on hot paths reads final fields instead of walking YAML paths.
+ * 
+ * @author zfzfg
+ */
+public final class Settings {
+
+    /**
+     * Length of one server tick, the unit of all configured action and cooldown times.
+     */
+    public static final long NANOS_PER_TICK = 50_000_000L;
+    
+    private static final ActionType[] ACTION_TYPES = ActionType.values();
+    
+    // Language
+    private final String language;
+    
+    // Particles
+    private final int particleUpdateInterval;
+    private final double particleDensity;
+    private final int visualizationDuration;
+    
+    // Cooldowns
+    private final boolean cooldownsEnabled;
+    private final long cooldownNanos;
+    private final boolean persistCooldowns;
+    
+    // Spatial index
+    private final String indexType;
+    private final long largeVolumeSections;
+    
+    // Detection
+    private final String detectionMode;
+    private final int scanInterval;
+    private final int parallelThreshold;
+    private final int workerThreads;
+    private final int teleportRecheckLimit;
+    private final long transitionBudgetNanos;
+    
+    // Actions
+    private final long actionBudgetNanos;
+    private final int actionVolumeLimit;
+    private final int[] actionTypeLimits;
+    private final int maxQueuedActions;
+    
+    // Permissions
+    private final int permissionRefreshInterval;
+    
+    // Player data
+    private final int playerDataSaveInterval;
+    
+    // Selection tool
+    private final Material toolMaterial;
+    private final String toolName;
+
+    /**
+     * Reads the settings from a configuration.
+     * 
+     * @param config The plugin configuration
+     * @param logger The logger to report invalid values to
+     */
+    private Settings(FileConfiguration config, Logger logger) {
+        this.language = config.getString("language.default", "en");
+        
+        this.particleUpdateInterval = config.getInt("particles.update-interval", 5);
+        this.particleDensity = config.getDouble("particles.density", 0.5);
+        this.visualizationDuration = config.getInt("particles.visualization-duration", 30);
+        
+        this.cooldownsEnabled = config.getBoolean("cooldowns.enabled", true);
+        this.cooldownNanos = Math.max(0, config.getInt("cooldowns.default-cooldown", 3)) * 1_000_000_000L;
+        this.persistCooldowns = config.getBoolean("cooldowns.persist", true);
+        
+        this.indexType = config.getString("spatial-index.type", "auto").toLowerCase();
+        this.largeVolumeSections = config.getLong("spatial-index.large-volume-sections", 64);
+        
+        this.detectionMode = config.getString("detection.mode", "event").toLowerCase();
+        this.scanInterval = Math.max(1, config.getInt("detection.scan-interval", 2));
+        this.parallelThreshold = Math.max(1, config.getInt("detection.parallel-threshold", 100));
+        this.workerThreads = config.getInt("detection.worker-threads", 0);
+        this.teleportRecheckLimit = Math.max(1, config.getInt("detection.teleport-recheck-limit", 50));
+        this.transitionBudgetNanos = Math.max(0L, config.getLong("detection.transition-budget", 2000)) * 1000L;
+        
+        this.actionBudgetNanos = Math.max(0L, config.getLong("actions.budget", 2000)) * 1000L;
+        this.actionVolumeLimit = Math.max(0, config.getInt("actions.volume-limit", 0));
+        this.maxQueuedActions = Math.max(0, config.getInt("actions.max-queued", 10000));
+        this.actionTypeLimits = new int[ACTION_TYPES.length];
+        ConfigurationSection limits = config.getConfigurationSection("actions.type-limits");
+        for (ActionType type : ACTION_TYPES) {
+            actionTypeLimits[type.ordinal()] = limits != null ? Math.max(0, limits.getInt(type.name(), 0)) : 0;
+        }
+        
+        this.permissionRefreshInterval = config.getInt("permissions.refresh-interval", 30);
+        
+        this.playerDataSaveInterval = Math.max(1, config.getInt("player-data.save-interval", 30));
+        
+        String materialName = config.getString("selection-tool.material", "WOODEN_HOE");
+        Material material = Material.matchMaterial(materialName);
+        if (material == null) {
+            logger.warning("Invalid selection tool material " + materialName + ", using WOODEN_HOE");
+            material = Material.WOODEN_HOE;
+        }
+        this.toolMaterial = material;
+        this.toolName = ChatColor.translateAlternateColorCodes('&',
+                config.getString("selection-tool.name", "&6Selection Tool"));
+    }
+
+    /**
+     * Reads the settings from a configuration.
+     * 
+     * @param config The plugin configuration
+     * @param logger The logger to report invalid values to
+     * @return The settings
+     */
+    public static Settings load(FileConfiguration config, Logger logger) {
+        return new Settings(config, logger);
+    }
+
+    /**
+     * Gets the configured default language.
+     * 
+     * @return The language code
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Gets the interval of particle updates.
+     * 
+     * @return The interval in ticks
+     */
+    public int getParticleUpdateInterval() {
+        return particleUpdateInterval;
+    }
+
+    /**
+     * Gets the distance between particles along the edges.
+     * 
+     * @return The particle distance in blocks
+     */
+    public double getParticleDensity() {
+        return particleDensity;
+    }
+
+    /**
+     * Gets how long a volume is visualized before it is hidden automatically.
+     * 
+     * @return The duration in seconds
+     */
+    public int getVisualizationDuration() {
+        return visualizationDuration;
+    }
+
+    /**
+     * Checks if the cooldown system is enabled.
+     * 
+     * @return True if cooldowns are enabled
+     */
+    public boolean isCooldownsEnabled() {
+        return cooldownsEnabled;
+    }
+
+    /**
+     * Gets the default cooldown between two activations of the same volume by a player.
+     * 
+     * @return The cooldown in nanoseconds
+     */
+    public long getCooldownNanos() {
+        return cooldownNanos;
+    }
+
+    /**
+     * Checks if running player cooldowns are saved and restored on the next join.
+     * 
+     * @return True if cooldowns are persisted
+     */
+    public boolean isPersistCooldowns() {
+        return persistCooldowns;
+    }
+
+    /**
+     * Gets the configured spatial index type.
+     * 
+     * @return The index type (auto, grid or tree), lowercase
+     */
+    public String getIndexType() {
+        return indexType;
+    }
+
+    /**
+     * Gets the section count above which volumes go into the tree in auto mode.
+     * 
+     * @return The section count
+     */
+    public long getLargeVolumeSections() {
+        return largeVolumeSections;
+    }
+
+    /**
+     * Gets the detection mode.
+     * 
+     * @return The mode (event, scan or async), lowercase
+     */
+    public String getDetectionMode() {
+        return detectionMode;
+    }
+
+    /**
+     * Gets the ticks between two scans in scan mode.
+     * 
+     * @return The scan interval, at least 1
+     */
+    public int getScanInterval() {
+        return scanInterval;
+    }
+
+    /**
+     * Gets the player count from which scans are split across worker threads.
+     * 
+     * @return The parallel threshold, at least 1
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Gets the configured number of scan worker threads.
+     * 
+     * @return The worker thread count, 0 or less for automatic
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Gets the number of players checked per tick after teleports.
+     * 
+     * @return The recheck limit, at least 1
+     */
+    public int getTeleportRecheckLimit() {
+        return teleportRecheckLimit;
+    }
+
+    /**
+     * Gets the time budget for transitions per tick.
+     * 
+     * @return The budget in nanoseconds, 0 if unlimited
+     */
+    public long getTransitionBudgetNanos() {
+        return transitionBudgetNanos;
+    }
+
+    /**
+     * Gets the time budget for actions per tick.
+     * 
+     * @return The budget in nanoseconds, 0 if unlimited
+     */
+    public long getActionBudgetNanos() {
+        return actionBudgetNanos;
+    }
+
+    /**
+     * Gets the number of actions a single volume may run per tick.
+     * 
+     * @return The volume limit, 0 if unlimited
+     */
+    public int getActionVolumeLimit() {
+        return actionVolumeLimit;
+    }
+
+    /**
+     * Gets the number of actions of a type that may run per tick.
+     * 
+     * @param type The action type
+     * @return The type limit, 0 if unlimited
+     */
+    public int getActionTypeLimit(ActionType type) {
+        return actionTypeLimits[type.ordinal()];
+    }
+
+    /**
+     * Gets the number of actions that may wait at once.
+     * 
+     * @return The queue limit, 0 if unlimited
+     */
+    public int getMaxQueuedActions() {
+        return maxQueuedActions;
+    }
+
+    /**
+     * Gets the interval cached permissions are evaluated again in.
+     * 
+     * @return The interval in seconds, 0 or less to only refresh on join and world change
+     */
+    public int getPermissionRefreshInterval() {
+        return permissionRefreshInterval;
+    }
+
+    /**
+     * Gets the interval changed player data is written to disk in.
+     * 
+     * @return The interval in seconds, at least 1
+     */
+    public int getPlayerDataSaveInterval() {
+        return playerDataSaveInterval;
+    }
+
+    /**
+     * Gets the material of the selection tool.
+     * 
+     * @return The tool material
+     */
+    public Material getToolMaterial() {
+        return toolMaterial;
+    }
+
+    /**
+     * Gets the colorized display name of the selection tool.
+     * 
+     * @return The tool name
+     */
+    public String getToolName() {
+        return toolName;
+    }
+}
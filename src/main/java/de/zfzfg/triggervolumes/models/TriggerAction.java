@@ -1,12 +1,36 @@
 package de.zfzfg.triggervolumes.models;
 
+import de.zfzfg.triggervolumes.utils.CommandResolver;
+import de.zfzfg.triggervolumes.utils.PlaceholderTemplate;
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.TextComponent;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.SoundCategory;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+import org.bukkit.util.Vector;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.logging.Level;
 
 /**
  * Represents an action that can be executed when a player enters a trigger volume.
+ * The value is compiled once on creation: placeholders are split out, messages are
+ * colorized and teleport coordinates are parsed, so executing only fills in the player.
+ * Commands are split into label and arguments once and called directly on the resolved
+ * Command, falling back to normal dispatch if the command can't be resolved.
+ * The native types (potion effects, sounds, titles, items, velocity) are parsed into Bukkit
+ * objects and applied through the API without any command dispatch.
  * 
  * @author zfzfg
  */
@@ -14,16 +38,330 @@ public class TriggerAction {
 
     private final ActionType type;
     private final String value;
+    
+    // Ticks before the first run and between repeated runs, 0 for none
+    private final int delay;
+    private final int repeat;
+    
+    // Ticks before this action runs again for the same player, 0 for none
+    private final int cooldown;
+    
+    // 24 bit hash of the definition, identifies the cooldown no matter where the action is listed
+    private final int cooldownId;
+    
+    // Compiled value: command without leading slash, colorized message, title or action bar text
+    private final PlaceholderTemplate template;
+    
+    // Why the value of a native type couldn't be parsed, null if it is valid
+    private String error;
+    
+    // Parsed native values, only the ones of this action's type are set
+    private PotionEffect potionEffect;
+    private String sound;
+    private SoundCategory soundCategory;
+    private float soundVolume, soundPitch;
+    private PlaceholderTemplate subtitle;
+    private int fadeIn, stay, fadeOut;
+    private ItemStack item;
+    private Vector velocity;
+    
+    // Pre-split command, label is null if the command can only be dispatched as a whole line
+    private String commandLabel;
+    private PlaceholderTemplate[] commandArgs;
+    private Command command;
+    private int commandGeneration = -1;
+    
+    // Parsed teleport target, hasTarget is false if the value has less than three parts
+    private boolean hasTarget;
+    private boolean invalidTarget;
+    private double targetX, targetY, targetZ;
+    private boolean hasRotation;
+    private float targetYaw, targetPitch;
 
     /**
-     * Creates a new TriggerAction.
+     * Creates a new TriggerAction that runs right away.
      * 
      * @param type The type of action
      * @param value The action value (command, message, or coordinates)
      */
     public TriggerAction(ActionType type, String value) {
+        this(type, value, 0, 0, 0);
+    }
+
+    /**
+     * Creates a new TriggerAction that runs after a delay and optionally repeats.
+     * Repeating enter, stay and tick actions run until the player leaves the volume again,
+     * repeating leave actions until they enter it again.
+     * 
+     * @param type The type of action
+     * @param value The action value (command, message, or coordinates)
+     * @param delay The ticks before the first run, 0 to run right away
+     * @param repeat The ticks between repeated runs, 0 to run only once
+     */
+    public TriggerAction(ActionType type, String value, int delay, int repeat) {
+        this(type, value, delay, repeat, 0);
+    }
+
+    /**
+     * Creates a new TriggerAction with its own cooldown. While the cooldown runs,
+     * triggering the volume again skips this action for the player.
+     * 
+     * @param type The type of action
+     * @param value The action value (command, message, or coordinates)
+     * @param delay The ticks before the first run, 0 to run right away
+     * @param repeat The ticks between repeated runs, 0 to run only once
+     * @param cooldown The ticks before the action runs again for the same player, 0 for none
+     */
+    public TriggerAction(ActionType type, String value, int delay, int repeat, int cooldown) {
         this.type = type;
         this.value = value;
+        this.delay = Math.max(0, delay);
+        this.repeat = Math.max(0, repeat);
+        this.cooldown = Math.max(0, cooldown);
+        this.cooldownId = Objects.hash(type.name(), value, this.delay, this.repeat, this.cooldown) & 0xFFFFFF;
+        
+        switch (type) {
+            case PLAYER_COMMAND:
+            case CONSOLE_COMMAND:
+                // Remove leading slash if present
+                String commandLine = value.startsWith("/") ? value.substring(1) : value;
+                this.template = PlaceholderTemplate.compile(commandLine);
+                splitCommand(commandLine);
+                break;
+            case MESSAGE:
+            case ACTIONBAR:
+                this.template = PlaceholderTemplate.compile(ChatColor.translateAlternateColorCodes('&', value));
+                break;
+            case TITLE:
+                this.template = parseTitle(value);
+                break;
+            case POTION_EFFECT:
+                this.template = null;
+                parsePotionEffect(value);
+                break;
+            case SOUND:
+                this.template = null;
+                parseSound(value);
+                break;
+            case GIVE_ITEM:
+                this.template = null;
+                parseItem(value);
+                break;
+            case VELOCITY:
+                this.template = null;
+                parseVelocity(value);
+                break;
+            case TELEPORT:
+            default:
+                this.template = null;
+                parseTarget(value);
+                break;
+        }
+    }
+
+    /**
+     * Parses a potion effect in format "effect [seconds|infinite] [amplifier] [hideParticles]",
+     * the same arguments as /effect give.
+     * 
+     * @param effect The effect value
+     */
+    private void parsePotionEffect(String effect) {
+        String[] parts = effect.trim().split(" ");
+        PotionEffectType effectType = null;
+        NamespacedKey key = NamespacedKey.fromString(parts[0].toLowerCase(Locale.ROOT));
+        if (key != null) {
+            effectType = PotionEffectType.getByKey(key);
+        }
+        if (effectType == null) {
+            effectType = PotionEffectType.getByName(parts[0]);
+        }
+        if (effectType == null) {
+            error = "Unknown potion effect: " + parts[0];
+            return;
+        }
+        
+        try {
+            int duration = 30 * 20;
+            if (parts.length >= 2) {
+                duration = parts[1].equalsIgnoreCase("infinite") 
+                        ? PotionEffect.INFINITE_DURATION : Integer.parseInt(parts[1]) * 20;
+            }
+            int amplifier = parts.length >= 3 ? Integer.parseInt(parts[2]) : 0;
+            boolean hideParticles = parts.length >= 4 && Boolean.parseBoolean(parts[3]);
+            potionEffect = new PotionEffect(effectType, duration, amplifier, false, !hideParticles);
+        } catch (NumberFormatException e) {
+            error = "Invalid potion effect duration or amplifier: " + effect;
+        }
+    }
+
+    /**
+     * Parses a sound in format "sound [volume] [pitch] [category]".
+     * 
+     * @param soundValue The sound value
+     */
+    private void parseSound(String soundValue) {
+        String[] parts = soundValue.trim().split(" ");
+        sound = parts[0];
+        soundVolume = 1.0f;
+        soundPitch = 1.0f;
+        soundCategory = SoundCategory.MASTER;
+        
+        try {
+            if (parts.length >= 2) {
+                soundVolume = Float.parseFloat(parts[1]);
+            }
+            if (parts.length >= 3) {
+                soundPitch = Float.parseFloat(parts[2]);
+            }
+        } catch (NumberFormatException e) {
+            error = "Invalid sound volume or pitch: " + soundValue;
+            return;
+        }
+        
+        if (parts.length >= 4) {
+            soundCategory = parseSoundCategory(parts[3]);
+            if (soundCategory == null) {
+                error = "Unknown sound category: " + parts[3];
+            }
+        }
+    }
+
+    /**
+     * Parses a sound category, accepting both the Bukkit and the vanilla /playsound names.
+     * 
+     * @param name The category name, e.g. "players" or "player"
+     * @return The category, or null if unknown
+     */
+    private static SoundCategory parseSoundCategory(String name) {
+        String upperName = name.toUpperCase(Locale.ROOT);
+        for (SoundCategory category : SoundCategory.values()) {
+            if (category.name().equals(upperName) || category.name().equals(upperName + "S")) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses a title in format "title|subtitle|fadeIn stay fadeOut", everything after the title is optional.
+     * Without a subtitle none is sent, so one sent separately before is kept like with /title.
+     * 
+     * @param titleValue The title value
+     * @return The compiled title text
+     */
+    private PlaceholderTemplate parseTitle(String titleValue) {
+        String[] parts = titleValue.split("\\|", -1);
+        subtitle = parts.length >= 2 && !parts[1].isEmpty() 
+                ? PlaceholderTemplate.compile(ChatColor.translateAlternateColorCodes('&', parts[1])) : null;
+        fadeIn = 10;
+        stay = 70;
+        fadeOut = 20;
+        
+        if (parts.length >= 3) {
+            String[] times = parts[2].trim().split(" ");
+            try {
+                if (times.length != 3) {
+                    throw new NumberFormatException();
+                }
+                fadeIn = Integer.parseInt(times[0]);
+                stay = Integer.parseInt(times[1]);
+                fadeOut = Integer.parseInt(times[2]);
+            } catch (NumberFormatException e) {
+                error = "Invalid title times, expected \"fadeIn stay fadeOut\" in ticks: " + parts[2];
+            }
+        }
+        return PlaceholderTemplate.compile(ChatColor.translateAlternateColorCodes('&', parts[0]));
+    }
+
+    /**
+     * Parses an item in format "material [amount]".
+     * 
+     * @param itemValue The item value
+     */
+    private void parseItem(String itemValue) {
+        String[] parts = itemValue.trim().split(" ");
+        Material material = Material.matchMaterial(parts[0]);
+        if (material == null || !material.isItem()) {
+            error = "Unknown item: " + parts[0];
+            return;
+        }
+        
+        try {
+            int amount = parts.length >= 2 ? Integer.parseInt(parts[1]) : 1;
+            if (amount < 1) {
+                error = "Item amount must be at least 1: " + parts[1];
+                return;
+            }
+            item = new ItemStack(material, amount);
+        } catch (NumberFormatException e) {
+            error = "Invalid item amount: " + parts[1];
+        }
+    }
+
+    /**
+     * Parses a velocity in format "x y z".
+     * 
+     * @param velocityValue The velocity value
+     */
+    private void parseVelocity(String velocityValue) {
+        String[] parts = velocityValue.trim().split(" ");
+        if (parts.length != 3) {
+            error = "Velocity must be \"x y z\": " + velocityValue;
+            return;
+        }
+        
+        try {
+            velocity = new Vector(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), 
+                    Double.parseDouble(parts[2]));
+        } catch (NumberFormatException e) {
+            error = "Invalid velocity: " + velocityValue;
+        }
+    }
+
+    /**
+     * Splits a command line into label and argument templates the same way the
+     * server's command map does when dispatching it.
+     * 
+     * @param commandLine The command line without leading slash
+     */
+    private void splitCommand(String commandLine) {
+        String[] parts = commandLine.split(" ");
+        if (parts.length == 0 || parts[0].isEmpty() || parts[0].indexOf('%') >= 0) {
+            return;
+        }
+        
+        commandLabel = parts[0].toLowerCase(Locale.ENGLISH);
+        commandArgs = new PlaceholderTemplate[parts.length - 1];
+        for (int i = 1; i < parts.length; i++) {
+            commandArgs[i - 1] = PlaceholderTemplate.compile(parts[i]);
+        }
+    }
+
+    /**
+     * Parses teleport coordinates in format "x y z" or "x y z yaw pitch".
+     * 
+     * @param coords The coordinates
+     */
+    private void parseTarget(String coords) {
+        String[] parts = coords.split(" ");
+        if (parts.length < 3) {
+            return;
+        }
+        
+        hasTarget = true;
+        try {
+            targetX = Double.parseDouble(parts[0]);
+            targetY = Double.parseDouble(parts[1]);
+            targetZ = Double.parseDouble(parts[2]);
+            
+            if (parts.length >= 5) {
+                targetYaw = Float.parseFloat(parts[3]);
+                targetPitch = Float.parseFloat(parts[4]);
+                hasRotation = true;
+            }
+        } catch (NumberFormatException e) {
+            invalidTarget = true;
+        }
     }
 
     /**
@@ -44,31 +382,165 @@ public class TriggerAction {
         return value;
     }
 
+    /**
+     * Gets the delay before this action runs for the first time.
+     * 
+     * @return The delay in ticks, 0 if the action runs right away
+     */
+    public int getDelay() {
+        return delay;
+    }
+
+    /**
+     * Gets the interval this action repeats in.
+     * 
+     * @return The interval in ticks, 0 if the action runs only once
+     */
+    public int getRepeat() {
+        return repeat;
+    }
+
+    /**
+     * Gets how long this action doesn't run again for the same player.
+     * 
+     * @return The cooldown in ticks, 0 if the action has none
+     */
+    public int getCooldown() {
+        return cooldown;
+    }
+
+    /**
+     * Gets the id the player cooldowns of this action are stored under. It only depends on
+     * the definition of the action, so it survives restarts and changes to the action list,
+     * and a different action listed at the same position doesn't inherit the cooldown.
+     * 
+     * @return The cooldown id, 24 bits
+     */
+    public int getCooldownId() {
+        return cooldownId;
+    }
+
+    /**
+     * Checks if this action is delayed or repeating and has to go through the ActionTimer.
+     * 
+     * @return True if the action has a delay or a repeat interval
+     */
+    public boolean isTimed() {
+        return delay > 0 || repeat > 0;
+    }
+
+    /**
+     * Gets why the value of this action couldn't be parsed. Invalid actions do nothing.
+     * 
+     * @return The error message, or null if the action is valid
+     */
+    public String getError() {
+        return error;
+    }
+
     /**
      * Executes this action for the given player.
      * 
      * @param player The player to execute the action for
      */
     public void execute(Player player) {
-        String processedValue = value.replace("%player%", player.getName())
-                                     .replace("%uuid%", player.getUniqueId().toString());
-        
         switch (type) {
             case PLAYER_COMMAND:
-                executePlayerCommand(player, processedValue);
+                if (!executeDirect(player, player)) {
+                    executePlayerCommand(player, template.fill(player));
+                }
                 break;
             case CONSOLE_COMMAND:
-                executeConsoleCommand(processedValue);
+                if (!executeDirect(Bukkit.getConsoleSender(), player)) {
+                    executeConsoleCommand(template.fill(player));
+                }
                 break;
             case MESSAGE:
-                sendMessage(player, processedValue);
+                player.sendMessage(template.fill(player));
                 break;
             case TELEPORT:
-                teleportPlayer(player, processedValue);
+                teleportPlayer(player);
+                break;
+            default:
+                executeNative(player);
                 break;
         }
     }
 
+    /**
+     * Applies a native action through the Bukkit API.
+     * 
+     * @param player The player to apply the action to
+     */
+    private void executeNative(Player player) {
+        if (error != null) {
+            return;
+        }
+        
+        switch (type) {
+            case POTION_EFFECT:
+                player.addPotionEffect(potionEffect);
+                break;
+            case SOUND:
+                player.playSound(player.getLocation(), sound, soundCategory, soundVolume, soundPitch);
+                break;
+            case TITLE:
+                player.sendTitle(template.fill(player), subtitle != null ? subtitle.fill(player) : null, fadeIn, stay, fadeOut);
+                break;
+            case ACTIONBAR:
+                player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(template.fill(player)));
+                break;
+            case GIVE_ITEM:
+                // Like /give, whatever doesn't fit is dropped at the player's feet
+                HashMap<Integer, ItemStack> leftover = player.getInventory().addItem(item.clone());
+                for (ItemStack stack : leftover.values()) {
+                    player.getWorld().dropItemNaturally(player.getLocation(), stack);
+                }
+                break;
+            case VELOCITY:
+                player.setVelocity(velocity.clone());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Calls the resolved command directly with the pre-split arguments.
+     * The command is resolved again after plugins (un)registered commands.
+     * 
+     * @param sender The sender to execute the command as
+     * @param player The player to fill the placeholders for
+     * @return True if the command was called, false if it must be dispatched normally
+     */
+    private boolean executeDirect(CommandSender sender, Player player) {
+        if (commandLabel == null) {
+            return false;
+        }
+        
+        int generation = CommandResolver.getGeneration();
+        if (commandGeneration != generation) {
+            command = CommandResolver.getCommand(commandLabel);
+            commandGeneration = generation;
+        }
+        if (command == null) {
+            return false;
+        }
+        
+        String[] args = new String[commandArgs.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = commandArgs[i].fill(player);
+        }
+        
+        try {
+            command.execute(sender, commandLabel, args);
+        } catch (Throwable e) {
+            Bukkit.getLogger().log(Level.SEVERE, "[TriggerVolumes] Unhandled exception executing '" + 
+                    value + "' for " + player.getName(), e);
+        }
+        return true;
+    }
+
     /**
      * Executes a command as the player.
      * 
@@ -76,10 +548,6 @@ public class TriggerAction {
      * @param command The command to execute
      */
     private void executePlayerCommand(Player player, String command) {
-        // Remove leading slash if present
-        if (command.startsWith("/")) {
-            command = command.substring(1);
-        }
         player.performCommand(command);
     }
 
@@ -89,51 +557,29 @@ public class TriggerAction {
      * @param command The command to execute
      */
     private void executeConsoleCommand(String command) {
-        // Remove leading slash if present
-        if (command.startsWith("/")) {
-            command = command.substring(1);
-        }
         Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
     }
 
     /**
-     * Sends a message to the player with color code support.
-     * 
-     * @param player The player to send the message to
-     * @param message The message to send
-     */
-    private void sendMessage(Player player, String message) {
-        player.sendMessage(ChatColor.translateAlternateColorCodes('&', message));
-    }
-
-    /**
-     * Teleports the player to the specified coordinates.
+     * Teleports the player to the parsed coordinates in their current world.
      * 
      * @param player The player to teleport
-     * @param coords The coordinates in format "x y z" or "x y z yaw pitch"
      */
-    private void teleportPlayer(Player player, String coords) {
-        String[] parts = coords.split(" ");
-        if (parts.length >= 3) {
-            try {
-                double x = Double.parseDouble(parts[0]);
-                double y = Double.parseDouble(parts[1]);
-                double z = Double.parseDouble(parts[2]);
-                
-                float yaw = player.getLocation().getYaw();
-                float pitch = player.getLocation().getPitch();
-                
-                if (parts.length >= 5) {
-                    yaw = Float.parseFloat(parts[3]);
-                    pitch = Float.parseFloat(parts[4]);
-                }
-                
-                Location targetLocation = new Location(player.getWorld(), x, y, z, yaw, pitch);
-                player.teleport(targetLocation);
-            } catch (NumberFormatException e) {
-                player.sendMessage(ChatColor.RED + "Invalid teleport coordinates!");
-            }
+    private void teleportPlayer(Player player) {
+        if (!hasTarget) {
+            return;
+        }
+        if (invalidTarget) {
+            player.sendMessage(ChatColor.RED + "Invalid teleport coordinates!");
+            return;
         }
+        
+        Location location = player.getLocation();
+        float yaw = hasRotation ? targetYaw : location.getYaw();
+        float pitch = hasRotation ? targetPitch : location.getPitch();
+        
+        Location targetLocation = new Location(player.getWorld(), targetX, targetY, targetZ, yaw, pitch);
+        player.teleport(targetLocation);
     }
 
     @Override
@@ -141,6 +587,9 @@ public class TriggerAction {
         return "TriggerAction{" +
                 "type=" + type +
                 ", value='" + value + '\'' +
+                ", delay=" + delay +
+                ", repeat=" + repeat +
+                ", cooldown=" + cooldown +
                 '}';
     }
 }
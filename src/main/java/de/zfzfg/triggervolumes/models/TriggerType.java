@@ -14,5 +14,15 @@ public enum TriggerType {
     /**
      * Action is triggered when a player leaves the volume.
      */
-    LEAVE
+    LEAVE,
+    
+    /**
+     * Action is triggered once after a player stayed inside the volume for its stay time.
+     */
+    STAY,
+    
+    /**
+     * Action is triggered every tick interval of the volume while a player is inside it.
+     */
+    TICK
 }
@@ -15,12 +15,51 @@ import java.util.UUID;
  */
 public class TriggerVolume {
 
+    /**
+     * Default ticks a player has to stay inside before the stay actions run.
+     */
+    public static final int DEFAULT_STAY_TIME = 100;
+    
+    /**
+     * Default ticks between two runs of the tick actions.
+     */
+    public static final int DEFAULT_TICK_INTERVAL = 20;
+    
+    /**
+     * Cooldown value meaning the volume uses cooldowns.default-cooldown from the config.
+     */
+    public static final int DEFAULT_COOLDOWN = -1;
+
     private final String name;
     private final String worldName;
     private final double minX, minY, minZ;
     private final double maxX, maxY, maxZ;
     private final List<TriggerAction> enterActions;
     private final List<TriggerAction> leaveActions;
+    private final List<TriggerAction> stayActions;
+    private final List<TriggerAction> tickActions;
+    
+    // Ticks until the stay actions run and between the tick actions
+    private int stayTime = DEFAULT_STAY_TIME;
+    private int tickInterval = DEFAULT_TICK_INTERVAL;
+    
+    // Ticks before the enter or leave actions run again, per player and for all players
+    private int cooldown = DEFAULT_COOLDOWN;
+    private int globalCooldown;
+    
+    // Whether the enter actions only ever run once per player
+    private boolean oneShot;
+    
+    // Blocks past the bounds a player has to get before leaving counts,
+    // and ticks they have to stay outside before it does
+    private double hysteresis;
+    private int exitDelay;
+    
+    // Dense runtime id assigned by the TriggerVolumeManager, not persisted
+    private int id = -1;
+    
+    // Extra permission node a player needs to trigger this volume, null if none
+    private String permission;
     
     // Keep legacy actions list for backwards compatibility
     @Deprecated
@@ -51,9 +90,52 @@ public class TriggerVolume {
         this.maxZ = Math.max(z1, z2);
         this.enterActions = new ArrayList<>();
         this.leaveActions = new ArrayList<>();
+        this.stayActions = new ArrayList<>();
+        this.tickActions = new ArrayList<>();
         this.actions = new ArrayList<>();
     }
 
+    /**
+     * Creates a copy of this volume with the same bounds, id and actions.
+     * The action lists are copied, so changing them does not affect this volume.
+     * 
+     * @return The copy
+     */
+    public TriggerVolume copy() {
+        return copyWithBounds(worldName, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Creates a copy of this volume with new bounds, keeping its name, id, actions and settings.
+     * 
+     * @param worldName The name of the world the copy is in
+     * @param x1 First X coordinate
+     * @param y1 First Y coordinate
+     * @param z1 First Z coordinate
+     * @param x2 Second X coordinate
+     * @param y2 Second Y coordinate
+     * @param z2 Second Z coordinate
+     * @return The moved copy
+     */
+    public TriggerVolume copyWithBounds(String worldName, double x1, double y1, double z1,
+                                        double x2, double y2, double z2) {
+        TriggerVolume copy = new TriggerVolume(name, worldName, x1, y1, z1, x2, y2, z2);
+        copy.enterActions.addAll(enterActions);
+        copy.leaveActions.addAll(leaveActions);
+        copy.stayActions.addAll(stayActions);
+        copy.tickActions.addAll(tickActions);
+        copy.stayTime = stayTime;
+        copy.tickInterval = tickInterval;
+        copy.cooldown = cooldown;
+        copy.globalCooldown = globalCooldown;
+        copy.oneShot = oneShot;
+        copy.hysteresis = hysteresis;
+        copy.exitDelay = exitDelay;
+        copy.id = id;
+        copy.permission = permission;
+        return copy;
+    }
+
     /**
      * Gets the name of this trigger volume.
      * 
@@ -63,6 +145,45 @@ public class TriggerVolume {
         return name;
     }
 
+    /**
+     * Gets the runtime id of this volume.
+     * Ids are small, dense integers that stay stable while the plugin is running
+     * and are kept when a volume is moved or the volumes are reloaded.
+     * 
+     * @return The volume id, or -1 if the volume is not registered
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the runtime id of this volume. Only called by the TriggerVolumeManager.
+     * 
+     * @param id The volume id
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the permission node a player needs to trigger this volume,
+     * in addition to triggervolumes.use.
+     * 
+     * @return The permission node, or null if none is required
+     */
+    public String getPermission() {
+        return permission;
+    }
+
+    /**
+     * Sets the permission node a player needs to trigger this volume.
+     * 
+     * @param permission The permission node, or null to remove it
+     */
+    public void setPermission(String permission) {
+        this.permission = permission;
+    }
+
     /**
      * Gets the world name this volume is in.
      * 
@@ -155,6 +276,187 @@ public class TriggerVolume {
         return leaveActions;
     }
 
+    /**
+     * Gets all stay actions associated with this volume.
+     * 
+     * @return List of stay trigger actions
+     */
+    public List<TriggerAction> getStayActions() {
+        return stayActions;
+    }
+
+    /**
+     * Gets all tick actions associated with this volume.
+     * 
+     * @return List of tick trigger actions
+     */
+    public List<TriggerAction> getTickActions() {
+        return tickActions;
+    }
+
+    /**
+     * Gets the actions for a trigger type.
+     * 
+     * @param trigger The trigger type
+     * @return List of trigger actions
+     */
+    public List<TriggerAction> getActions(TriggerType trigger) {
+        switch (trigger) {
+            case LEAVE:
+                return leaveActions;
+            case STAY:
+                return stayActions;
+            case TICK:
+                return tickActions;
+            case ENTER:
+            default:
+                return enterActions;
+        }
+    }
+
+    /**
+     * Gets how long a player has to stay inside before the stay actions run.
+     * 
+     * @return The stay time in ticks
+     */
+    public int getStayTime() {
+        return stayTime;
+    }
+
+    /**
+     * Sets how long a player has to stay inside before the stay actions run.
+     * 
+     * @param stayTime The stay time in ticks, at least 1
+     */
+    public void setStayTime(int stayTime) {
+        this.stayTime = Math.max(1, stayTime);
+    }
+
+    /**
+     * Gets the interval the tick actions run in while a player is inside.
+     * 
+     * @return The tick interval in ticks
+     */
+    public int getTickInterval() {
+        return tickInterval;
+    }
+
+    /**
+     * Sets the interval the tick actions run in while a player is inside.
+     * 
+     * @param tickInterval The tick interval in ticks, at least 1
+     */
+    public void setTickInterval(int tickInterval) {
+        this.tickInterval = Math.max(1, tickInterval);
+    }
+
+    /**
+     * Gets how long the enter or leave actions don't run again for the same player.
+     * 
+     * @return The cooldown in ticks, or {@link #DEFAULT_COOLDOWN} to use the configured default
+     */
+    public int getCooldown() {
+        return cooldown;
+    }
+
+    /**
+     * Sets how long the enter or leave actions don't run again for the same player.
+     * 
+     * @param cooldown The cooldown in ticks, 0 for none, or {@link #DEFAULT_COOLDOWN}
+     */
+    public void setCooldown(int cooldown) {
+        this.cooldown = Math.max(DEFAULT_COOLDOWN, cooldown);
+    }
+
+    /**
+     * Gets how long the enter or leave actions don't run again for any player
+     * after they ran for one.
+     * 
+     * @return The global cooldown in ticks, 0 for none
+     */
+    public int getGlobalCooldown() {
+        return globalCooldown;
+    }
+
+    /**
+     * Sets how long the enter or leave actions don't run again for any player
+     * after they ran for one.
+     * 
+     * @param globalCooldown The global cooldown in ticks, 0 for none
+     */
+    public void setGlobalCooldown(int globalCooldown) {
+        this.globalCooldown = Math.max(0, globalCooldown);
+    }
+
+    /**
+     * Checks if the enter actions of this volume only run the first time a player enters it.
+     * 
+     * @return True if this is a one-shot volume
+     */
+    public boolean isOneShot() {
+        return oneShot;
+    }
+
+    /**
+     * Sets if the enter actions of this volume only run the first time a player enters it.
+     * 
+     * @param oneShot True to make this a one-shot volume
+     */
+    public void setOneShot(boolean oneShot) {
+        this.oneShot = oneShot;
+    }
+
+    /**
+     * Gets how far past the bounds a player who is inside has to get before they count as having left.
+     * 
+     * @return The margin in blocks, 0 for none
+     */
+    public double getHysteresis() {
+        return hysteresis;
+    }
+
+    /**
+     * Sets how far past the bounds a player who is inside has to get before they count as having left.
+     * 
+     * @param hysteresis The margin in blocks, 0 for none
+     */
+    public void setHysteresis(double hysteresis) {
+        this.hysteresis = Math.max(0.0, hysteresis);
+    }
+
+    /**
+     * Gets how long a player has to stay outside before leaving counts.
+     * Coming back earlier fires neither the leave nor the enter actions.
+     * 
+     * @return The delay in ticks, 0 for none
+     */
+    public int getExitDelay() {
+        return exitDelay;
+    }
+
+    /**
+     * Sets how long a player has to stay outside before leaving counts.
+     * 
+     * @param exitDelay The delay in ticks, 0 for none
+     */
+    public void setExitDelay(int exitDelay) {
+        this.exitDelay = Math.max(0, exitDelay);
+    }
+
+    /**
+     * Checks if a point is inside this volume grown by its hysteresis margin on every side, ignoring the world.
+     * 
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @return True if the point is inside the grown volume
+     */
+    public boolean containsWithMargin(double x, double y, double z) {
+        return x >= minX - hysteresis && x < maxX + 1 + hysteresis &&
+               y >= minY - hysteresis && y < maxY + 1 + hysteresis &&
+               z >= minZ - hysteresis && z < maxZ + 1 + hysteresis;
+    }
+
     /**
      * Adds an action to this volume (legacy - adds to enter actions).
      * 
@@ -184,6 +486,16 @@ public class TriggerVolume {
         leaveActions.add(action);
     }
 
+    /**
+     * Adds an action for a trigger type to this volume.
+     * 
+     * @param trigger The trigger type
+     * @param action The action to add
+     */
+    public void addAction(TriggerType trigger, TriggerAction action) {
+        getActions(trigger).add(action);
+    }
+
     /**
      * Clears all actions from this volume (legacy - clears enter actions).
      * 
@@ -209,11 +521,22 @@ public class TriggerVolume {
     }
 
     /**
-     * Clears all actions (both enter and leave) from this volume.
+     * Clears all actions of a trigger type from this volume.
+     * 
+     * @param trigger The trigger type
+     */
+    public void clearActions(TriggerType trigger) {
+        getActions(trigger).clear();
+    }
+
+    /**
+     * Clears all actions (enter, leave, stay and tick) from this volume.
      */
     public void clearAllActions() {
         enterActions.clear();
         leaveActions.clear();
+        stayActions.clear();
+        tickActions.clear();
     }
 
     /**
@@ -233,10 +556,19 @@ public class TriggerVolume {
             return false;
         }
         
-        double x = location.getX();
-        double y = location.getY();
-        double z = location.getZ();
-        
+        return contains(location.getX(), location.getY(), location.getZ());
+    }
+
+    /**
+     * Checks if a point is inside this trigger volume, ignoring the world.
+     * Uses the same block boundaries as {@link #contains(Location)}.
+     * 
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @return True if the point is inside the volume
+     */
+    public boolean contains(double x, double y, double z) {
         // Add 1 to max coordinates to match block boundaries
         // This ensures the trigger area matches the particle visualization
         return x >= minX && x < maxX + 1 &&
@@ -269,12 +601,15 @@ public class TriggerVolume {
     @Override
     public String toString() {
         return "TriggerVolume{" +
-                "name='" + name + '\'' +
+                "id=" + id +
+                ", name='" + name + '\'' +
                 ", world='" + worldName + '\'' +
                 ", min=(" + minX + ", " + minY + ", " + minZ + ")" +
                 ", max=(" + maxX + ", " + maxY + ", " + maxZ + ")" +
                 ", enterActions=" + enterActions.size() +
                 ", leaveActions=" + leaveActions.size() +
+                ", stayActions=" + stayActions.size() +
+                ", tickActions=" + tickActions.size() +
                 '}';
     }
 }
@@ -25,6 +25,15 @@ public class VolumeGroup {
         this.volumeNames = new ArrayList<>(volumeNames);
     }
 
+    /**
+     * Creates a copy of this group that can be changed independently.
+     * 
+     * @return The copy
+     */
+    public VolumeGroup copy() {
+        return new VolumeGroup(name, volumeNames);
+    }
+
     /**
      * Gets the name of this group.
      * 
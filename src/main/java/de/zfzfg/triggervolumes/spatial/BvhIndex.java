@@ -0,0 +1,559 @@
+package de.zfzfg.triggervolumes.spatial;
+
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Spatial index backed by a dynamic bounding volume hierarchy (AABB tree).
+ * Every volume is a single leaf regardless of its size, and the tree is kept
+ * height-balanced with rotations, so inserts, removals and point queries are O(log n).
+ * Nodes live in parallel primitive arrays to keep the tree compact.
+ *
+ * @author zfzfg
+ */
+public class BvhIndex implements SpatialIndex {
+
+    private static final int NULL = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Estimated bytes per node: six bounds, four links and one volume reference
+    private static final int NODE_BYTES = 6 * 8 + 4 * 4 + 4;
+
+    private double[] minX, minY, minZ;
+    private double[] maxX, maxY, maxZ;
+    private int[] parent;
+    private int[] child1;
+    private int[] child2;
+    private int[] height;
+    private TriggerVolume[] volumes;
+
+    private final Map<TriggerVolume, Integer> leaves;
+    private int root;
+    private int nodeCount;
+    private int freeList;
+
+    /**
+     * Creates a new empty BvhIndex.
+     */
+    public BvhIndex() {
+        this.leaves = new IdentityHashMap<>();
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a copy of another BvhIndex.
+     *
+     * @param other The index to copy
+     */
+    private BvhIndex(BvhIndex other) {
+        this.minX = other.minX.clone();
+        this.minY = other.minY.clone();
+        this.minZ = other.minZ.clone();
+        this.maxX = other.maxX.clone();
+        this.maxY = other.maxY.clone();
+        this.maxZ = other.maxZ.clone();
+        this.parent = other.parent.clone();
+        this.child1 = other.child1.clone();
+        this.child2 = other.child2.clone();
+        this.height = other.height.clone();
+        this.volumes = other.volumes.clone();
+        this.leaves = new IdentityHashMap<>(other.leaves);
+        this.root = other.root;
+        this.nodeCount = other.nodeCount;
+        this.freeList = other.freeList;
+    }
+
+    @Override
+    public void insert(TriggerVolume volume) {
+        int leaf = allocateNode();
+        // Leaves use the same half-open block bounds as TriggerVolume#contains
+        minX[leaf] = volume.getMinX();
+        minY[leaf] = volume.getMinY();
+        minZ[leaf] = volume.getMinZ();
+        maxX[leaf] = volume.getMaxX() + 1;
+        maxY[leaf] = volume.getMaxY() + 1;
+        maxZ[leaf] = volume.getMaxZ() + 1;
+        height[leaf] = 0;
+        volumes[leaf] = volume;
+
+        leaves.put(volume, leaf);
+        insertLeaf(leaf);
+    }
+
+    @Override
+    public boolean remove(TriggerVolume volume) {
+        Integer leaf = leaves.remove(volume);
+        if (leaf == null) {
+            return false;
+        }
+
+        removeLeaf(leaf);
+        freeNode(leaf);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        leaves.clear();
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public void query(double x, double y, double z, VolumeBuffer result) {
+        query(root, x, y, z, result);
+    }
+
+    @Override
+    public void querySegment(Segment segment, VolumeBuffer result) {
+        if (root != NULL) {
+            querySegment(root, segment, result);
+        }
+    }
+
+    @Override
+    public void computeSafeRegion(double x, double y, double z, SafeRegion region) {
+        if (root != NULL) {
+            computeSafeRegion(root, x, y, z, region);
+        }
+    }
+
+    @Override
+    public BvhIndex copy() {
+        return new BvhIndex(this);
+    }
+
+    @Override
+    public int size() {
+        return leaves.size();
+    }
+
+    @Override
+    public void collectStats(IndexStats stats) {
+        int treeHeight = root == NULL ? 0 : height[root] + 1;
+        stats.addTree(leaves.size(), nodeCount, treeHeight, (long) NODE_BYTES * parent.length);
+    }
+
+    /**
+     * Recursively collects the volumes containing a point below a node.
+     *
+     * @param node The node to start at
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param result The buffer to add the containing volumes to
+     */
+    private void query(int node, double x, double y, double z, VolumeBuffer result) {
+        if (node == NULL) {
+            return;
+        }
+        if (x < minX[node] || x >= maxX[node]
+                || y < minY[node] || y >= maxY[node]
+                || z < minZ[node] || z >= maxZ[node]) {
+            return;
+        }
+
+        if (isLeaf(node)) {
+            result.add(volumes[node]);
+            return;
+        }
+
+        query(child1[node], x, y, z, result);
+        query(child2[node], x, y, z, result);
+    }
+
+    /**
+     * Collects the leaves below a node that a segment runs through.
+     *
+     * @param node The node to start at
+     * @param segment The segment
+     * @param result The buffer to add the crossed volumes to
+     */
+    private void querySegment(int node, Segment segment, VolumeBuffer result) {
+        if (!segment.intersects(minX[node], minY[node], minZ[node], maxX[node], maxY[node], maxZ[node])) {
+            return;
+        }
+        if (isLeaf(node)) {
+            result.add(volumes[node]);
+            return;
+        }
+        querySegment(child1[node], segment, result);
+        querySegment(child2[node], segment, result);
+    }
+
+    /**
+     * Clips a region against all leaves below a node that overlap it.
+     * Subtrees outside the (shrinking) region are skipped.
+     *
+     * @param node The node to start at
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param region The region to shrink
+     */
+    private void computeSafeRegion(int node, double x, double y, double z, SafeRegion region) {
+        if (!region.intersects(minX[node], minY[node], minZ[node], maxX[node], maxY[node], maxZ[node])) {
+            return;
+        }
+        if (isLeaf(node)) {
+            region.clip(minX[node], minY[node], minZ[node], maxX[node], maxY[node], maxZ[node], x, y, z);
+            return;
+        }
+        computeSafeRegion(child1[node], x, y, z, region);
+        computeSafeRegion(child2[node], x, y, z, region);
+    }
+
+    /**
+     * Inserts a leaf next to the sibling with the lowest surface area cost
+     * and rebalances the path back to the root.
+     *
+     * @param leaf The leaf node to insert
+     */
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[root] = NULL;
+            return;
+        }
+
+        // Find the best sibling for the new leaf
+        int index = root;
+        while (!isLeaf(index)) {
+            int first = child1[index];
+            int second = child2[index];
+
+            double area = surfaceArea(index);
+            double combinedArea = combinedSurfaceArea(index, leaf);
+
+            // Cost of creating a new parent for this node and the new leaf
+            double cost = 2.0 * combinedArea;
+            // Minimum cost of pushing the leaf further down the tree
+            double inheritanceCost = 2.0 * (combinedArea - area);
+
+            double cost1 = descendCost(first, leaf) + inheritanceCost;
+            double cost2 = descendCost(second, leaf) + inheritanceCost;
+
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? first : second;
+        }
+
+        int sibling = index;
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        volumes[newParent] = null;
+        setUnion(newParent, leaf, sibling);
+        height[newParent] = height[sibling] + 1;
+
+        if (oldParent != NULL) {
+            if (child1[oldParent] == sibling) {
+                child1[oldParent] = newParent;
+            } else {
+                child2[oldParent] = newParent;
+            }
+        } else {
+            root = newParent;
+        }
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refit(parent[leaf]);
+    }
+
+    /**
+     * Removes a leaf from the tree, replacing its parent with its sibling.
+     *
+     * @param leaf The leaf node to remove
+     */
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int oldParent = parent[leaf];
+        int grandParent = parent[oldParent];
+        int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+
+        if (grandParent != NULL) {
+            if (child1[grandParent] == oldParent) {
+                child1[grandParent] = sibling;
+            } else {
+                child2[grandParent] = sibling;
+            }
+            parent[sibling] = grandParent;
+            freeNode(oldParent);
+            refit(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(oldParent);
+        }
+    }
+
+    /**
+     * Walks from a node up to the root, rebalancing and recomputing bounds and heights.
+     *
+     * @param start The first node to fix
+     */
+    private void refit(int start) {
+        int index = start;
+        while (index != NULL) {
+            index = balance(index);
+
+            int first = child1[index];
+            int second = child2[index];
+            height[index] = 1 + Math.max(height[first], height[second]);
+            setUnion(index, first, second);
+
+            index = parent[index];
+        }
+    }
+
+    /**
+     * Performs a left or right rotation if the subtree at a node is unbalanced.
+     *
+     * @param a The node to balance
+     * @return The node now at the position of the given node
+     */
+    private int balance(int a) {
+        if (isLeaf(a) || height[a] < 2) {
+            return a;
+        }
+
+        int b = child1[a];
+        int c = child2[a];
+        int difference = height[c] - height[b];
+
+        // Rotate c up
+        if (difference > 1) {
+            int f = child1[c];
+            int g = child2[c];
+
+            child1[c] = a;
+            parent[c] = parent[a];
+            parent[a] = c;
+            replaceChild(parent[c], a, c);
+
+            if (height[f] > height[g]) {
+                child2[c] = f;
+                child2[a] = g;
+                parent[g] = a;
+                setUnion(a, b, g);
+                setUnion(c, a, f);
+                height[a] = 1 + Math.max(height[b], height[g]);
+                height[c] = 1 + Math.max(height[a], height[f]);
+            } else {
+                child2[c] = g;
+                child2[a] = f;
+                parent[f] = a;
+                setUnion(a, b, f);
+                setUnion(c, a, g);
+                height[a] = 1 + Math.max(height[b], height[f]);
+                height[c] = 1 + Math.max(height[a], height[g]);
+            }
+            return c;
+        }
+
+        // Rotate b up
+        if (difference < -1) {
+            int d = child1[b];
+            int e = child2[b];
+
+            child1[b] = a;
+            parent[b] = parent[a];
+            parent[a] = b;
+            replaceChild(parent[b], a, b);
+
+            if (height[d] > height[e]) {
+                child2[b] = d;
+                child1[a] = e;
+                parent[e] = a;
+                setUnion(a, c, e);
+                setUnion(b, a, d);
+                height[a] = 1 + Math.max(height[c], height[e]);
+                height[b] = 1 + Math.max(height[a], height[d]);
+            } else {
+                child2[b] = e;
+                child1[a] = d;
+                parent[d] = a;
+                setUnion(a, c, d);
+                setUnion(b, a, e);
+                height[a] = 1 + Math.max(height[c], height[d]);
+                height[b] = 1 + Math.max(height[a], height[e]);
+            }
+            return b;
+        }
+
+        return a;
+    }
+
+    /**
+     * Points a parent (or the root) at a new child after a rotation.
+     *
+     * @param parentNode The parent node, or NULL if the child is the root
+     * @param oldChild The previous child
+     * @param newChild The new child
+     */
+    private void replaceChild(int parentNode, int oldChild, int newChild) {
+        if (parentNode == NULL) {
+            root = newChild;
+        } else if (child1[parentNode] == oldChild) {
+            child1[parentNode] = newChild;
+        } else {
+            child2[parentNode] = newChild;
+        }
+    }
+
+    /**
+     * Gets the cost of descending into a child when inserting a leaf.
+     *
+     * @param child The child node
+     * @param leaf The leaf being inserted
+     * @return The additional surface area caused by the descent
+     */
+    private double descendCost(int child, int leaf) {
+        double combined = combinedSurfaceArea(child, leaf);
+        return isLeaf(child) ? combined : combined - surfaceArea(child);
+    }
+
+    /**
+     * Checks if a node is a leaf.
+     *
+     * @param node The node index
+     * @return True if the node holds a volume
+     */
+    private boolean isLeaf(int node) {
+        return child1[node] == NULL;
+    }
+
+    /**
+     * Gets the surface area of a node's bounds.
+     *
+     * @param node The node index
+     * @return The surface area
+     */
+    private double surfaceArea(int node) {
+        double dx = maxX[node] - minX[node];
+        double dy = maxY[node] - minY[node];
+        double dz = maxZ[node] - minZ[node];
+        return 2.0 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Gets the surface area of the union of two nodes' bounds.
+     *
+     * @param first The first node index
+     * @param second The second node index
+     * @return The surface area of the union
+     */
+    private double combinedSurfaceArea(int first, int second) {
+        double dx = Math.max(maxX[first], maxX[second]) - Math.min(minX[first], minX[second]);
+        double dy = Math.max(maxY[first], maxY[second]) - Math.min(minY[first], minY[second]);
+        double dz = Math.max(maxZ[first], maxZ[second]) - Math.min(minZ[first], minZ[second]);
+        return 2.0 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Sets a node's bounds to the union of two other nodes' bounds.
+     *
+     * @param target The node to update
+     * @param first The first node index
+     * @param second The second node index
+     */
+    private void setUnion(int target, int first, int second) {
+        minX[target] = Math.min(minX[first], minX[second]);
+        minY[target] = Math.min(minY[first], minY[second]);
+        minZ[target] = Math.min(minZ[first], minZ[second]);
+        maxX[target] = Math.max(maxX[first], maxX[second]);
+        maxY[target] = Math.max(maxY[first], maxY[second]);
+        maxZ[target] = Math.max(maxZ[first], maxZ[second]);
+    }
+
+    /**
+     * Takes a node from the free list, growing the node arrays if needed.
+     *
+     * @return The node index
+     */
+    private int allocateNode() {
+        if (freeList == NULL) {
+            grow(parent.length << 1);
+        }
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        nodeCount++;
+        return node;
+    }
+
+    /**
+     * Returns a node to the free list.
+     *
+     * @param node The node index
+     */
+    private void freeNode(int node) {
+        volumes[node] = null;
+        height[node] = -1;
+        parent[node] = freeList;
+        freeList = node;
+        nodeCount--;
+    }
+
+    /**
+     * Resets the tree to an empty state with the given capacity.
+     *
+     * @param capacity The node capacity
+     */
+    private void allocate(int capacity) {
+        minX = new double[0];
+        minY = new double[0];
+        minZ = new double[0];
+        maxX = new double[0];
+        maxY = new double[0];
+        maxZ = new double[0];
+        parent = new int[0];
+        child1 = new int[0];
+        child2 = new int[0];
+        height = new int[0];
+        volumes = new TriggerVolume[0];
+        root = NULL;
+        nodeCount = 0;
+        freeList = NULL;
+        grow(capacity);
+    }
+
+    /**
+     * Grows the node arrays and links the new nodes into the free list.
+     *
+     * @param capacity The new node capacity
+     */
+    private void grow(int capacity) {
+        int oldCapacity = parent.length;
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        minZ = Arrays.copyOf(minZ, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        maxZ = Arrays.copyOf(maxZ, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        child1 = Arrays.copyOf(child1, capacity);
+        child2 = Arrays.copyOf(child2, capacity);
+        height = Arrays.copyOf(height, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+
+        for (int i = capacity - 1; i >= oldCapacity; i--) {
+            parent[i] = freeList;
+            height[i] = -1;
+            freeList = i;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package de.zfzfg.triggervolumes.spatial;
+
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+
+/**
+ * Spatial index that stores each volume in every 16x16x16 chunk section it overlaps.
+ * Lookups are a single hash probe, which makes it the best choice for small and medium volumes.
+ *
+ * @author zfzfg
+ */
+public class GridIndex implements SpatialIndex {
+
+    /** Edge length of a grid cell, one Minecraft chunk section. */
+    public static final int SECTION_SIZE = 16;
+
+    // Bit layout of a section key: 22 bits X, 22 bits Z, 20 bits Y
+    private static final int XZ_BITS = 22;
+    private static final int Y_BITS = 20;
+    private static final int Y_MIN = -(1 << (Y_BITS - 1));
+    private static final int Y_MAX = (1 << (Y_BITS - 1)) - 1;
+
+    private final SectionTable table;
+    private int volumeCount;
+
+    /**
+     * Creates a new empty GridIndex.
+     */
+    public GridIndex() {
+        this.table = new SectionTable();
+    }
+
+    /**
+     * Creates a GridIndex from an existing table.
+     *
+     * @param table The section table
+     * @param volumeCount The number of volumes in the table
+     */
+    private GridIndex(SectionTable table, int volumeCount) {
+        this.table = table;
+        this.volumeCount = volumeCount;
+    }
+
+    @Override
+    public void insert(TriggerVolume volume) {
+        int minSectionX = section(volume.getMinX());
+        int maxSectionX = section(volume.getMaxX() + 1);
+        int minSectionY = clampSectionY(section(volume.getMinY()));
+        int maxSectionY = clampSectionY(section(volume.getMaxY() + 1));
+        int minSectionZ = section(volume.getMinZ());
+        int maxSectionZ = section(volume.getMaxZ() + 1);
+
+        for (int sectionX = minSectionX; sectionX <= maxSectionX; sectionX++) {
+            for (int sectionZ = minSectionZ; sectionZ <= maxSectionZ; sectionZ++) {
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                    table.add(sectionKey(sectionX, sectionY, sectionZ), volume);
+                }
+            }
+        }
+        volumeCount++;
+    }
+
+    @Override
+    public boolean remove(TriggerVolume volume) {
+        int minSectionX = section(volume.getMinX());
+        int maxSectionX = section(volume.getMaxX() + 1);
+        int minSectionY = clampSectionY(section(volume.getMinY()));
+        int maxSectionY = clampSectionY(section(volume.getMaxY() + 1));
+        int minSectionZ = section(volume.getMinZ());
+        int maxSectionZ = section(volume.getMaxZ() + 1);
+
+        boolean removed = false;
+        for (int sectionX = minSectionX; sectionX <= maxSectionX; sectionX++) {
+            for (int sectionZ = minSectionZ; sectionZ <= maxSectionZ; sectionZ++) {
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                    // Removes by identity, a volume with the same name may already be indexed again
+                    removed |= table.remove(sectionKey(sectionX, sectionY, sectionZ), volume);
+                }
+            }
+        }
+        if (removed) {
+            volumeCount--;
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        table.clear();
+        volumeCount = 0;
+    }
+
+    @Override
+    public void query(double x, double y, double z, VolumeBuffer result) {
+        TriggerVolume[] candidates = table.get(sectionKey(section(x), section(y), section(z)));
+        if (candidates == null) {
+            return;
+        }
+
+        // Check only volumes in the same chunk section
+        for (TriggerVolume volume : candidates) {
+            if (volume.contains(x, y, z)) {
+                result.add(volume);
+            }
+        }
+    }
+
+    @Override
+    public void querySegment(Segment segment, VolumeBuffer result) {
+        double fromX = segment.getFromX();
+        double fromY = segment.getFromY();
+        double fromZ = segment.getFromZ();
+        int sectionX = section(fromX);
+        int sectionY = section(fromY);
+        int sectionZ = section(fromZ);
+        int endX = section(segment.getToX());
+        int endY = section(segment.getToY());
+        int endZ = section(segment.getToZ());
+
+        // Walk the sections along the segment (3D DDA), one step per section boundary
+        double deltaX = segment.getToX() - fromX;
+        double deltaY = segment.getToY() - fromY;
+        double deltaZ = segment.getToZ() - fromZ;
+        int stepX = Integer.signum(endX - sectionX);
+        int stepY = Integer.signum(endY - sectionY);
+        int stepZ = Integer.signum(endZ - sectionZ);
+        double nextX = boundaryTime(fromX, deltaX, sectionX, stepX);
+        double nextY = boundaryTime(fromY, deltaY, sectionY, stepY);
+        double nextZ = boundaryTime(fromZ, deltaZ, sectionZ, stepZ);
+        double stepTimeX = stepX != 0 ? SECTION_SIZE / Math.abs(deltaX) : Double.POSITIVE_INFINITY;
+        double stepTimeY = stepY != 0 ? SECTION_SIZE / Math.abs(deltaY) : Double.POSITIVE_INFINITY;
+        double stepTimeZ = stepZ != 0 ? SECTION_SIZE / Math.abs(deltaZ) : Double.POSITIVE_INFINITY;
+
+        collectCrossed(sectionX, sectionY, sectionZ, segment, result);
+        int steps = Math.abs(endX - sectionX) + Math.abs(endY - sectionY) + Math.abs(endZ - sectionZ);
+        for (int i = 0; i < steps; i++) {
+            // Axes that already reached the end section never step again
+            if (nextX <= nextY && nextX <= nextZ) {
+                sectionX += stepX;
+                nextX = sectionX == endX ? Double.POSITIVE_INFINITY : nextX + stepTimeX;
+            } else if (nextY <= nextZ) {
+                sectionY += stepY;
+                nextY = sectionY == endY ? Double.POSITIVE_INFINITY : nextY + stepTimeY;
+            } else {
+                sectionZ += stepZ;
+                nextZ = sectionZ == endZ ? Double.POSITIVE_INFINITY : nextZ + stepTimeZ;
+            }
+            collectCrossed(sectionX, sectionY, sectionZ, segment, result);
+        }
+    }
+
+    @Override
+    public void computeSafeRegion(double x, double y, double z, SafeRegion region) {
+        int sectionX = section(x);
+        int sectionY = section(y);
+        int sectionZ = section(z);
+
+        // Only the sections around the point are looked at, the region must stay inside them
+        region.clip((sectionX - 1) * (double) SECTION_SIZE, (sectionY - 1) * (double) SECTION_SIZE,
+                (sectionZ - 1) * (double) SECTION_SIZE, (sectionX + 2) * (double) SECTION_SIZE,
+                (sectionY + 2) * (double) SECTION_SIZE, (sectionZ + 2) * (double) SECTION_SIZE, x, y, z);
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    TriggerVolume[] candidates = table.get(sectionKey(sectionX + dx, sectionY + dy, sectionZ + dz));
+                    if (candidates == null) {
+                        continue;
+                    }
+                    for (TriggerVolume volume : candidates) {
+                        region.clip(volume.getMinX(), volume.getMinY(), volume.getMinZ(),
+                                volume.getMaxX() + 1, volume.getMaxY() + 1, volume.getMaxZ() + 1, x, y, z);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public GridIndex copy() {
+        return new GridIndex(table.copy(), volumeCount);
+    }
+
+    @Override
+    public int size() {
+        return volumeCount;
+    }
+
+    @Override
+    public void collectStats(IndexStats stats) {
+        stats.addGrid(volumeCount, table);
+    }
+
+    /**
+     * Adds the volumes of one section that a segment runs through, skipping duplicates.
+     *
+     * @param sectionX The section X coordinate
+     * @param sectionY The section Y coordinate
+     * @param sectionZ The section Z coordinate
+     * @param segment The segment
+     * @param result The buffer to add the crossed volumes to
+     */
+    private void collectCrossed(int sectionX, int sectionY, int sectionZ, Segment segment, VolumeBuffer result) {
+        TriggerVolume[] candidates = table.get(sectionKey(sectionX, sectionY, sectionZ));
+        if (candidates == null) {
+            return;
+        }
+        for (TriggerVolume volume : candidates) {
+            if (segment.intersects(volume) && !result.contains(volume)) {
+                result.add(volume);
+            }
+        }
+    }
+
+    /**
+     * Gets the segment parameter of the first section boundary crossed along one axis.
+     *
+     * @param from The start coordinate
+     * @param delta The segment extent along the axis
+     * @param section The start section coordinate
+     * @param step The step direction (-1, 0 or 1)
+     * @return The segment parameter, or infinity if the axis never leaves its section
+     */
+    private static double boundaryTime(double from, double delta, int section, int step) {
+        if (step == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double boundary = (step > 0 ? section + 1 : section) * (double) SECTION_SIZE;
+        return (boundary - from) / delta;
+    }
+
+    /**
+     * Counts the sections a volume would occupy in a grid.
+     * 
+     * @param volume The volume
+     * @return The number of sections the volume spans
+     */
+    public static long countSections(TriggerVolume volume) {
+        long spanX = section(volume.getMaxX() + 1) - section(volume.getMinX()) + 1L;
+        long spanY = clampSectionY(section(volume.getMaxY() + 1)) - clampSectionY(section(volume.getMinY())) + 1L;
+        long spanZ = section(volume.getMaxZ() + 1) - section(volume.getMinZ()) + 1L;
+        return spanX * spanY * spanZ;
+    }
+
+    /**
+     * Converts a block coordinate to a section coordinate.
+     *
+     * @param coordinate The block coordinate
+     * @return The section coordinate
+     */
+    static int section(double coordinate) {
+        return (int) Math.floor(coordinate / SECTION_SIZE);
+    }
+
+    /**
+     * Packs section coordinates into a single key.
+     * X and Z cover the whole world border, Y is clamped so that
+     * extreme volume heights still map to the outermost sections.
+     *
+     * @param sectionX The section X coordinate
+     * @param sectionY The section Y coordinate
+     * @param sectionZ The section Z coordinate
+     * @return The section key
+     */
+    static long sectionKey(int sectionX, int sectionY, int sectionZ) {
+        int clampedY = clampSectionY(sectionY);
+        long xzMask = (1L << XZ_BITS) - 1;
+        long yMask = (1L << Y_BITS) - 1;
+        return ((sectionX & xzMask) << (XZ_BITS + Y_BITS))
+                | ((sectionZ & xzMask) << Y_BITS)
+                | (clampedY & yMask);
+    }
+
+    /**
+     * Clamps a section Y coordinate to the range representable in a section key.
+     *
+     * @param sectionY The section Y coordinate
+     * @return The clamped section Y coordinate
+     */
+    static int clampSectionY(int sectionY) {
+        return Math.max(Y_MIN, Math.min(Y_MAX, sectionY));
+    }
+}
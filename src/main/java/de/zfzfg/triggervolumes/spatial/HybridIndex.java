@@ -0,0 +1,109 @@
+package de.zfzfg.triggervolumes.spatial;
+
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+
+/**
+ * Spatial index that routes each volume to a grid or a tree depending on its size.
+ * Volumes spanning at most a configured number of chunk sections go into a {@link GridIndex},
+ * larger ones into a {@link BvhIndex} where they take a single entry.
+ *
+ * @author zfzfg
+ */
+public class HybridIndex implements SpatialIndex {
+
+    private final GridIndex grid;
+    private final BvhIndex tree;
+    private final long largeVolumeSections;
+
+    /**
+     * Creates a new HybridIndex.
+     *
+     * @param largeVolumeSections Volumes spanning more sections than this are stored in the tree
+     */
+    public HybridIndex(long largeVolumeSections) {
+        this.grid = new GridIndex();
+        this.tree = new BvhIndex();
+        this.largeVolumeSections = largeVolumeSections;
+    }
+
+    /**
+     * Creates a HybridIndex from existing parts.
+     *
+     * @param grid The grid for small volumes
+     * @param tree The tree for large volumes
+     * @param largeVolumeSections Volumes spanning more sections than this are stored in the tree
+     */
+    private HybridIndex(GridIndex grid, BvhIndex tree, long largeVolumeSections) {
+        this.grid = grid;
+        this.tree = tree;
+        this.largeVolumeSections = largeVolumeSections;
+    }
+
+    @Override
+    public void insert(TriggerVolume volume) {
+        if (isLarge(volume)) {
+            tree.insert(volume);
+        } else {
+            grid.insert(volume);
+        }
+    }
+
+    @Override
+    public boolean remove(TriggerVolume volume) {
+        return isLarge(volume) ? tree.remove(volume) : grid.remove(volume);
+    }
+
+    @Override
+    public void clear() {
+        grid.clear();
+        tree.clear();
+    }
+
+    @Override
+    public void query(double x, double y, double z, VolumeBuffer result) {
+        grid.query(x, y, z, result);
+        if (tree.size() > 0) {
+            tree.query(x, y, z, result);
+        }
+    }
+
+    @Override
+    public void querySegment(Segment segment, VolumeBuffer result) {
+        grid.querySegment(segment, result);
+        if (tree.size() > 0) {
+            tree.querySegment(segment, result);
+        }
+    }
+
+    @Override
+    public void computeSafeRegion(double x, double y, double z, SafeRegion region) {
+        grid.computeSafeRegion(x, y, z, region);
+        tree.computeSafeRegion(x, y, z, region);
+    }
+
+    @Override
+    public HybridIndex copy() {
+        return new HybridIndex(grid.copy(), tree.copy(), largeVolumeSections);
+    }
+
+    @Override
+    public int size() {
+        return grid.size() + tree.size();
+    }
+
+    @Override
+    public void collectStats(IndexStats stats) {
+        grid.collectStats(stats);
+        tree.collectStats(stats);
+    }
+
+    /**
+     * Checks if a volume is stored in the tree rather than the grid.
+     *
+     * @param volume The volume
+     * @return True if the volume spans more sections than the threshold
+     */
+    private boolean isLarge(TriggerVolume volume) {
+        return GridIndex.countSections(volume) > largeVolumeSections;
+    }
+}
@@ -0,0 +1,132 @@
+package de.zfzfg.triggervolumes.spatial;
+
+/**
+ * Accumulates statistics over one or more spatial indexes for the /trigger stats command.
+ *
+ * @author zfzfg
+ */
+public class IndexStats {
+
+    private int gridVolumes;
+    private int treeVolumes;
+    private int sections;
+    private long entries;
+    private int treeNodes;
+    private int treeHeight;
+    private long memoryBytes;
+    private long gridMemoryBytes;
+    private long boxedMemoryBytes;
+
+    /**
+     * Adds the figures of a section grid.
+     *
+     * @param volumes The number of volumes in the grid
+     * @param table The section table of the grid
+     */
+    public void addGrid(int volumes, SectionTable table) {
+        gridVolumes += volumes;
+        sections += table.size();
+        entries += table.getEntryCount();
+        long tableBytes = table.estimateMemoryBytes();
+        memoryBytes += tableBytes;
+        gridMemoryBytes += tableBytes;
+        boxedMemoryBytes += table.estimateBoxedMemoryBytes();
+    }
+
+    /**
+     * Adds the figures of a bounding volume hierarchy.
+     *
+     * @param volumes The number of volumes in the tree
+     * @param nodes The number of nodes in the tree
+     * @param height The height of the tree
+     * @param bytes The estimated memory usage of the tree
+     */
+    public void addTree(int volumes, int nodes, int height, long bytes) {
+        treeVolumes += volumes;
+        treeNodes += nodes;
+        treeHeight = Math.max(treeHeight, height);
+        entries += volumes;
+        memoryBytes += bytes;
+    }
+
+    /**
+     * Gets the number of volumes stored in section grids.
+     *
+     * @return The grid volume count
+     */
+    public int getGridVolumes() {
+        return gridVolumes;
+    }
+
+    /**
+     * Gets the number of volumes stored in trees.
+     *
+     * @return The tree volume count
+     */
+    public int getTreeVolumes() {
+        return treeVolumes;
+    }
+
+    /**
+     * Gets the number of indexed grid sections.
+     *
+     * @return The section count
+     */
+    public int getSections() {
+        return sections;
+    }
+
+    /**
+     * Gets the total number of index entries (grid cell entries plus tree leaves).
+     *
+     * @return The entry count
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the total number of tree nodes.
+     *
+     * @return The node count
+     */
+    public int getTreeNodes() {
+        return treeNodes;
+    }
+
+    /**
+     * Gets the height of the tallest tree.
+     *
+     * @return The tree height
+     */
+    public int getTreeHeight() {
+        return treeHeight;
+    }
+
+    /**
+     * Gets the estimated memory usage of all indexes.
+     *
+     * @return The memory usage in bytes
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Gets the estimated memory usage of the section grids only.
+     *
+     * @return The grid memory usage in bytes
+     */
+    public long getGridMemoryBytes() {
+        return gridMemoryBytes;
+    }
+
+    /**
+     * Gets the estimated memory the grid sections would use in a boxed {@code HashMap<Long, List>}.
+     *
+     * @return The boxed memory usage in bytes
+     */
+    public long getBoxedMemoryBytes() {
+        return boxedMemoryBytes;
+    }
+}
@@ -0,0 +1,178 @@
+package de.zfzfg.triggervolumes.spatial;
+
+/**
+ * Axis-aligned box around a player in which the set of containing volumes cannot change.
+ * Bounds are half-open like the block bounds of a volume. A region is only valid for the
+ * world and index version it was computed for, see
+ * {@link de.zfzfg.triggervolumes.managers.TriggerVolumeManager#isInSafeRegion}.
+ *
+ * @author zfzfg
+ */
+public class SafeRegion {
+
+    private double minX, minY, minZ;
+    private double maxX, maxY, maxZ;
+    private int worldId;
+    private long version;
+
+    /**
+     * Creates a new SafeRegion that contains no points.
+     */
+    public SafeRegion() {
+        invalidate();
+    }
+
+    /**
+     * Sets the bounds of the region.
+     *
+     * @param minX The minimum X coordinate (inclusive)
+     * @param minY The minimum Y coordinate (inclusive)
+     * @param minZ The minimum Z coordinate (inclusive)
+     * @param maxX The maximum X coordinate (exclusive)
+     * @param maxY The maximum Y coordinate (exclusive)
+     * @param maxZ The maximum Z coordinate (exclusive)
+     */
+    public void set(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Shrinks the region so that a box boundary no longer runs through it.
+     * If the point is inside the box the region is reduced to the overlap with the box,
+     * otherwise it is cut off at the box face that leaves the largest region.
+     *
+     * @param boxMinX The minimum X coordinate of the box (inclusive)
+     * @param boxMinY The minimum Y coordinate of the box (inclusive)
+     * @param boxMinZ The minimum Z coordinate of the box (inclusive)
+     * @param boxMaxX The maximum X coordinate of the box (exclusive)
+     * @param boxMaxY The maximum Y coordinate of the box (exclusive)
+     * @param boxMaxZ The maximum Z coordinate of the box (exclusive)
+     * @param x The X coordinate the region is built around
+     * @param y The Y coordinate the region is built around
+     * @param z The Z coordinate the region is built around
+     */
+    public void clip(double boxMinX, double boxMinY, double boxMinZ,
+                     double boxMaxX, double boxMaxY, double boxMaxZ,
+                     double x, double y, double z) {
+        // Ignore boxes that don't reach into the region
+        if (!intersects(boxMinX, boxMinY, boxMinZ, boxMaxX, boxMaxY, boxMaxZ)) {
+            return;
+        }
+
+        boolean insideX = x >= boxMinX && x < boxMaxX;
+        boolean insideY = y >= boxMinY && y < boxMaxY;
+        boolean insideZ = z >= boxMinZ && z < boxMaxZ;
+        if (insideX && insideY && insideZ) {
+            minX = Math.max(minX, boxMinX);
+            minY = Math.max(minY, boxMinY);
+            minZ = Math.max(minZ, boxMinZ);
+            maxX = Math.min(maxX, boxMaxX);
+            maxY = Math.min(maxY, boxMaxY);
+            maxZ = Math.min(maxZ, boxMaxZ);
+            return;
+        }
+
+        // Cut along one separating axis, the one that keeps the largest volume
+        double spanX = maxX - minX;
+        double spanY = maxY - minY;
+        double spanZ = maxZ - minZ;
+        double cutX = insideX ? -1 : (x < boxMinX ? boxMinX - minX : maxX - boxMaxX);
+        double cutY = insideY ? -1 : (y < boxMinY ? boxMinY - minY : maxY - boxMaxY);
+        double cutZ = insideZ ? -1 : (z < boxMinZ ? boxMinZ - minZ : maxZ - boxMaxZ);
+        double volumeX = cutX * spanY * spanZ;
+        double volumeY = cutY * spanX * spanZ;
+        double volumeZ = cutZ * spanX * spanY;
+
+        if (volumeX >= volumeY && volumeX >= volumeZ) {
+            if (x < boxMinX) {
+                maxX = boxMinX;
+            } else {
+                minX = boxMaxX;
+            }
+        } else if (volumeY >= volumeZ) {
+            if (y < boxMinY) {
+                maxY = boxMinY;
+            } else {
+                minY = boxMaxY;
+            }
+        } else {
+            if (z < boxMinZ) {
+                maxZ = boxMinZ;
+            } else {
+                minZ = boxMaxZ;
+            }
+        }
+    }
+
+    /**
+     * Checks if the region's bounds overlap a box.
+     *
+     * @param boxMinX The minimum X coordinate of the box (inclusive)
+     * @param boxMinY The minimum Y coordinate of the box (inclusive)
+     * @param boxMinZ The minimum Z coordinate of the box (inclusive)
+     * @param boxMaxX The maximum X coordinate of the box (exclusive)
+     * @param boxMaxY The maximum Y coordinate of the box (exclusive)
+     * @param boxMaxZ The maximum Z coordinate of the box (exclusive)
+     * @return True if the box and the region overlap
+     */
+    public boolean intersects(double boxMinX, double boxMinY, double boxMinZ,
+                              double boxMaxX, double boxMaxY, double boxMaxZ) {
+        return boxMaxX > minX && boxMinX < maxX && boxMaxY > minY && boxMinY < maxY
+                && boxMaxZ > minZ && boxMinZ < maxZ;
+    }
+
+    /**
+     * Checks if a point is inside the region's bounds.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @return True if the point is inside the region
+     */
+    public boolean contains(double x, double y, double z) {
+        return x >= minX && x < maxX && y >= minY && y < maxY && z >= minZ && z < maxZ;
+    }
+
+    /**
+     * Empties the region, so the next check always falls back to a lookup.
+     */
+    public void invalidate() {
+        set(0, 0, 0, 0, 0, 0);
+        worldId = -1;
+        version = -1;
+    }
+
+    /**
+     * Gets the world id the region was computed for.
+     *
+     * @return The world id
+     */
+    public int getWorldId() {
+        return worldId;
+    }
+
+    /**
+     * Gets the index version the region was computed for.
+     *
+     * @return The index version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Records the world and index version the region was computed for.
+     *
+     * @param worldId The world id
+     * @param version The index version
+     */
+    public void setOrigin(int worldId, long version) {
+        this.worldId = worldId;
+        this.version = version;
+    }
+}
@@ -0,0 +1,313 @@
+package de.zfzfg.triggervolumes.spatial;
+
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from a packed section key to the volumes overlapping that section.
+ * Keys are primitive longs and values are plain arrays, so lookups never box or allocate.
+ * Cell arrays are replaced instead of modified, a reader holding an array always sees a consistent cell.
+ *
+ * @author zfzfg
+ */
+public class SectionTable {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float MAX_LOAD = 0.5f;
+
+    // Estimated object sizes with compressed oops, used for the memory statistics
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int LEGACY_NODE_BYTES = 32;       // HashMap.Node
+    private static final int LEGACY_BOXED_KEY_BYTES = 16;  // java.lang.Long
+    private static final int LEGACY_LIST_BYTES = 24;       // ArrayList
+    private static final int LEGACY_LIST_CAPACITY = 10;    // ArrayList default capacity
+
+    private long[] keys;
+    private TriggerVolume[][] values;
+    private int size;
+    private int entries;
+    private int mask;
+    private int resizeThreshold;
+
+    /**
+     * Creates a new empty SectionTable.
+     */
+    public SectionTable() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a copy of another SectionTable.
+     * Cell arrays are never modified in place, so they are shared with the original.
+     *
+     * @param other The table to copy
+     */
+    private SectionTable(SectionTable other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.size = other.size;
+        this.entries = other.entries;
+        this.mask = other.mask;
+        this.resizeThreshold = other.resizeThreshold;
+    }
+
+    /**
+     * Creates an independent copy of this table.
+     *
+     * @return The copy
+     */
+    public SectionTable copy() {
+        return new SectionTable(this);
+    }
+
+    /**
+     * Gets the volumes indexed in a section.
+     *
+     * @param key The packed section key
+     * @return The volumes in the section, or null if the section is empty
+     */
+    public TriggerVolume[] get(long key) {
+        int index = slot(key);
+        TriggerVolume[] cell;
+        while ((cell = values[index]) != null) {
+            if (keys[index] == key) {
+                return cell;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Adds a volume to a section.
+     *
+     * @param key The packed section key
+     * @param volume The volume to add
+     */
+    public void add(long key, TriggerVolume volume) {
+        int index = slot(key);
+        TriggerVolume[] cell;
+        while ((cell = values[index]) != null) {
+            if (keys[index] == key) {
+                TriggerVolume[] grown = Arrays.copyOf(cell, cell.length + 1);
+                grown[cell.length] = volume;
+                values[index] = grown;
+                entries++;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = new TriggerVolume[] { volume };
+        size++;
+        entries++;
+
+        if (size > resizeThreshold) {
+            allocate(keys.length << 1);
+        }
+    }
+
+    /**
+     * Removes a volume (by identity) from a section.
+     * Sections that become empty are removed from the table.
+     *
+     * @param key The packed section key
+     * @param volume The volume to remove
+     * @return True if the volume was found in the section
+     */
+    public boolean remove(long key, TriggerVolume volume) {
+        int index = slot(key);
+        TriggerVolume[] cell;
+        while ((cell = values[index]) != null) {
+            if (keys[index] == key) {
+                int position = -1;
+                for (int i = 0; i < cell.length; i++) {
+                    if (cell[i] == volume) {
+                        position = i;
+                        break;
+                    }
+                }
+                if (position < 0) {
+                    return false;
+                }
+
+                entries--;
+                if (cell.length == 1) {
+                    deleteSlot(index);
+                } else {
+                    TriggerVolume[] shrunk = new TriggerVolume[cell.length - 1];
+                    System.arraycopy(cell, 0, shrunk, 0, position);
+                    System.arraycopy(cell, position + 1, shrunk, position, cell.length - position - 1);
+                    values[index] = shrunk;
+                }
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all sections from the table.
+     */
+    public void clear() {
+        size = 0;
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Gets the number of non-empty sections.
+     *
+     * @return The section count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the table has no sections.
+     *
+     * @return True if the table is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the total number of (section, volume) entries.
+     *
+     * @return The entry count
+     */
+    public int getEntryCount() {
+        return entries;
+    }
+
+    /**
+     * Gets the number of slots in the table.
+     *
+     * @return The table capacity
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Estimates the heap used by this table in bytes.
+     *
+     * @return The estimated memory usage
+     */
+    public long estimateMemoryBytes() {
+        long bytes = align(ARRAY_HEADER_BYTES + 8L * keys.length)
+                + align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * values.length);
+        for (TriggerVolume[] cell : values) {
+            if (cell != null) {
+                bytes += align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * cell.length);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the heap the same sections would use in a
+     * {@code HashMap<Long, List<TriggerVolume>>}, for comparison in the statistics.
+     *
+     * @return The estimated memory usage of the boxed representation
+     */
+    public long estimateBoxedMemoryBytes() {
+        int tableCapacity = 16;
+        while (tableCapacity * 0.75f < size) {
+            tableCapacity <<= 1;
+        }
+
+        long bytes = align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * tableCapacity);
+        for (TriggerVolume[] cell : values) {
+            if (cell != null) {
+                int listCapacity = Math.max(LEGACY_LIST_CAPACITY, cell.length);
+                bytes += LEGACY_NODE_BYTES + LEGACY_BOXED_KEY_BYTES + LEGACY_LIST_BYTES
+                        + align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * listCapacity);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Deletes a slot and shifts following entries of the same probe run back,
+     * so the table never needs tombstones.
+     *
+     * @param index The slot to delete
+     */
+    private void deleteSlot(int index) {
+        size--;
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = slot(keys[next]);
+            // Move the entry into the gap if its home slot is not between the gap and its position
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0L;
+        values[gap] = null;
+    }
+
+    /**
+     * Allocates a new backing array and re-inserts all existing sections.
+     *
+     * @param capacity The new capacity (power of two)
+     */
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        TriggerVolume[][] oldValues = values;
+
+        keys = new long[capacity];
+        values = new TriggerVolume[capacity][];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * MAX_LOAD);
+
+        if (oldValues == null || size == 0) {
+            size = 0;
+            entries = 0;
+            return;
+        }
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) {
+                continue;
+            }
+            int index = slot(oldKeys[i]);
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+
+    /**
+     * Gets the home slot of a key.
+     *
+     * @param key The packed section key
+     * @return The home slot index
+     */
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Rounds a size up to the JVM object alignment of 8 bytes.
+     *
+     * @param bytes The unaligned size
+     * @return The aligned size
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,182 @@
+package de.zfzfg.triggervolumes.spatial;
+
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+
+/**
+ * Reusable line segment for swept queries, e.g. the path a player moved along in one tick.
+ * Box tests store the segment parameters (0 at the start, 1 at the end) where the
+ * segment enters and leaves the box, so callers can order what was crossed. Not thread-safe.
+ *
+ * @author zfzfg
+ */
+public class Segment {
+
+    private double fromX, fromY, fromZ;
+    private double deltaX, deltaY, deltaZ;
+    private double enter;
+    private double exit;
+
+    /**
+     * Sets the start and end point of the segment.
+     *
+     * @param fromX The start X coordinate
+     * @param fromY The start Y coordinate
+     * @param fromZ The start Z coordinate
+     * @param toX The end X coordinate
+     * @param toY The end Y coordinate
+     * @param toZ The end Z coordinate
+     */
+    public void set(double fromX, double fromY, double fromZ, double toX, double toY, double toZ) {
+        this.fromX = fromX;
+        this.fromY = fromY;
+        this.fromZ = fromZ;
+        this.deltaX = toX - fromX;
+        this.deltaY = toY - fromY;
+        this.deltaZ = toZ - fromZ;
+    }
+
+    /**
+     * Checks if the segment runs through a volume's block bounds.
+     * On a hit {@link #getEnter()} and {@link #getExit()} are updated.
+     *
+     * @param volume The volume to test
+     * @return True if the segment crosses the volume
+     */
+    public boolean intersects(TriggerVolume volume) {
+        return intersects(volume.getMinX(), volume.getMinY(), volume.getMinZ(),
+                volume.getMaxX() + 1, volume.getMaxY() + 1, volume.getMaxZ() + 1);
+    }
+
+    /**
+     * Checks if the segment runs through a box using the slab method.
+     * Segments that only graze a face or edge don't count as a hit.
+     * On a hit {@link #getEnter()} and {@link #getExit()} are updated.
+     *
+     * @param minX The minimum X coordinate of the box
+     * @param minY The minimum Y coordinate of the box
+     * @param minZ The minimum Z coordinate of the box
+     * @param maxX The maximum X coordinate of the box
+     * @param maxY The maximum Y coordinate of the box
+     * @param maxZ The maximum Z coordinate of the box
+     * @return True if the segment crosses the box
+     */
+    public boolean intersects(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        double near = 0.0;
+        double far = 1.0;
+
+        // X slab
+        if (deltaX == 0.0) {
+            if (fromX < minX || fromX >= maxX) {
+                return false;
+            }
+        } else {
+            double t1 = (minX - fromX) / deltaX;
+            double t2 = (maxX - fromX) / deltaX;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+
+        // Y slab
+        if (deltaY == 0.0) {
+            if (fromY < minY || fromY >= maxY) {
+                return false;
+            }
+        } else {
+            double t1 = (minY - fromY) / deltaY;
+            double t2 = (maxY - fromY) / deltaY;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+
+        // Z slab
+        if (deltaZ == 0.0) {
+            if (fromZ < minZ || fromZ >= maxZ) {
+                return false;
+            }
+        } else {
+            double t1 = (minZ - fromZ) / deltaZ;
+            double t2 = (maxZ - fromZ) / deltaZ;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+
+        if (near >= far) {
+            return false;
+        }
+        enter = near;
+        exit = far;
+        return true;
+    }
+
+    /**
+     * Gets the segment parameter where the last hit box was entered.
+     *
+     * @return A value between 0 (start) and 1 (end)
+     */
+    public double getEnter() {
+        return enter;
+    }
+
+    /**
+     * Gets the segment parameter where the last hit box was left.
+     *
+     * @return A value between 0 (start) and 1 (end)
+     */
+    public double getExit() {
+        return exit;
+    }
+
+    /**
+     * Gets the start X coordinate.
+     *
+     * @return The start X coordinate
+     */
+    public double getFromX() {
+        return fromX;
+    }
+
+    /**
+     * Gets the start Y coordinate.
+     *
+     * @return The start Y coordinate
+     */
+    public double getFromY() {
+        return fromY;
+    }
+
+    /**
+     * Gets the start Z coordinate.
+     *
+     * @return The start Z coordinate
+     */
+    public double getFromZ() {
+        return fromZ;
+    }
+
+    /**
+     * Gets the end X coordinate.
+     *
+     * @return The end X coordinate
+     */
+    public double getToX() {
+        return fromX + deltaX;
+    }
+
+    /**
+     * Gets the end Y coordinate.
+     *
+     * @return The end Y coordinate
+     */
+    public double getToY() {
+        return fromY + deltaY;
+    }
+
+    /**
+     * Gets the end Z coordinate.
+     *
+     * @return The end Z coordinate
+     */
+    public double getToZ() {
+        return fromZ + deltaZ;
+    }
+}
@@ -0,0 +1,96 @@
+package de.zfzfg.triggervolumes.spatial;
+
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+
+/**
+ * A spatial index over the trigger volumes of a single world.
+ * Implementations are maintained incrementally, one volume at a time.
+ * They are not thread-safe, but any number of threads may read an index nobody modifies anymore.
+ *
+ * @author zfzfg
+ */
+public interface SpatialIndex {
+
+    /**
+     * Adds a volume to the index.
+     *
+     * @param volume The volume to add
+     */
+    void insert(TriggerVolume volume);
+
+    /**
+     * Removes a volume (by identity) from the index.
+     *
+     * @param volume The volume to remove
+     * @return True if the volume was indexed
+     */
+    boolean remove(TriggerVolume volume);
+
+    /**
+     * Replaces a volume with a moved or resized version of it.
+     *
+     * @param oldVolume The currently indexed volume
+     * @param newVolume The volume to index instead
+     */
+    default void move(TriggerVolume oldVolume, TriggerVolume newVolume) {
+        remove(oldVolume);
+        insert(newVolume);
+    }
+
+    /**
+     * Removes all volumes from the index.
+     */
+    void clear();
+
+    /**
+     * Collects all volumes containing a point.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param result The buffer to add the containing volumes to
+     */
+    void query(double x, double y, double z, VolumeBuffer result);
+
+    /**
+     * Collects all volumes a segment runs through, each volume at most once.
+     *
+     * @param segment The segment
+     * @param result The buffer to add the crossed volumes to
+     */
+    void querySegment(Segment segment, VolumeBuffer result);
+
+    /**
+     * Shrinks a region around a point until no indexed volume boundary runs through it,
+     * so the set of volumes containing the point is the same everywhere in the region.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param region The region to shrink, initially containing the point
+     */
+    void computeSafeRegion(double x, double y, double z, SafeRegion region);
+
+    /**
+     * Creates an independent copy of this index.
+     * Changes to the copy don't affect this index, which allows copy-on-write
+     * publishing of indexes that other threads are still reading.
+     *
+     * @return The copy
+     */
+    SpatialIndex copy();
+
+    /**
+     * Gets the number of indexed volumes.
+     *
+     * @return The volume count
+     */
+    int size();
+
+    /**
+     * Adds this index's figures to a statistics accumulator.
+     *
+     * @param stats The statistics to add to
+     */
+    void collectStats(IndexStats stats);
+}
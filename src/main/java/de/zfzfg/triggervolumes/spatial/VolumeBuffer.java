@@ -0,0 +1,121 @@
+package de.zfzfg.triggervolumes.spatial;
+
+import de.zfzfg.triggervolumes.models.TriggerVolume;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable, caller-owned result buffer for spatial index queries.
+ * It only allocates when it has to grow, so a buffer kept by the caller
+ * makes repeated lookups allocation-free. Not thread-safe.
+ *
+ * @author zfzfg
+ */
+public class VolumeBuffer {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private TriggerVolume[] elements;
+    private int size;
+
+    /**
+     * Creates a new empty VolumeBuffer.
+     */
+    public VolumeBuffer() {
+        this.elements = new TriggerVolume[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Appends a volume.
+     *
+     * @param volume The volume to add
+     */
+    public void add(TriggerVolume volume) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size << 1);
+        }
+        elements[size++] = volume;
+    }
+
+    /**
+     * Gets the volume at a position.
+     *
+     * @param index The position
+     * @return The volume
+     */
+    public TriggerVolume get(int index) {
+        return elements[index];
+    }
+
+    /**
+     * Checks if the buffer holds a volume (by identity).
+     *
+     * @param volume The volume to look for
+     * @return True if the volume is in the buffer
+     */
+    public boolean contains(TriggerVolume volume) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == volume) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of volumes in the buffer.
+     *
+     * @return The volume count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the buffer is empty.
+     *
+     * @return True if the buffer holds no volumes
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all volumes, keeping the capacity.
+     */
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Replaces the contents of this buffer with the contents of another.
+     *
+     * @param other The buffer to copy from
+     */
+    public void copyFrom(VolumeBuffer other) {
+        if (elements.length < other.size) {
+            elements = Arrays.copyOf(elements, other.elements.length);
+        }
+        System.arraycopy(other.elements, 0, elements, 0, other.size);
+        if (size > other.size) {
+            Arrays.fill(elements, other.size, size, null);
+        }
+        size = other.size;
+    }
+
+    /**
+     * Copies the contents into a new list.
+     *
+     * @return A list of the buffered volumes
+     */
+    public List<TriggerVolume> toList() {
+        List<TriggerVolume> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(elements[i]);
+        }
+        return list;
+    }
+}
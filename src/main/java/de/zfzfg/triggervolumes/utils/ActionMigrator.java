@@ -0,0 +1,315 @@
+package de.zfzfg.triggervolumes.utils;
+
+import de.zfzfg.triggervolumes.models.ActionType;
+import de.zfzfg.triggervolumes.models.TriggerAction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites CONSOLE_COMMAND actions that only target the triggering player into the
+ * equivalent native action types. Supported are /effect give, /playsound, /title and /give
+ * with %player% as target. Commands using anything the native types can't express,
+ * like NBT, positions or JSON formatting, are left unchanged.
+ * A /title times or subtitle command is folded into the title that directly follows it.
+ * Once one stays a command, later titles in the list stay commands as well, since a native
+ * title always sends its own times and would override what the command set.
+ * 
+ * @author zfzfg
+ */
+public class ActionMigrator {
+
+    private static final String TARGET = "%player%";
+    
+    // A JSON text component that is only a plain string or {"text":"..."}
+    private static final Pattern PLAIN_TEXT = Pattern.compile(
+            "^(?:\"((?:[^\"\\\\]|\\\\.)*)\"|\\{\\s*\"text\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"\\s*})$");
+    
+    private int migratedCount;
+
+    /**
+     * Migrates a list of actions.
+     * 
+     * @param actions The actions, in execution order
+     * @return The migrated actions, or null if nothing could be migrated
+     */
+    public List<TriggerAction> migrate(List<TriggerAction> actions) {
+        List<TriggerAction> result = new ArrayList<>(actions.size());
+        boolean changed = false;
+        
+        // Set once a /title times or subtitle command is kept, the titles after it depend on it
+        boolean titleStateKept = false;
+        
+        for (int i = 0; i < actions.size(); i++) {
+            TriggerAction action = actions.get(i);
+            
+            if (!titleStateKept) {
+                int end = mergeTitle(actions, i, result);
+                if (end >= 0) {
+                    migratedCount += end - i + 1;
+                    changed = true;
+                    i = end;
+                    continue;
+                }
+            }
+            if (isTitleCommand(action, "times") || isTitleCommand(action, "subtitle")) {
+                titleStateKept = true;
+            }
+            if (titleStateKept && isTitleCommand(action, "title")) {
+                result.add(action);
+                continue;
+            }
+            
+            TriggerAction migrated = migrate(action);
+            if (migrated != null) {
+                result.add(migrated);
+                migratedCount++;
+                changed = true;
+            } else {
+                result.add(action);
+            }
+        }
+        
+        return changed ? result : null;
+    }
+
+    /**
+     * Merges /title times and subtitle commands directly followed by their title with the
+     * same timing into one TITLE action.
+     * 
+     * @param actions The actions
+     * @param start The index of the first command
+     * @param result The list to add the TITLE action to
+     * @return The index of the title command, or -1 if there is nothing to merge at the start
+     */
+    private int mergeTitle(List<TriggerAction> actions, int start, List<TriggerAction> result) {
+        TriggerAction first = actions.get(start);
+        String times = null;
+        String subtitle = null;
+        int end = start;
+        for (; end < actions.size() && hasSameTiming(first, actions.get(end)); end++) {
+            TriggerAction action = actions.get(end);
+            if (times == null && (times = getTitleTimes(action)) != null) {
+                continue;
+            }
+            if (subtitle == null && (subtitle = getTitleText(action, "subtitle")) != null) {
+                continue;
+            }
+            break;
+        }
+        if (end == start || end >= actions.size() || !hasSameTiming(first, actions.get(end))) {
+            return -1;
+        }
+        
+        String title = getTitleText(actions.get(end), "title");
+        if (title == null) {
+            return -1;
+        }
+        String value = title + "|" + (subtitle != null ? subtitle : "") + (times != null ? "|" + times : "");
+        TriggerAction merged = create(ActionType.TITLE, value, first);
+        if (merged == null) {
+            return -1;
+        }
+        result.add(merged);
+        return end;
+    }
+
+    /**
+     * Gets the number of console commands migrated so far.
+     * 
+     * @return The migrated command count
+     */
+    public int getMigratedCount() {
+        return migratedCount;
+    }
+
+    /**
+     * Migrates a single action.
+     * 
+     * @param action The action
+     * @return The native action, or null if the action can't be migrated
+     */
+    private TriggerAction migrate(TriggerAction action) {
+        String[] parts = splitConsoleCommand(action);
+        if (parts == null) {
+            return null;
+        }
+        
+        switch (parts[0]) {
+            case "effect":
+                // effect give %player% <effect> [seconds] [amplifier] [hideParticles]
+                if (parts.length >= 4 && parts.length <= 7 && parts[1].equals("give") && parts[2].equals(TARGET)) {
+                    return create(ActionType.POTION_EFFECT, join(parts, 3, parts.length), action);
+                }
+                return null;
+            case "give":
+                // give %player% <item> [count], items with NBT or components stay commands
+                if (parts.length >= 3 && parts.length <= 4 && parts[1].equals(TARGET)
+                        && parts[2].indexOf('{') < 0 && parts[2].indexOf('[') < 0) {
+                    return create(ActionType.GIVE_ITEM, join(parts, 2, parts.length), action);
+                }
+                return null;
+            case "playsound":
+                return migratePlaySound(parts, action);
+            case "title":
+                // title %player% actionbar <text>
+                String actionBar = getTitleText(action, "actionbar");
+                if (actionBar != null) {
+                    return create(ActionType.ACTIONBAR, actionBar, action);
+                }
+                String title = getTitleText(action, "title");
+                return title != null ? create(ActionType.TITLE, title, action) : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Migrates /playsound &lt;sound&gt; &lt;source&gt; %player% [~ ~ ~ [volume [pitch]]].
+     * 
+     * @param parts The command parts
+     * @param action The console command action
+     * @return The SOUND action, or null if the command plays the sound at another position
+     */
+    private TriggerAction migratePlaySound(String[] parts, TriggerAction action) {
+        if (parts.length < 4 || parts.length > 9 || !parts[3].equals(TARGET)) {
+            return null;
+        }
+        if (parts.length > 4 && (parts.length < 7
+                || !parts[4].equals("~") || !parts[5].equals("~") || !parts[6].equals("~"))) {
+            return null;
+        }
+        
+        String volume = parts.length >= 8 ? parts[7] : "1";
+        String pitch = parts.length >= 9 ? parts[8] : "1";
+        return create(ActionType.SOUND, parts[1] + " " + volume + " " + pitch + " " + parts[2], action);
+    }
+
+    /**
+     * Gets the text of a "/title %player% &lt;kind&gt; &lt;json&gt;" console command.
+     * 
+     * @param action The action
+     * @param kind The title kind: title, subtitle or actionbar
+     * @return The plain text, or null if the action is no such command or uses formatting
+     */
+    private String getTitleText(TriggerAction action, String kind) {
+        String[] parts = splitConsoleCommand(action);
+        if (parts == null || parts.length < 4 || !parts[0].equals("title")
+                || !parts[1].equals(TARGET) || !parts[2].equals(kind)) {
+            return null;
+        }
+        
+        Matcher matcher = PLAIN_TEXT.matcher(join(parts, 3, parts.length));
+        if (!matcher.matches()) {
+            return null;
+        }
+        String text = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+        // Escapes and '&' color codes would read differently as a native text
+        if (text.indexOf('\\') >= 0 || text.indexOf('|') >= 0 || text.indexOf('&') >= 0) {
+            return null;
+        }
+        return text;
+    }
+
+    /**
+     * Gets the times of a "/title %player% times &lt;fadeIn&gt; &lt;stay&gt; &lt;fadeOut&gt;" console command.
+     * 
+     * @param action The action
+     * @return The times as "fadeIn stay fadeOut", or null if the action is no such command
+     *         or uses time units
+     */
+    private String getTitleTimes(TriggerAction action) {
+        String[] parts = splitConsoleCommand(action);
+        if (parts == null || parts.length != 6 || !isTitleCommand(action, "times") || !parts[1].equals(TARGET)) {
+            return null;
+        }
+        for (int i = 3; i < 6; i++) {
+            if (!parts[i].matches("\\d{1,9}")) {
+                return null;
+            }
+        }
+        return join(parts, 3, 6);
+    }
+
+    /**
+     * Checks if an action is a /title console command of a kind, for any target.
+     * 
+     * @param action The action
+     * @param kind The title kind, e.g. times, subtitle or title
+     * @return True if the action is such a command
+     */
+    private static boolean isTitleCommand(TriggerAction action, String kind) {
+        String[] parts = splitConsoleCommand(action);
+        return parts != null && parts.length >= 3 && parts[0].equals("title") && parts[2].equals(kind);
+    }
+
+    /**
+     * Splits the command line of a console command action.
+     * 
+     * @param action The action
+     * @return The command parts with the label lowercased and without namespace, or null if
+     *         the action is no console command
+     */
+    private static String[] splitConsoleCommand(TriggerAction action) {
+        if (action.getType() != ActionType.CONSOLE_COMMAND) {
+            return null;
+        }
+        
+        String commandLine = action.getValue().trim();
+        if (commandLine.startsWith("/")) {
+            commandLine = commandLine.substring(1);
+        }
+        String[] parts = commandLine.split("\\s+");
+        parts[0] = parts[0].toLowerCase();
+        if (parts[0].startsWith("minecraft:")) {
+            parts[0] = parts[0].substring("minecraft:".length());
+        }
+        return parts;
+    }
+
+    /**
+     * Creates a native action if its value is valid, keeping the timing of the command it replaces.
+     * 
+     * @param type The native action type
+     * @param value The value
+     * @param source The console command action
+     * @return The action, or null if the value can't be parsed
+     */
+    private static TriggerAction create(ActionType type, String value, TriggerAction source) {
+        TriggerAction action = new TriggerAction(type, value, source.getDelay(), source.getRepeat(), source.getCooldown());
+        return action.getError() == null ? action : null;
+    }
+
+    /**
+     * Checks if two actions have the same delay, repeat interval and cooldown.
+     * 
+     * @param first The first action
+     * @param second The second action
+     * @return True if both run at the same times
+     */
+    private static boolean hasSameTiming(TriggerAction first, TriggerAction second) {
+        return first.getDelay() == second.getDelay() && first.getRepeat() == second.getRepeat()
+                && first.getCooldown() == second.getCooldown();
+    }
+
+    /**
+     * Joins a range of command parts with spaces.
+     * 
+     * @param parts The parts
+     * @param from The first part, inclusive
+     * @param to The last part, exclusive
+     * @return The joined parts
+     */
+    private static String join(String[] parts, int from, int to) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                builder.append(' ');
+            }
+            builder.append(parts[i]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package de.zfzfg.triggervolumes.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandMap;
+
+import java.lang.reflect.Method;
+
+/**
+ * Looks up commands in the server's CommandMap so actions can call them directly.
+ * The Bukkit API doesn't expose the CommandMap, it is taken from the server
+ * implementation by reflection. Resolved commands are cached by the callers and
+ * become stale when the generation changes, which happens whenever plugins are
+ * enabled or disabled. Must only be used from the main thread.
+ * 
+ * @author zfzfg
+ */
+public final class CommandResolver {
+
+    private static CommandMap commandMap;
+    private static boolean lookedUp;
+    private static int generation;
+    
+    private CommandResolver() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Resolves a command label, including aliases and "plugin:command" labels.
+     * 
+     * @param label The command label without leading slash
+     * @return The command, or null if it is unknown or the CommandMap is not available
+     */
+    public static Command getCommand(String label) {
+        CommandMap map = getCommandMap();
+        return map != null ? map.getCommand(label) : null;
+    }
+
+    /**
+     * Gets the current generation of registered commands.
+     * 
+     * @return The generation, changes whenever commands may have been (un)registered
+     */
+    public static int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Marks all resolved commands as stale, e.g. after a plugin was enabled or disabled.
+     */
+    public static void invalidate() {
+        generation++;
+    }
+
+    /**
+     * Gets the server's CommandMap, looking it up on first use.
+     * 
+     * @return The CommandMap, or null if the server doesn't provide one
+     */
+    private static CommandMap getCommandMap() {
+        if (!lookedUp) {
+            lookedUp = true;
+            try {
+                Method method = Bukkit.getServer().getClass().getMethod("getCommandMap");
+                commandMap = (CommandMap) method.invoke(Bukkit.getServer());
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                Bukkit.getLogger().warning("[TriggerVolumes] Could not access the command map, " +
+                        "command actions will be dispatched normally: " + e.getMessage());
+            }
+        }
+        return commandMap;
+    }
+}
@@ -0,0 +1,180 @@
+package de.zfzfg.triggervolumes.utils;
+
+import java.util.Arrays;
+
+/**
+ * Compact map from non-negative long keys to System.nanoTime() deadlines, kept as two
+ * primitive arrays with open addressing. Expired entries are not removed one by one,
+ * they are dropped whenever the table would have to grow, so it only holds the
+ * deadlines that are still running plus the ones that expired since the last purge.
+ * Not thread-safe.
+ * 
+ * @author zfzfg
+ */
+public class DeadlineMap {
+
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final long EMPTY = -1L;
+    
+    private long[] keys;
+    private long[] deadlines;
+    private int size;
+
+    /**
+     * Creates a new empty DeadlineMap.
+     */
+    public DeadlineMap() {
+        this.keys = new long[DEFAULT_CAPACITY];
+        this.deadlines = new long[DEFAULT_CAPACITY];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Checks if a deadline has not passed yet. Works across nanoTime overflow.
+     * 
+     * @param deadline The deadline, 0 for none
+     * @param now The current System.nanoTime()
+     * @return True if the deadline is set and still in the future
+     */
+    public static boolean isPending(long deadline, long now) {
+        return deadline != 0 && deadline - now > 0;
+    }
+
+    /**
+     * Checks if the deadline of a key has not passed yet.
+     * 
+     * @param key The key, at least 0
+     * @param now The current System.nanoTime()
+     * @return True if the key has a deadline in the future
+     */
+    public boolean hasPending(long key, long now) {
+        int mask = keys.length - 1;
+        for (int i = hash(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return isPending(deadlines[i], now);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the deadline of a key, dropping expired entries if the table is full.
+     * 
+     * @param key The key, at least 0
+     * @param deadline The deadline
+     * @param now The current System.nanoTime()
+     */
+    public void put(long key, long deadline, long now) {
+        int mask = keys.length - 1;
+        int i = hash(key, mask);
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                deadlines[i] = deadline;
+                return;
+            }
+        }
+        
+        if ((size + 1) * 4 > keys.length * 3) {
+            rehash(now);
+            put(key, deadline, now);
+            return;
+        }
+        keys[i] = key;
+        deadlines[i] = deadline;
+        size++;
+    }
+
+    /**
+     * Calls a visitor for every entry whose deadline has not passed yet.
+     * 
+     * @param now The current System.nanoTime()
+     * @param visitor The visitor
+     */
+    public void forEachPending(long now, Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && isPending(deadlines[i], now)) {
+                visitor.visit(keys[i], deadlines[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of entries, including expired ones that weren't purged yet.
+     * 
+     * @return The entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Rebuilds the table with only the pending entries, doubling it if they still fill half of it.
+     * 
+     * @param now The current System.nanoTime()
+     */
+    private void rehash(long now) {
+        long[] oldKeys = keys;
+        long[] oldDeadlines = deadlines;
+        
+        int pending = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY && isPending(oldDeadlines[i], now)) {
+                pending++;
+            }
+        }
+        int capacity = pending * 2 >= oldKeys.length ? oldKeys.length << 1 : oldKeys.length;
+        
+        keys = new long[capacity];
+        deadlines = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY || !isPending(oldDeadlines[i], now)) {
+                continue;
+            }
+            int j = hash(oldKeys[i], mask);
+            while (keys[j] != EMPTY) {
+                j = (j + 1) & mask;
+            }
+            keys[j] = oldKeys[i];
+            deadlines[j] = oldDeadlines[i];
+            size++;
+        }
+    }
+
+    /**
+     * Spreads a key over the table.
+     * 
+     * @param key The key
+     * @param mask The table size minus one
+     * @return The first slot to probe
+     */
+    private static int hash(long key, int mask) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    /**
+     * Receives the entries of a DeadlineMap without boxing them.
+     */
+    public interface Visitor {
+
+        /**
+         * Visits one entry.
+         * 
+         * @param key The key
+         * @param deadline The deadline
+         */
+        void visit(long key, long deadline);
+    }
+}
@@ -0,0 +1,115 @@
+package de.zfzfg.triggervolumes.utils;
+
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+
+/**
+ * A text split once into literal parts and player placeholders.
+ * Filling it for a player only appends the parts, there is no searching or parsing.
+ * Supported placeholders are %player% and %uuid%.
+ * 
+ * @author zfzfg
+ */
+public final class PlaceholderTemplate {
+
+    private static final String[] PLACEHOLDERS = {"%player%", "%uuid%"};
+    private static final int PLAYER = 0;
+    private static final int UUID = 1;
+    
+    // literals[i] comes before placeholders[i], the last literal ends the text
+    private final String[] literals;
+    private final int[] placeholders;
+    private final int literalLength;
+
+    /**
+     * Creates a new PlaceholderTemplate.
+     * 
+     * @param literals The literal parts, one more than placeholders
+     * @param placeholders The placeholder between two literal parts
+     */
+    private PlaceholderTemplate(String[] literals, int[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Splits a text into literal parts and placeholders.
+     * 
+     * @param text The text
+     * @return The compiled template
+     */
+    public static PlaceholderTemplate compile(String text) {
+        String[] literals = new String[4];
+        int[] placeholders = new int[3];
+        int count = 0;
+        int position = 0;
+        
+        while (true) {
+            // Find the next placeholder of any kind
+            int next = -1;
+            int kind = -1;
+            for (int i = 0; i < PLACEHOLDERS.length; i++) {
+                int index = text.indexOf(PLACEHOLDERS[i], position);
+                if (index >= 0 && (next < 0 || index < next)) {
+                    next = index;
+                    kind = i;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            
+            if (count + 1 >= literals.length) {
+                literals = Arrays.copyOf(literals, literals.length << 1);
+                placeholders = Arrays.copyOf(placeholders, placeholders.length << 1);
+            }
+            literals[count] = text.substring(position, next);
+            placeholders[count] = kind;
+            count++;
+            position = next + PLACEHOLDERS[kind].length();
+        }
+        literals[count] = text.substring(position);
+        
+        return new PlaceholderTemplate(Arrays.copyOf(literals, count + 1),
+                Arrays.copyOf(placeholders, count));
+    }
+
+    /**
+     * Checks if the template has no placeholders, so filling it always gives the same text.
+     * 
+     * @return True if the template is constant
+     */
+    public boolean isConstant() {
+        return placeholders.length == 0;
+    }
+
+    /**
+     * Fills the placeholders for a player.
+     * 
+     * @param player The player
+     * @return The filled text
+     */
+    public String fill(Player player) {
+        if (placeholders.length == 0) {
+            return literals[0];
+        }
+        
+        StringBuilder builder = new StringBuilder(literalLength + placeholders.length * 36);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]);
+            if (placeholders[i] == PLAYER) {
+                builder.append(player.getName());
+            } else if (placeholders[i] == UUID) {
+                builder.append(player.getUniqueId());
+            }
+        }
+        builder.append(literals[placeholders.length]);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package de.zfzfg.triggervolumes.utils;
+
+import java.util.Arrays;
+
+/**
+ * Compact set of ints kept as a sorted primitive array.
+ * Used for per-player volume membership, where sets are small and two sets
+ * are diffed with a single merge pass. Only allocates when it has to grow. Not thread-safe.
+ *
+ * @author zfzfg
+ */
+public class SortedIntSet {
+
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private int[] elements;
+    private int size;
+
+    /**
+     * Creates a new empty SortedIntSet.
+     */
+    public SortedIntSet() {
+        this.elements = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Adds a value, keeping the set sorted. Duplicates are ignored.
+     *
+     * @param value The value to add
+     * @return True if the value was not in the set yet
+     */
+    public boolean add(int value) {
+        int position = Arrays.binarySearch(elements, 0, size, value);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size << 1);
+        }
+        System.arraycopy(elements, position, elements, position + 1, size - position);
+        elements[position] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param value The value to remove
+     * @return True if the value was in the set
+     */
+    public boolean remove(int value) {
+        int position = Arrays.binarySearch(elements, 0, size, value);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(elements, position + 1, elements, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Checks if the set contains a value.
+     *
+     * @param value The value to check
+     * @return True if the value is in the set
+     */
+    public boolean contains(int value) {
+        return Arrays.binarySearch(elements, 0, size, value) >= 0;
+    }
+
+    /**
+     * Gets the value at a position, values are in ascending order.
+     *
+     * @param index The position
+     * @return The value
+     */
+    public int get(int index) {
+        return elements[index];
+    }
+
+    /**
+     * Gets the number of values in the set.
+     *
+     * @return The value count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the set is empty.
+     *
+     * @return True if the set holds no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all values, keeping the capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Replaces the contents of this set with the contents of another.
+     *
+     * @param other The set to copy from
+     */
+    public void copyFrom(SortedIntSet other) {
+        if (elements.length < other.size) {
+            elements = new int[other.elements.length];
+        }
+        System.arraycopy(other.elements, 0, elements, 0, other.size);
+        size = other.size;
+    }
+}